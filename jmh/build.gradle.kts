@@ -0,0 +1,46 @@
+/*
+ * JMH benchmarks measuring the propagation overhead of the context preserved wrappers and
+ * executors compared with their raw delegates.
+ *
+ * Run all benchmarks at 1, N and 2N submitting threads (N = available processors):
+ *   ./gradlew :jmh:jmh
+ * Extra JMH command line options can be passed through the jmhArgs property, e.g.
+ *   ./gradlew :jmh:jmh -PjmhArgs="ExecutorService -f 1 -wi 3 -i 5"
+ */
+
+plugins {
+    id("java")
+}
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+val jmhVersion = "1.37"
+
+dependencies {
+    implementation(project(":lib"))
+    implementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    compileOnly("com.google.code.findbugs:jsr305:3.0.2")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks at 1, N and 2N threads."
+    dependsOn(tasks.classes)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.rokoder.concurrency.contextpreserved.benchmark.BenchmarkRunner")
+    val jmhArgs = (project.findProperty("jmhArgs") as String?) ?: ""
+    args = jmhArgs.split(" ").filter { it.isNotBlank() }
+    val reportDir = layout.buildDirectory.dir("reports/jmh").get().asFile
+    systemProperty("jmh.reportDir", reportDir.path)
+    doFirst {
+        reportDir.mkdirs()
+    }
+}
@@ -0,0 +1,34 @@
+package com.rokoder.concurrency.contextpreserved.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Shapes of context propagated by the benchmarks. {@link #MAP} models an MDC like context which the
+ * coordinator copies on every set.
+ */
+public enum BenchmarkContext {
+  NULL,
+  SMALL,
+  MAP;
+
+  private static final int MAP_SIZE = 16;
+
+  @Nullable
+  Object newContext() {
+    switch (this) {
+      case SMALL:
+        return "request-1234";
+      case MAP:
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < MAP_SIZE; i++) {
+          map.put("key-" + i, "value-" + i);
+        }
+        return Collections.unmodifiableMap(map);
+      default:
+        return null;
+    }
+  }
+}
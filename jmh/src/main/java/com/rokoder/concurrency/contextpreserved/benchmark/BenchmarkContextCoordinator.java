@@ -0,0 +1,32 @@
+package com.rokoder.concurrency.contextpreserved.benchmark;
+
+import com.rokoder.concurrency.contextpreserved.ContextCoordinator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ThreadLocal} backed coordinator used by the benchmarks. Map contexts are copied on set, the
+ * same way Slf4j MDC adapters do, so that the benchmarks reflect the real cost of a transition.
+ */
+final class BenchmarkContextCoordinator implements ContextCoordinator<Object> {
+  private static final ThreadLocal<Object> THREAD_LOCAL = new ThreadLocal<>();
+
+  @Nullable
+  @Override
+  public Object get() {
+    return THREAD_LOCAL.get();
+  }
+
+  @Override
+  public void set(@Nullable Object context) {
+    if (context == null) {
+      THREAD_LOCAL.remove();
+    } else if (context instanceof Map) {
+      THREAD_LOCAL.set(Collections.unmodifiableMap(new HashMap<>((Map<?, ?>) context)));
+    } else {
+      THREAD_LOCAL.set(context);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.rokoder.concurrency.contextpreserved.benchmark;
+
+import java.io.File;
+import java.util.Locale;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Optional;
+
+/**
+ * Runs the selected benchmarks at 1, N and 2N submitting threads, where N is the number of
+ * available processors. Remaining arguments are regular JMH command line options. Results of each
+ * run are written as JSON to the directory given by the {@code jmh.reportDir} system property, so
+ * that they can be compared across releases.
+ *
+ * <p>The defaults only apply to the options which are not passed. {@code -t} runs the benchmarks
+ * at the passed number of threads only, and {@code -rf} changes the format of the results.
+ * {@code -rff} writes the results to the passed file, so it requires {@code -t}, as every run would
+ * overwrite the file of the previous one.
+ */
+public final class BenchmarkRunner {
+  private BenchmarkRunner() {
+  }
+
+  /**
+   * Entry point.
+   *
+   * @param args JMH command line options
+   * @throws CommandLineOptionException If the options cannot be parsed, or {@code -rff} is passed
+   *     without {@code -t}
+   * @throws RunnerException If a benchmark fails
+   */
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    Optional<Integer> threadsOption = commandLineOptions.getThreads();
+    boolean resultPassed = commandLineOptions.getResult().hasValue();
+    if (resultPassed && !threadsOption.hasValue()) {
+      throw new CommandLineOptionException(
+          "-rff writes a single result file, pass -t to run a single thread count");
+    }
+    ResultFormatType resultFormat =
+        commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON);
+    File reportDir = new File(System.getProperty("jmh.reportDir", "."));
+    int cpus = Runtime.getRuntime().availableProcessors();
+    int[] threadCounts;
+    if (threadsOption.hasValue()) {
+      threadCounts = new int[] {threadsOption.get()};
+    } else {
+      threadCounts = cpus == 1 ? new int[] {1, 2} : new int[] {1, cpus, 2 * cpus};
+    }
+    for (int threads : threadCounts) {
+      ChainedOptionsBuilder builder = new OptionsBuilder()
+          .parent(commandLineOptions)
+          .threads(threads)
+          .resultFormat(resultFormat);
+      if (!resultPassed) {
+        String name = threads == Threads.MAX ? "max" : String.valueOf(threads);
+        builder.result(new File(reportDir,
+            "results-t" + name + "." + resultFormat.name().toLowerCase(Locale.ROOT)).getPath());
+      }
+      new Runner(builder.build()).run();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.rokoder.concurrency.contextpreserved.benchmark;
+
+import com.rokoder.concurrency.contextpreserved.DynamicContextPreservedExecutorService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DynamicContextPreservedExecutorService#submit(Callable)} and
+ * {@link DynamicContextPreservedExecutorService#invokeAll(java.util.Collection)} against the raw
+ * delegate pool. The submitting threads are the JMH threads, so running the suite at 1, N and 2N
+ * threads shows how the capture, set and restore steps behave under contention.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorServiceBenchmark {
+  private static final int BATCH_SIZE = 16;
+
+  /**
+   * Delegate pool shared by all submitting threads.
+   */
+  @State(Scope.Benchmark)
+  public static class Pools {
+    final BenchmarkContextCoordinator coordinator = new BenchmarkContextCoordinator();
+    ExecutorService raw;
+    ExecutorService wrapped;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      raw = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      wrapped = DynamicContextPreservedExecutorService.wrap(raw, coordinator);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+      raw.shutdown();
+      raw.awaitTermination(10, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Per submitting thread context and tasks.
+   */
+  @State(Scope.Thread)
+  public static class Submitter {
+    @Param({"NULL", "SMALL", "MAP"})
+    public BenchmarkContext context;
+
+    Callable<Object> task;
+    List<Callable<Object>> batch;
+
+    @Setup(Level.Trial)
+    public void setUp(Pools pools) {
+      pools.coordinator.set(context.newContext());
+      task = () -> pools.coordinator;
+      batch = new ArrayList<>(BATCH_SIZE);
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        batch.add(task);
+      }
+    }
+  }
+
+  @Benchmark
+  public Object rawSubmit(Pools pools, Submitter submitter)
+      throws ExecutionException, InterruptedException {
+    return pools.raw.submit(submitter.task).get();
+  }
+
+  @Benchmark
+  public Object wrappedSubmit(Pools pools, Submitter submitter)
+      throws ExecutionException, InterruptedException {
+    return pools.wrapped.submit(submitter.task).get();
+  }
+
+  @Benchmark
+  public List<Future<Object>> rawInvokeAll(Pools pools, Submitter submitter)
+      throws InterruptedException {
+    return pools.raw.invokeAll(submitter.batch);
+  }
+
+  @Benchmark
+  public List<Future<Object>> wrappedInvokeAll(Pools pools, Submitter submitter)
+      throws InterruptedException {
+    return pools.wrapped.invokeAll(submitter.batch);
+  }
+}
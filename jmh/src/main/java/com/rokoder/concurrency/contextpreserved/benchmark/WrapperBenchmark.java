@@ -0,0 +1,74 @@
+package com.rokoder.concurrency.contextpreserved.benchmark;
+
+import com.rokoder.concurrency.contextpreserved.ContextPreservedCallable;
+import com.rokoder.concurrency.contextpreserved.ContextPreservedRunnable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the capture cost of {@link ContextPreservedRunnable#wrap} and the set/restore cost of
+ * {@link ContextPreservedCallable#call()} against calling the raw delegate directly. Everything runs
+ * on the benchmark thread, so only the wrapper overhead is measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WrapperBenchmark {
+  private final BenchmarkContextCoordinator coordinator = new BenchmarkContextCoordinator();
+
+  @Param({"NULL", "SMALL", "MAP"})
+  public BenchmarkContext context;
+
+  private long counter;
+  private Runnable runnable;
+  private Callable<Object> callable;
+  private Callable<Object> wrappedCallable;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    coordinator.set(context.newContext());
+    runnable = () -> counter++;
+    callable = () -> coordinator;
+    wrappedCallable = ContextPreservedCallable.wrap(callable, coordinator);
+  }
+
+  @Benchmark
+  public void rawRunnable() {
+    runnable.run();
+  }
+
+  @Benchmark
+  public Runnable runnableWrap() {
+    return ContextPreservedRunnable.wrap(runnable, coordinator);
+  }
+
+  @Benchmark
+  public void runnableWrapAndRun() {
+    ContextPreservedRunnable.wrap(runnable, coordinator).run();
+  }
+
+  @Benchmark
+  public Object rawCallable() throws Exception {
+    return callable.call();
+  }
+
+  @Benchmark
+  public Object callableCall() throws Exception {
+    return wrappedCallable.call();
+  }
+}
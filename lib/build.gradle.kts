@@ -33,6 +33,69 @@ java {
     targetCompatibility = JavaVersion.VERSION_1_8
 }
 
+// Multi-release jar support. Classes which need a newer JDK live in src/main/java<version> and are
+// packaged under META-INF/versions/<version>. Their tests live in src/test/java<version> and run
+// with the matching toolchain as part of check.
+fun multiReleaseSourceSet(javaVersion: Int) {
+    val main = sourceSets.main.get()
+    val test = sourceSets.test.get()
+    val versionedMain = sourceSets.create("java$javaVersion") {
+        java.srcDir("src/main/java$javaVersion")
+        compileClasspath += main.output + main.compileClasspath
+        runtimeClasspath += main.output + main.runtimeClasspath
+    }
+    val versionedTest = sourceSets.create("java${javaVersion}Test") {
+        java.srcDir("src/test/java$javaVersion")
+        compileClasspath += versionedMain.output + test.output + test.compileClasspath
+        runtimeClasspath += versionedMain.output + test.output + test.runtimeClasspath
+    }
+
+    val versionedCompiler = javaToolchains.compilerFor {
+        languageVersion.set(JavaLanguageVersion.of(javaVersion))
+    }
+    listOf(versionedMain.compileJavaTaskName, versionedTest.compileJavaTaskName).forEach {
+        tasks.named<JavaCompile>(it) {
+            javaCompiler.set(versionedCompiler)
+            options.release.set(javaVersion)
+        }
+    }
+
+    val versionedTestTask = tasks.register<Test>("java${javaVersion}Test") {
+        description = "Runs the tests of the Java $javaVersion multi-release classes."
+        group = "verification"
+        testClassesDirs = versionedTest.output.classesDirs
+        classpath = versionedTest.runtimeClasspath
+        javaLauncher.set(javaToolchains.launcherFor {
+            languageVersion.set(JavaLanguageVersion.of(javaVersion))
+        })
+        useJUnitPlatform()
+    }
+    tasks.check {
+        dependsOn(versionedTestTask)
+    }
+    tasks.named("spotbugs${versionedTest.name.replaceFirstChar { it.uppercase() }}") {
+        enabled = false
+    }
+
+    tasks.jar {
+        into("META-INF/versions/$javaVersion") {
+            from(versionedMain.output)
+        }
+        manifest {
+            attributes("Multi-Release" to "true")
+        }
+    }
+    tasks.named<Jar>("sourcesJar") {
+        into("META-INF/versions/$javaVersion") {
+            from(versionedMain.allSource)
+        }
+    }
+}
+
+multiReleaseSourceSet(11)
+multiReleaseSourceSet(21)
+multiReleaseSourceSet(25)
+
 // More info https://docs.gradle.org/current/dsl/org.gradle.api.tasks.javadoc.Javadoc.html
 tasks.withType<Javadoc>().configureEach {
     doFirst {
@@ -0,0 +1,205 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ContextCoordinator} which coordinates many {@link ThreadLocal} contexts as one. The
+ * context of all the passed coordinators is captured into one flat array snapshot, and installed
+ * and restored in a single pass. It allows a task which needs multiple contexts to be decorated
+ * with a single wrapper instead of one per coordinator.
+ *
+ * <p>Index {@code i} of the snapshot holds the context of coordinator {@code i}. A {@code null}
+ * snapshot is treated as all contexts being {@code null}.
+ *
+ * <p>The snapshots are shared and must not be modified. {@link #get()}, {@link #capture()} and
+ * {@link #swap(Object[])} return the last snapshot they created, or a shared all {@code null} one,
+ * again while every context is the same instance as its element, so the identity based elisions
+ * keep working across tasks.
+ * {@link #swap(Object[])} installs the contexts in the order of the coordinators, and
+ * {@link #set(Object[])}, which restores the previous snapshot, in the reverse order.
+ */
+public final class CompositeContextCoordinator implements ContextCoordinator<Object[]> {
+  private final ContextCoordinator<?>[] coordinators;
+  private final Object[] nullSnapshot;
+  private volatile Object[] lastSnapshot;
+
+  private CompositeContextCoordinator(ContextCoordinator<?>[] coordinators) {
+    for (ContextCoordinator<?> coordinator : coordinators) {
+      Objects.requireNonNull(coordinator, "coordinator cannot be null");
+    }
+    this.coordinators = coordinators;
+    this.nullSnapshot = new Object[coordinators.length];
+    this.lastSnapshot = nullSnapshot;
+  }
+
+  /**
+   * Creates a new {@link CompositeContextCoordinator} for the passed coordinators.
+   *
+   * @param coordinators Context coordinators to be combined
+   * @return Newly created composite {@link ContextCoordinator}
+   */
+  public static CompositeContextCoordinator of(ContextCoordinator<?>... coordinators) {
+    Objects.requireNonNull(coordinators, "coordinators cannot be null");
+    return new CompositeContextCoordinator(coordinators.clone());
+  }
+
+  /**
+   * Creates a new {@link CompositeContextCoordinator} for the passed coordinators.
+   *
+   * @param coordinators Context coordinators to be combined
+   * @return Newly created composite {@link ContextCoordinator}
+   */
+  public static CompositeContextCoordinator of(List<? extends ContextCoordinator<?>> coordinators) {
+    Objects.requireNonNull(coordinators, "coordinators cannot be null");
+    return new CompositeContextCoordinator(coordinators.toArray(new ContextCoordinator<?>[0]));
+  }
+
+  /**
+   * Creates a new {@link CompositeContextCoordinator} fusing the passed coordinators. A passed
+   * {@link CompositeContextCoordinator} contributes its own coordinators, so fusing repeatedly
+   * builds a single flat snapshot instead of nested ones.
+   *
+   * @param first Coordinator whose contexts come first
+   * @param second Coordinator whose contexts come next
+   * @return Newly created composite {@link ContextCoordinator}
+   */
+  static CompositeContextCoordinator fuse(ContextCoordinator<?> first,
+                                          ContextCoordinator<?> second) {
+    List<ContextCoordinator<?>> coordinators = new ArrayList<>();
+    addFlattened(coordinators, first);
+    addFlattened(coordinators, second);
+    return of(coordinators);
+  }
+
+  /**
+   * Get the number of coordinators combined by this coordinator.
+   *
+   * @return Number of coordinators, which is also the length of the snapshot
+   */
+  public int size() {
+    return coordinators.length;
+  }
+
+  @Override
+  public Object[] get() {
+    Object[] snapshot = lastSnapshot;
+    boolean created = false;
+    for (int i = 0; i < coordinators.length; i++) {
+      Object context = coordinators[i].get();
+      if (created) {
+        snapshot[i] = context;
+      } else if (context != snapshot[i]) {
+        snapshot = mismatch(snapshot, i, context);
+        created = snapshot != nullSnapshot;
+      }
+    }
+    return created ? cache(snapshot) : snapshot;
+  }
+
+  @Override
+  public Object[] capture() {
+    Object[] snapshot = lastSnapshot;
+    boolean created = false;
+    for (int i = 0; i < coordinators.length; i++) {
+      Object context = coordinators[i].capture();
+      if (created) {
+        snapshot[i] = context;
+      } else if (context != snapshot[i]) {
+        snapshot = mismatch(snapshot, i, context);
+        created = snapshot != nullSnapshot;
+      }
+    }
+    return created ? cache(snapshot) : snapshot;
+  }
+
+  @Override
+  public void set(@Nullable Object[] context) {
+    checkLength(context);
+    for (int i = coordinators.length - 1; i >= 0; i--) {
+      setContext(i, context == null ? null : context[i]);
+    }
+  }
+
+  @Override
+  public Object[] swap(@Nullable Object[] newContext) {
+    checkLength(newContext);
+    Object[] snapshot = lastSnapshot;
+    boolean created = false;
+    for (int i = 0; i < coordinators.length; i++) {
+      Object context = swapContext(i, newContext == null ? null : newContext[i]);
+      if (created) {
+        snapshot[i] = context;
+      } else if (context != snapshot[i]) {
+        snapshot = mismatch(snapshot, i, context);
+        created = snapshot != nullSnapshot;
+      }
+    }
+    return created ? cache(snapshot) : snapshot;
+  }
+
+  private void checkLength(@Nullable Object[] context) {
+    if (context != null && context.length != coordinators.length) {
+      throw new IllegalArgumentException(
+          "context length " + context.length + " does not match coordinators length "
+              + coordinators.length);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setContext(int index, @Nullable Object context) {
+    ((ContextCoordinator<Object>) coordinators[index]).set(context);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  private Object swapContext(int index, @Nullable Object context) {
+    return ((ContextCoordinator<Object>) coordinators[index]).swap(context);
+  }
+
+  /**
+   * Get the snapshot to continue with when the context at passed index is not the same instance as
+   * the element of passed snapshot. It is the all {@code null} snapshot while the contexts are
+   * {@code null}, otherwise a new snapshot holding the contexts up to passed index.
+   */
+  private Object[] mismatch(Object[] snapshot, int index, @Nullable Object context) {
+    if (context == null && isNull(snapshot, index)) {
+      return nullSnapshot;
+    }
+    Object[] copy = new Object[coordinators.length];
+    System.arraycopy(snapshot, 0, copy, 0, index);
+    copy[index] = context;
+    return copy;
+  }
+
+  private static boolean isNull(Object[] snapshot, int length) {
+    for (int i = 0; i < length; i++) {
+      if (snapshot[i] != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Remember the passed new snapshot to return it again while the contexts stay the same. The all
+   * {@code null} snapshot is never created, so the threads without a context, like idle workers,
+   * do not evict the snapshot of the submitting threads.
+   */
+  private Object[] cache(Object[] snapshot) {
+    lastSnapshot = snapshot;
+    return snapshot;
+  }
+
+  private static void addFlattened(List<ContextCoordinator<?>> coordinators,
+                                   ContextCoordinator<?> coordinator) {
+    if (coordinator instanceof CompositeContextCoordinator) {
+      Collections.addAll(coordinators, ((CompositeContextCoordinator) coordinator).coordinators);
+    } else {
+      coordinators.add(coordinator);
+    }
+  }
+}
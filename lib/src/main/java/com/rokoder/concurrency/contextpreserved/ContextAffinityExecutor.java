@@ -0,0 +1,146 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An {@link java.util.concurrent.ExecutorService} which preserves the {@link ThreadLocal} context
+ * across thread boundaries, and routes the tasks with the same context key to the same worker
+ * thread. It captures the new context from calling thread at the time of
+ * {@link #execute(Runnable)}, derives a key from it using the passed key function, and queues the
+ * task on the stripe of the key. Each stripe is served by a single worker thread.
+ *
+ * <p>Bursts of tasks with the same key, like the tasks of one tenant, therefore run one after the
+ * other on the same worker, which keeps the data scoped to the key warm in its cache. A worker does
+ * not restore its previous context between tasks, it only sets the context when the next task
+ * carries a different context instance than the one it holds, and restores its previous context
+ * when it runs out of tasks.
+ *
+ * <p>When a worker runs out of tasks, it steals the most recently queued task of the stripe with
+ * the longest backlog, as long as that stripe has more than one queued task. It keeps a skewed key
+ * distribution from leaving workers idle while others are overloaded. Idle workers block until a
+ * task is queued on their stripe, or a stripe grows to more than one queued task while its worker
+ * is busy.
+ *
+ * <p>A task throwing a {@link RuntimeException} is reported to the uncaught exception handler of
+ * the worker thread, which keeps running the next tasks.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextAffinityExecutor<C>
+    extends ContextWorkerPool<C, ContextAffinityExecutor.StripedTask<C>> {
+  private final Function<? super C, ?> keyFunction;
+  // Stripe of each worker, guarded by the lock of the pool
+  private final List<ArrayDeque<StripedTask<C>>> stripes;
+
+  private ContextAffinityExecutor(int stripeCount, ThreadFactory threadFactory,
+                                  ContextCoordinator<C> contextCoordinator,
+                                  Function<? super C, ?> keyFunction) {
+    super(stripeCount, threadFactory, contextCoordinator);
+    this.keyFunction = Objects.requireNonNull(keyFunction, "keyFunction cannot be null");
+    this.stripes = new ArrayList<>(stripeCount);
+    for (int i = 0; i < stripeCount; i++) {
+      stripes.add(new ArrayDeque<>());
+    }
+  }
+
+  /**
+   * Creates a new executor using {@link Executors#defaultThreadFactory()}.
+   *
+   * @param stripes Number of stripes, each served by one worker thread
+   * @param contextCoordinator Context coordinator
+   * @param keyFunction Function deriving the affinity key from a non {@code null} captured context.
+   *     The tasks with a {@code null} context use the first stripe.
+   * @param <C> Type of context
+   * @return Newly created executor
+   */
+  public static <C> ContextAffinityExecutor<C> of(int stripes,
+                                                  ContextCoordinator<C> contextCoordinator,
+                                                  Function<? super C, ?> keyFunction) {
+    return of(stripes, Executors.defaultThreadFactory(), contextCoordinator, keyFunction);
+  }
+
+  /**
+   * Creates a new executor.
+   *
+   * @param stripes Number of stripes, each served by one worker thread
+   * @param threadFactory Factory of the worker threads
+   * @param contextCoordinator Context coordinator
+   * @param keyFunction Function deriving the affinity key from a non {@code null} captured context.
+   *     The tasks with a {@code null} context use the first stripe.
+   * @param <C> Type of context
+   * @return Newly created executor
+   */
+  public static <C> ContextAffinityExecutor<C> of(int stripes, ThreadFactory threadFactory,
+                                                  ContextCoordinator<C> contextCoordinator,
+                                                  Function<? super C, ?> keyFunction) {
+    ContextAffinityExecutor<C> executor =
+        new ContextAffinityExecutor<>(stripes, threadFactory, contextCoordinator, keyFunction);
+    executor.start();
+    return executor;
+  }
+
+  @Override
+  StripedTask<C> newTask(Runnable command, @Nullable C context) {
+    return new StripedTask<>(command, context, stripeIndex(context));
+  }
+
+  @Override
+  boolean enqueue(StripedTask<C> task) {
+    stripes.get(task.stripe).addLast(task);
+    return true;
+  }
+
+  /**
+   * Wakes up the worker of the stripe of the task, or if it is busy and the stripe has a task to
+   * steal, any waiting worker.
+   */
+  @Override
+  void signalNotEmpty(StripedTask<C> task) {
+    if (!signal(task.stripe) && stripes.get(task.stripe).size() > 1) {
+      super.signalNotEmpty(task);
+    }
+  }
+
+  @Override
+  @Nullable StripedTask<C> dequeue(int worker) {
+    StripedTask<C> task = stripes.get(worker).pollFirst();
+    return task == null ? steal() : task;
+  }
+
+  private int stripeIndex(@Nullable C context) {
+    if (context == null) {
+      return 0;
+    }
+    int hash = Objects.hashCode(keyFunction.apply(context));
+    return Math.floorMod(hash ^ (hash >>> 16), stripes.size());
+  }
+
+  private @Nullable StripedTask<C> steal() {
+    ArrayDeque<StripedTask<C>> victim = null;
+    int victimSize = 1;
+    for (ArrayDeque<StripedTask<C>> stripe : stripes) {
+      int size = stripe.size();
+      if (size > victimSize) {
+        victim = stripe;
+        victimSize = size;
+      }
+    }
+    return victim == null ? null : victim.pollLast();
+  }
+
+  static final class StripedTask<C> extends Task<C> {
+    private final int stripe;
+
+    private StripedTask(Runnable command, @Nullable C context, int stripe) {
+      super(command, context);
+      this.stripe = stripe;
+    }
+  }
+}
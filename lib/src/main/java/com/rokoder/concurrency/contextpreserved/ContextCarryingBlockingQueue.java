@@ -0,0 +1,400 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Bounded {@link BlockingQueue} which preserves the {@link ThreadLocal} context across the threads
+ * of a producer/consumer pipeline. It captures the new context from the producing thread at the
+ * time of {@link #offer(Object)}, {@link #put(Object)} or their variants, and installs it on the
+ * consuming thread at the time of {@link #take()}, {@link #poll()} or their variants. The installed
+ * context is left in place, so the consumer processes the element with it, until the next element
+ * carrying a different context instance is taken.
+ *
+ * <p>The elements and their contexts are stored in two parallel arrays, like the single array of a
+ * {@link java.util.concurrent.ArrayBlockingQueue}, so carrying the context does not allocate a
+ * holder object per element.
+ *
+ * <p>{@link #drainTo(Consumer, int)} is the context preserving way to drain the queue. It runs the
+ * passed action on every drained element with its context installed, out of the lock, and only
+ * switches the context when it changes between consecutive elements. {@link #drainTo(Collection)}
+ * only installs the context of each element while adding it to the collection, so the drained
+ * elements lose their contexts, and the context of the last one is left in place.
+ *
+ * <p>{@link #peek()} and {@link #iterator()} do not install any context. The iterator works on a
+ * snapshot of the queue and does not support removal.
+ *
+ * @param <C> Type of context
+ * @param <E> Type of the elements
+ */
+public final class ContextCarryingBlockingQueue<C, E> extends AbstractQueue<E>
+    implements BlockingQueue<E> {
+  private final ContextCoordinator<C> contextCoordinator;
+  private final @Nullable Object[] items;
+  private final @Nullable Object[] contexts;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private int takeIndex;
+  private int putIndex;
+  private int count;
+
+  private ContextCarryingBlockingQueue(int capacity, ContextCoordinator<C> contextCoordinator) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.items = new Object[capacity];
+    this.contexts = new Object[capacity];
+  }
+
+  /**
+   * Creates a new queue.
+   *
+   * @param capacity Maximum number of elements in the queue
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @param <E> Type of the elements
+   * @return Newly created queue
+   */
+  public static <C, E> ContextCarryingBlockingQueue<C, E> of(
+      int capacity, ContextCoordinator<C> contextCoordinator) {
+    return new ContextCarryingBlockingQueue<>(capacity, contextCoordinator);
+  }
+
+  @Override
+  public boolean offer(E element) {
+    Objects.requireNonNull(element, "element cannot be null");
+    C context = contextCoordinator.capture();
+    lock.lock();
+    try {
+      if (count == items.length) {
+        return false;
+      }
+      enqueue(element, context);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(E element) throws InterruptedException {
+    Objects.requireNonNull(element, "element cannot be null");
+    C context = contextCoordinator.capture();
+    lock.lockInterruptibly();
+    try {
+      while (count == items.length) {
+        notFull.await();
+      }
+      enqueue(element, context);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+    Objects.requireNonNull(element, "element cannot be null");
+    C context = contextCoordinator.capture();
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count == items.length) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      enqueue(element, context);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public @Nullable E poll() {
+    @Nullable Object context;
+    E element;
+    lock.lock();
+    try {
+      if (count == 0) {
+        return null;
+      }
+      context = contexts[takeIndex];
+      element = dequeue();
+    } finally {
+      lock.unlock();
+    }
+    install(context);
+    return element;
+  }
+
+  @Override
+  public E take() throws InterruptedException {
+    @Nullable Object context;
+    E element;
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        notEmpty.await();
+      }
+      context = contexts[takeIndex];
+      element = dequeue();
+    } finally {
+      lock.unlock();
+    }
+    install(context);
+    return element;
+  }
+
+  @Override
+  public @Nullable E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    @Nullable Object context;
+    E element;
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      context = contexts[takeIndex];
+      element = dequeue();
+    } finally {
+      lock.unlock();
+    }
+    install(context);
+    return element;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public @Nullable E peek() {
+    lock.lock();
+    try {
+      return (E) items[takeIndex];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    lock.lock();
+    try {
+      return items.length - count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The context of each element is only installed while adding it to the collection, so the
+   * drained elements lose their contexts. Use {@link #drainTo(Consumer, int)} to process them with
+   * their contexts.
+   */
+  @Override
+  public int drainTo(Collection<? super E> collection) {
+    return drainTo(collection, Integer.MAX_VALUE);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public int drainTo(Collection<? super E> collection, int maxElements) {
+    Objects.requireNonNull(collection, "collection cannot be null");
+    if (collection == this) {
+      throw new IllegalArgumentException("queue cannot be drained to itself");
+    }
+    lock.lock();
+    try {
+      int drainCount = Math.min(maxElements, count);
+      @Nullable Object currentContext = contextCoordinator.get();
+      for (int i = 0; i < drainCount; i++) {
+        @Nullable Object context = contexts[takeIndex];
+        if (context != currentContext) {
+          contextCoordinator.set((C) context);
+          currentContext = context;
+        }
+        // An element is only removed once added, so a failing add leaves it in the queue
+        collection.add((E) items[takeIndex]);
+        dequeue();
+      }
+      return Math.max(drainCount, 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes at most the passed number of elements and runs the passed action on each of them, in
+   * order, with the context captured at the time of its insertion installed. The context is only
+   * switched when it changes between consecutive elements, and the previous context of the calling
+   * thread is restored once done.
+   *
+   * <p>Each element is removed under the lock and the action runs out of it, so the action can
+   * block or access the queue. An action throwing an exception stops the drain and leaves the
+   * remaining elements in the queue.
+   *
+   * @param action Action run on each drained element
+   * @param maxElements Maximum number of elements to drain
+   * @return Number of drained elements
+   */
+  @SuppressWarnings("unchecked")
+  public int drainTo(Consumer<? super E> action, int maxElements) {
+    Objects.requireNonNull(action, "action cannot be null");
+    C prevContext = contextCoordinator.get();
+    @Nullable Object currentContext = prevContext;
+    int drainCount = 0;
+    try {
+      while (drainCount < maxElements) {
+        @Nullable Object context;
+        E element;
+        lock.lock();
+        try {
+          if (count == 0) {
+            break;
+          }
+          context = contexts[takeIndex];
+          element = dequeue();
+        } finally {
+          lock.unlock();
+        }
+        if (context != currentContext) {
+          contextCoordinator.set((C) context);
+          currentContext = context;
+        }
+        drainCount++;
+        action.accept(element);
+      }
+      return drainCount;
+    } finally {
+      if (currentContext != prevContext) {
+        contextCoordinator.set(prevContext);
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(@Nullable Object element) {
+    if (element == null) {
+      return false;
+    }
+    lock.lock();
+    try {
+      for (int i = 0, index = takeIndex; i < count; i++, index = next(index)) {
+        if (element.equals(items[index])) {
+          removeAt(index);
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      for (int i = 0, index = takeIndex; i < count; i++, index = next(index)) {
+        items[index] = null;
+        contexts[index] = null;
+      }
+      takeIndex = putIndex;
+      count = 0;
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Iterator<E> iterator() {
+    lock.lock();
+    try {
+      List<E> snapshot = new ArrayList<>(count);
+      for (int i = 0, index = takeIndex; i < count; i++, index = next(index)) {
+        snapshot.add((E) items[index]);
+      }
+      return Collections.unmodifiableList(snapshot).iterator();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void install(@Nullable Object context) {
+    if (contextCoordinator.get() != context) {
+      contextCoordinator.set((C) context);
+    }
+  }
+
+  private int next(int index) {
+    return index + 1 == items.length ? 0 : index + 1;
+  }
+
+  private void enqueue(E element, @Nullable C context) {
+    items[putIndex] = element;
+    contexts[putIndex] = context;
+    putIndex = next(putIndex);
+    count++;
+    notEmpty.signal();
+  }
+
+  @SuppressWarnings("unchecked")
+  private E dequeue() {
+    E element = (E) items[takeIndex];
+    items[takeIndex] = null;
+    contexts[takeIndex] = null;
+    takeIndex = next(takeIndex);
+    count--;
+    notFull.signal();
+    return element;
+  }
+
+  /**
+   * Removes the element at the passed index by shifting the elements queued after it.
+   */
+  private void removeAt(int index) {
+    for (int nextIndex = next(index); nextIndex != putIndex; nextIndex = next(nextIndex)) {
+      items[index] = items[nextIndex];
+      contexts[index] = contexts[nextIndex];
+      index = nextIndex;
+    }
+    items[index] = null;
+    contexts[index] = null;
+    putIndex = index;
+    count--;
+    notFull.signal();
+  }
+}
@@ -25,4 +25,38 @@ public interface ContextCoordinator<C> {
    * @param context New context to be set in the {@link ThreadLocal}.
    */
   void set(@Nullable C context);
+
+  /**
+   * Capture the current {@link ThreadLocal} context to be set later, possibly on another thread.
+   * The Context Preserved classes call it, instead of {@link #get()}, whenever they capture the new
+   * context of a task. {@link #get()} is only used to save the previous context which is restored
+   * on the same thread.
+   *
+   * <p>The default implementation returns {@link #get()}. Coordinators of mutable contexts can
+   * override it to return a snapshot, see {@link CopyOnWriteContextCoordinator}.
+   *
+   * @return Captured {@link ThreadLocal} context
+   */
+  @Nullable
+  default C capture() {
+    return get();
+  }
+
+  /**
+   * Set the current {@link ThreadLocal} context and return the previous one, in a single
+   * operation.
+   *
+   * <p>The default implementation calls {@link #get()} then {@link #set(Object)}. Coordinators
+   * which can do both with a single {@link ThreadLocal} lookup should override it, see
+   * {@link ThreadLocalContextCoordinator}.
+   *
+   * @param newContext New context to be set in the {@link ThreadLocal}.
+   * @return Previous {@link ThreadLocal} context
+   */
+  @Nullable
+  default C swap(@Nullable C newContext) {
+    C prevContext = get();
+    set(newContext);
+    return prevContext;
+  }
 }
@@ -0,0 +1,230 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An {@link java.util.concurrent.ExecutorService} which preserves the {@link ThreadLocal} context
+ * across thread boundaries, and sheds the tasks whose context deadline expired while they were
+ * queued. It captures the new context from calling thread at the time of
+ * {@link #execute(Runnable)}, and reads the deadline of the task from it using the passed deadline
+ * extractor.
+ *
+ * <p>When a worker dequeues a task past its deadline, it does not run it, as its caller already
+ * gave up waiting for the result. The {@link ExpiryPolicy} decides whether the task is silently
+ * dropped or failed with a {@link TimeoutException}. Under overload, the workers therefore spend
+ * their time on the tasks which can still meet their deadline, instead of growing the backlog with
+ * work nobody waits for.
+ *
+ * <p>The queue is either first in first out, or ordered by earliest deadline first. The latter
+ * serves the most urgent tasks first, but lets the tasks without deadline wait as long as tasks
+ * with a deadline keep coming. Tasks with the same deadline run in submission order.
+ *
+ * <p>A task throwing a {@link RuntimeException} is reported to the uncaught exception handler of
+ * its worker thread.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextDeadlineExecutor<C>
+    extends ContextWorkerPool<C, ContextDeadlineExecutor.DeadlineTask<C>> {
+  /**
+   * Deadline returned by the deadline extractor for a context without deadline.
+   */
+  public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  private static final Comparator<DeadlineTask<?>> EARLIEST_DEADLINE_FIRST =
+      Comparator.<DeadlineTask<?>>comparingLong(task -> task.deadline)
+          .thenComparingLong(task -> task.sequence);
+
+  private final ToLongFunction<? super C> deadlineExtractor;
+  private final ExpiryPolicy expiryPolicy;
+  private final Queue<DeadlineTask<C>> tasks;
+  private final LongAdder expiredTaskCount = new LongAdder();
+  private long sequence;
+
+  private ContextDeadlineExecutor(int threads, ThreadFactory threadFactory,
+                                  ContextCoordinator<C> contextCoordinator,
+                                  ToLongFunction<? super C> deadlineExtractor,
+                                  boolean earliestDeadlineFirst, ExpiryPolicy expiryPolicy) {
+    super(threads, threadFactory, contextCoordinator);
+    this.deadlineExtractor =
+        Objects.requireNonNull(deadlineExtractor, "deadlineExtractor cannot be null");
+    this.expiryPolicy = Objects.requireNonNull(expiryPolicy, "expiryPolicy cannot be null");
+    this.tasks = earliestDeadlineFirst
+        ? new PriorityQueue<>(EARLIEST_DEADLINE_FIRST) : new ArrayDeque<>();
+  }
+
+  /**
+   * Creates a new executor using {@link Executors#defaultThreadFactory()}, with a first in first
+   * out queue, and dropping the expired tasks with {@link ExpiryPolicy#DISCARD}.
+   *
+   * @param threads Number of worker threads
+   * @param contextCoordinator Context coordinator
+   * @param deadlineExtractor Function reading the deadline from a non {@code null} captured
+   *     context, in the time base of {@link System#nanoTime()}, or {@link #NO_DEADLINE}. The tasks
+   *     with a {@code null} context have no deadline.
+   * @param <C> Type of context
+   * @return Newly created executor
+   */
+  public static <C> ContextDeadlineExecutor<C> of(int threads,
+                                                  ContextCoordinator<C> contextCoordinator,
+                                                  ToLongFunction<? super C> deadlineExtractor) {
+    return of(threads, Executors.defaultThreadFactory(), contextCoordinator, deadlineExtractor,
+        false, ExpiryPolicy.DISCARD);
+  }
+
+  /**
+   * Creates a new executor.
+   *
+   * @param threads Number of worker threads
+   * @param threadFactory Factory of the worker threads
+   * @param contextCoordinator Context coordinator
+   * @param deadlineExtractor Function reading the deadline from a non {@code null} captured
+   *     context, in the time base of {@link System#nanoTime()}, or {@link #NO_DEADLINE}. The tasks
+   *     with a {@code null} context have no deadline.
+   * @param earliestDeadlineFirst Whether the queue is ordered by earliest deadline first, instead
+   *     of first in first out
+   * @param expiryPolicy Policy applied to the tasks dequeued past their deadline
+   * @param <C> Type of context
+   * @return Newly created executor
+   */
+  public static <C> ContextDeadlineExecutor<C> of(int threads, ThreadFactory threadFactory,
+                                                  ContextCoordinator<C> contextCoordinator,
+                                                  ToLongFunction<? super C> deadlineExtractor,
+                                                  boolean earliestDeadlineFirst,
+                                                  ExpiryPolicy expiryPolicy) {
+    ContextDeadlineExecutor<C> executor = new ContextDeadlineExecutor<>(threads, threadFactory,
+        contextCoordinator, deadlineExtractor, earliestDeadlineFirst, expiryPolicy);
+    executor.start();
+    return executor;
+  }
+
+  /**
+   * Get the number of tasks shed since the creation of the executor, as they were dequeued past
+   * their deadline.
+   *
+   * @return Number of expired tasks
+   */
+  public long getExpiredTaskCount() {
+    return expiredTaskCount.sum();
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+    return new DeadlineFutureTask<>(runnable, value);
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+    return new DeadlineFutureTask<>(callable);
+  }
+
+  @Override
+  DeadlineTask<C> newTask(Runnable command, @Nullable C context) {
+    long deadline = context == null ? NO_DEADLINE : deadlineExtractor.applyAsLong(context);
+    return new DeadlineTask<>(command, context, deadline);
+  }
+
+  @Override
+  boolean enqueue(DeadlineTask<C> task) {
+    task.sequence = sequence++;
+    return tasks.add(task);
+  }
+
+  @Override
+  @Nullable DeadlineTask<C> dequeue(int worker) {
+    return tasks.poll();
+  }
+
+  @Override
+  void runTask(DeadlineTask<C> task, ContextCoordinator<C> coordinator) {
+    // The clock is only read for the tasks having a deadline
+    long lateNanos = task.deadline == NO_DEADLINE ? -1 : System.nanoTime() - task.deadline;
+    if (lateNanos >= 0) {
+      expire(task.command, lateNanos);
+    } else {
+      super.runTask(task, coordinator);
+    }
+  }
+
+  /**
+   * Sheds the passed command of a task dequeued the passed number of nanoseconds past its
+   * deadline. It never runs the command, so the context is left untouched.
+   */
+  private void expire(Runnable command, long lateNanos) {
+    expiredTaskCount.increment();
+    if (expiryPolicy == ExpiryPolicy.DISCARD) {
+      // Cancel the futures, so that their callers do not wait forever
+      if (command instanceof Future) {
+        ((Future<?>) command).cancel(false);
+      }
+      return;
+    }
+    TimeoutException e =
+        new TimeoutException("task dequeued " + lateNanos + " ns past its deadline");
+    if (command instanceof DeadlineFutureTask) {
+      ((DeadlineFutureTask<?>) command).expire(e);
+    } else {
+      reportException(e);
+    }
+  }
+
+  /**
+   * Policy applied to a task dequeued past its deadline.
+   */
+  public enum ExpiryPolicy {
+    /**
+     * Drop the task. If it is a {@link Future}, like the ones returned by {@code submit}, it is
+     * cancelled. This is the default.
+     */
+    DISCARD,
+
+    /**
+     * Fail the task with a {@link TimeoutException}. The futures returned by {@code submit} and
+     * {@code invokeAll} complete with it as cause, and for the other tasks it is reported to the
+     * uncaught exception handler of the worker thread.
+     */
+    FAIL
+  }
+
+  /**
+   * {@link FutureTask} which can be completed with the {@link TimeoutException} of its expiry.
+   */
+  private static final class DeadlineFutureTask<T> extends FutureTask<T> {
+    private DeadlineFutureTask(Callable<T> callable) {
+      super(callable);
+    }
+
+    private DeadlineFutureTask(Runnable runnable, T result) {
+      super(runnable, result);
+    }
+
+    private void expire(TimeoutException e) {
+      setException(e);
+    }
+  }
+
+  static final class DeadlineTask<C> extends Task<C> {
+    private final long deadline;
+    // Submission order among the tasks with the same deadline, assigned once queued
+    private long sequence;
+
+    private DeadlineTask(Runnable command, @Nullable C context, long deadline) {
+      super(command, context);
+      this.deadline = deadline;
+    }
+  }
+}
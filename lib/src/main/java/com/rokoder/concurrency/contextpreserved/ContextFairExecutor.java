@@ -0,0 +1,242 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An {@link java.util.concurrent.ExecutorService} which preserves the {@link ThreadLocal} context
+ * across thread boundaries, and shares its worker threads fairly between the keys of the contexts,
+ * like tenants. It captures the new context from calling thread at the time of
+ * {@link #execute(Runnable)}, derives a key from it using the passed key function, and queues the
+ * task on the sub-queue of the key.
+ *
+ * <p>The workers dispatch the sub-queues with weighted deficit round-robin. Every task costs one
+ * unit, so the sub-queue of a key with weight {@code w} gets {@code w} tasks dispatched per round,
+ * then goes to the back of the round. A key flooding the executor therefore only delays the other
+ * keys by the tasks it gets in one round, instead of by its whole backlog with a FIFO queue. The
+ * tasks of one key are dispatched in submission order, though they can run in parallel on several
+ * workers, which install the context of a task only when it differs from the one of the previous
+ * task.
+ *
+ * <p>The number of queued tasks per key is bounded, and the {@link RejectionPolicy} decides what
+ * happens to a task submitted while the sub-queue of its key is full. The other keys are not
+ * affected. A task throwing a {@link RuntimeException} is reported to the uncaught exception
+ * handler of its worker thread.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextFairExecutor<C>
+    extends ContextWorkerPool<C, ContextFairExecutor.KeyedTask<C>> {
+  private final Function<? super C, ?> keyFunction;
+  private final ToIntFunction<@Nullable Object> weightFunction;
+  private final int maxQueuedPerKey;
+  private final RejectionPolicy rejectionPolicy;
+  // Sub-queues which have queued tasks, in round-robin order, and their index by key. A sub-queue
+  // is dropped as soon as it is empty, so idle keys do not accumulate.
+  private final ArrayDeque<KeyQueue<C>> activeQueues = new ArrayDeque<>();
+  private final Map<@Nullable Object, KeyQueue<C>> queuesByKey = new HashMap<>();
+
+  private ContextFairExecutor(int threads, ThreadFactory threadFactory,
+                              ContextCoordinator<C> contextCoordinator,
+                              Function<? super C, ?> keyFunction,
+                              ToIntFunction<@Nullable Object> weightFunction, int maxQueuedPerKey,
+                              RejectionPolicy rejectionPolicy) {
+    super(threads, threadFactory, contextCoordinator);
+    if (maxQueuedPerKey < 1) {
+      throw new IllegalArgumentException("maxQueuedPerKey must be positive: " + maxQueuedPerKey);
+    }
+    this.keyFunction = Objects.requireNonNull(keyFunction, "keyFunction cannot be null");
+    this.weightFunction = Objects.requireNonNull(weightFunction, "weightFunction cannot be null");
+    this.maxQueuedPerKey = maxQueuedPerKey;
+    this.rejectionPolicy =
+        Objects.requireNonNull(rejectionPolicy, "rejectionPolicy cannot be null");
+  }
+
+  /**
+   * Creates a new executor using {@link Executors#defaultThreadFactory()}, where all the keys have
+   * the same weight, and the number of queued tasks per key is unbounded.
+   *
+   * @param threads Number of worker threads
+   * @param contextCoordinator Context coordinator
+   * @param keyFunction Function deriving the key from a non {@code null} captured context. The
+   *     tasks with a {@code null} context use the {@code null} key.
+   * @param <C> Type of context
+   * @return Newly created executor
+   */
+  public static <C> ContextFairExecutor<C> of(int threads,
+                                              ContextCoordinator<C> contextCoordinator,
+                                              Function<? super C, ?> keyFunction) {
+    return of(threads, Executors.defaultThreadFactory(), contextCoordinator, keyFunction,
+        key -> 1, Integer.MAX_VALUE, RejectionPolicy.ABORT);
+  }
+
+  /**
+   * Creates a new executor.
+   *
+   * @param threads Number of worker threads
+   * @param threadFactory Factory of the worker threads
+   * @param contextCoordinator Context coordinator
+   * @param keyFunction Function deriving the key from a non {@code null} captured context. The
+   *     tasks with a {@code null} context use the {@code null} key.
+   * @param weightFunction Function giving the positive weight of a key, which is the number of its
+   *     tasks dispatched per round. It is called when the key gets queued tasks again after being
+   *     idle.
+   * @param maxQueuedPerKey Maximum number of queued tasks per key, not counting the running ones
+   * @param rejectionPolicy Policy applied to the tasks submitted while the queue of their key is
+   *     full
+   * @param <C> Type of context
+   * @return Newly created executor
+   */
+  public static <C> ContextFairExecutor<C> of(int threads, ThreadFactory threadFactory,
+                                              ContextCoordinator<C> contextCoordinator,
+                                              Function<? super C, ?> keyFunction,
+                                              ToIntFunction<@Nullable Object> weightFunction,
+                                              int maxQueuedPerKey,
+                                              RejectionPolicy rejectionPolicy) {
+    ContextFairExecutor<C> executor = new ContextFairExecutor<>(threads, threadFactory,
+        contextCoordinator, keyFunction, weightFunction, maxQueuedPerKey, rejectionPolicy);
+    executor.start();
+    return executor;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws RejectedExecutionException If the executor is shut down, or if the queue of the key of
+   *     the task is full with the {@link RejectionPolicy#ABORT} policy
+   */
+  @Override
+  public void execute(Runnable command) {
+    super.execute(command);
+  }
+
+  /**
+   * Get the number of queued tasks of the passed key, not counting the running ones.
+   *
+   * @param key Key of the tasks
+   * @return Number of queued tasks
+   */
+  public int getQueuedTaskCount(@Nullable Object key) {
+    lock.lock();
+    try {
+      KeyQueue<C> queue = queuesByKey.get(key);
+      return queue == null ? 0 : queue.tasks.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  KeyedTask<C> newTask(Runnable command, @Nullable C context) {
+    return new KeyedTask<>(command, context, context == null ? null : keyFunction.apply(context));
+  }
+
+  @Override
+  boolean enqueue(KeyedTask<C> task) {
+    KeyQueue<C> queue = queuesByKey.get(task.key);
+    if (queue == null) {
+      int weight = weightFunction.applyAsInt(task.key);
+      if (weight < 1) {
+        throw new IllegalArgumentException("weight must be positive: " + weight);
+      }
+      queue = new KeyQueue<>(task.key, weight);
+      queuesByKey.put(task.key, queue);
+      activeQueues.addLast(queue);
+    } else if (queue.tasks.size() >= maxQueuedPerKey) {
+      if (rejectionPolicy != RejectionPolicy.DISCARD_OLDEST) {
+        return false;
+      }
+      queue.tasks.pollFirst();
+    }
+    queue.tasks.addLast(task);
+    return true;
+  }
+
+  /**
+   * Dequeues the next task in deficit round-robin order.
+   */
+  @Override
+  @Nullable KeyedTask<C> dequeue(int worker) {
+    KeyQueue<C> queue = activeQueues.peekFirst();
+    if (queue == null) {
+      return null;
+    }
+    if (queue.deficit == 0) {
+      queue.deficit = queue.weight;
+    }
+    KeyedTask<C> task = queue.tasks.pollFirst();
+    queue.deficit--;
+    if (queue.tasks.isEmpty()) {
+      activeQueues.pollFirst();
+      queuesByKey.remove(queue.key);
+    } else if (queue.deficit == 0) {
+      activeQueues.addLast(activeQueues.pollFirst());
+    }
+    return task;
+  }
+
+  @Override
+  void rejected(KeyedTask<C> task) {
+    if (rejectionPolicy == RejectionPolicy.ABORT) {
+      super.rejected(task);
+    } else if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+      task.command.run();
+    }
+  }
+
+  /**
+   * Policy applied to a task submitted while the queue of its key is full. The policies mirror the
+   * handlers of {@link java.util.concurrent.ThreadPoolExecutor}, scoped to the key.
+   */
+  public enum RejectionPolicy {
+    /**
+     * Throw a {@link RejectedExecutionException}. This is the default.
+     */
+    ABORT,
+
+    /**
+     * Run the task on the calling thread, which already holds its context. It slows down the
+     * submitter of the flooding key.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Silently drop the task.
+     */
+    DISCARD,
+
+    /**
+     * Drop the oldest queued task of the key, and queue the task.
+     */
+    DISCARD_OLDEST
+  }
+
+  static final class KeyedTask<C> extends Task<C> {
+    private final @Nullable Object key;
+
+    private KeyedTask(Runnable command, @Nullable C context, @Nullable Object key) {
+      super(command, context);
+      this.key = key;
+    }
+  }
+
+  private static final class KeyQueue<C> {
+    private final @Nullable Object key;
+    private final int weight;
+    private final ArrayDeque<KeyedTask<C>> tasks = new ArrayDeque<>();
+    private int deficit;
+
+    private KeyQueue(@Nullable Object key, int weight) {
+      this.key = key;
+      this.weight = weight;
+    }
+  }
+}
@@ -0,0 +1,406 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable map of {@link String} keys to {@link String} values to be used as a {@link ThreadLocal}
+ * context, see {@link ContextMapCoordinator}. It is backed by a hash array mapped trie, so
+ * {@link #put(String, String)} and {@link #remove(String)} return a new map which shares all the
+ * unchanged nodes with this one, in O(log32 n) time and space.
+ *
+ * <p>Being immutable, capturing it for another thread is a reference copy regardless of its size,
+ * and an update which does not change the map returns the same instance, which lets the Context
+ * Preserved classes skip the transition when the running thread already holds it.
+ */
+public final class ContextMap {
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  private static final ContextMap EMPTY = new ContextMap(BitmapNode.EMPTY, 0, 0);
+
+  private final Node root;
+  private final int size;
+  private final int hashCode;
+
+  private ContextMap(Node root, int size, int hashCode) {
+    this.root = root;
+    this.size = size;
+    this.hashCode = hashCode;
+  }
+
+  /**
+   * Get the empty map.
+   *
+   * @return Empty map
+   */
+  public static ContextMap empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates a new map with the entries of the passed map.
+   *
+   * @param map Map to copy
+   * @return Newly created map
+   */
+  public static ContextMap of(Map<String, String> map) {
+    Objects.requireNonNull(map, "map cannot be null");
+    ContextMap contextMap = EMPTY;
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      contextMap = contextMap.put(entry.getKey(), entry.getValue());
+    }
+    return contextMap;
+  }
+
+  /**
+   * Get the value of the passed key.
+   *
+   * @param key Key to look up
+   * @return Value of the key, or {@code null} if the map does not contain the key
+   */
+  @Nullable
+  public String get(String key) {
+    Objects.requireNonNull(key, "key cannot be null");
+    return root.get(key, key.hashCode(), 0);
+  }
+
+  /**
+   * Check if the map contains the passed key.
+   *
+   * @param key Key to look up
+   * @return {@code true} if the map contains the key
+   */
+  public boolean containsKey(String key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Get a map with the passed entry added, or replaced if the key is already present.
+   *
+   * @param key Key of the entry
+   * @param value Value of the entry
+   * @return New map sharing the unchanged nodes with this one, or this map if it already contains
+   *     the same entry
+   */
+  public ContextMap put(String key, String value) {
+    Objects.requireNonNull(value, "value cannot be null");
+    String prevValue = get(key);
+    if (value.equals(prevValue)) {
+      return this;
+    }
+    int hash = key.hashCode();
+    Node newRoot = root.put(key, hash, value, 0);
+    if (prevValue == null) {
+      return new ContextMap(newRoot, size + 1, hashCode + (hash ^ value.hashCode()));
+    }
+    return new ContextMap(newRoot, size,
+        hashCode - (hash ^ prevValue.hashCode()) + (hash ^ value.hashCode()));
+  }
+
+  /**
+   * Get a map with the entry of the passed key removed.
+   *
+   * @param key Key of the entry
+   * @return New map sharing the unchanged nodes with this one, or this map if it does not contain
+   *     the key
+   */
+  public ContextMap remove(String key) {
+    String prevValue = get(key);
+    if (prevValue == null) {
+      return this;
+    }
+    if (size == 1) {
+      return EMPTY;
+    }
+    int hash = key.hashCode();
+    return new ContextMap(root.remove(key, hash, 0), size - 1,
+        hashCode - (hash ^ prevValue.hashCode()));
+  }
+
+  /**
+   * Get the number of entries in the map.
+   *
+   * @return Number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Check if the map has no entries.
+   *
+   * @return {@code true} if the map has no entries
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Performs the passed action for each entry of the map, in no particular order.
+   *
+   * @param action Action to perform
+   */
+  public void forEach(BiConsumer<String, String> action) {
+    Objects.requireNonNull(action, "action cannot be null");
+    root.forEach(action);
+  }
+
+  /**
+   * Copy the entries of the map into a new mutable {@link Map}.
+   *
+   * @return Newly created {@link Map}
+   */
+  public Map<String, String> toMap() {
+    Map<String, String> map = new HashMap<>();
+    root.forEach(map::put);
+    return map;
+  }
+
+  /**
+   * Compares the entries of the maps. Maps of different size or hash code are rejected without
+   * looking at the entries.
+   *
+   * @param obj Object to compare with
+   * @return {@code true} if the passed object is a {@link ContextMap} with the same entries
+   */
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ContextMap)) {
+      return false;
+    }
+    ContextMap other = (ContextMap) obj;
+    if (size != other.size || hashCode != other.hashCode) {
+      return false;
+    }
+    boolean[] equal = {true};
+    root.forEach((key, value) -> equal[0] &= value.equals(other.get(key)));
+    return equal[0];
+  }
+
+  /**
+   * Get the hash code, which is computed as for {@link Map#hashCode()} and maintained by the
+   * updates.
+   *
+   * @return Hash code of the map
+   */
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return toMap().toString();
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  /**
+   * Node of the trie. {@link #remove(String, int, int)} is only called with a key contained by the
+   * node.
+   */
+  private abstract static class Node {
+    @Nullable
+    abstract String get(String key, int hash, int shift);
+
+    abstract Node put(String key, int hash, String value, int shift);
+
+    abstract Node remove(String key, int hash, int shift);
+
+    abstract void forEach(BiConsumer<String, String> action);
+  }
+
+  private static final class Entry {
+    private final String key;
+    private final String value;
+
+    private Entry(String key, String value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Node holding one slot per set bit of the bitmap, each slot is either an {@link Entry} or a
+   * child {@link Node} for the keys sharing the same hash bits up to this level.
+   */
+  private static final class BitmapNode extends Node {
+    private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    private final int bitmap;
+    private final Object[] slots;
+
+    private BitmapNode(int bitmap, Object[] slots) {
+      this.bitmap = bitmap;
+      this.slots = slots;
+    }
+
+    @Nullable
+    @Override
+    String get(String key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+      Object slot = slots[index(bit)];
+      if (slot instanceof Node) {
+        return ((Node) slot).get(key, hash, shift + BITS);
+      }
+      Entry entry = (Entry) slot;
+      return key.equals(entry.key) ? entry.value : null;
+    }
+
+    @Override
+    Node put(String key, int hash, String value, int shift) {
+      int bit = bit(hash, shift);
+      int index = index(bit);
+      if ((bitmap & bit) == 0) {
+        Object[] newSlots = new Object[slots.length + 1];
+        System.arraycopy(slots, 0, newSlots, 0, index);
+        newSlots[index] = new Entry(key, value);
+        System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+        return new BitmapNode(bitmap | bit, newSlots);
+      }
+      Object slot = slots[index];
+      Object newSlot;
+      if (slot instanceof Node) {
+        newSlot = ((Node) slot).put(key, hash, value, shift + BITS);
+      } else if (key.equals(((Entry) slot).key)) {
+        newSlot = new Entry(key, value);
+      } else {
+        newSlot = merge((Entry) slot, new Entry(key, value), hash, shift + BITS);
+      }
+      Object[] newSlots = slots.clone();
+      newSlots[index] = newSlot;
+      return new BitmapNode(bitmap, newSlots);
+    }
+
+    @Override
+    Node remove(String key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      int index = index(bit);
+      Object slot = slots[index];
+      if (slot instanceof Node) {
+        Node newChild = ((Node) slot).remove(key, hash, shift + BITS);
+        if (newChild != EMPTY) {
+          Object[] newSlots = slots.clone();
+          newSlots[index] = newChild;
+          return new BitmapNode(bitmap, newSlots);
+        }
+      }
+      if (bitmap == bit) {
+        return EMPTY;
+      }
+      Object[] newSlots = new Object[slots.length - 1];
+      System.arraycopy(slots, 0, newSlots, 0, index);
+      System.arraycopy(slots, index + 1, newSlots, index, newSlots.length - index);
+      return new BitmapNode(bitmap ^ bit, newSlots);
+    }
+
+    @Override
+    void forEach(BiConsumer<String, String> action) {
+      for (Object slot : slots) {
+        if (slot instanceof Node) {
+          ((Node) slot).forEach(action);
+        } else {
+          Entry entry = (Entry) slot;
+          action.accept(entry.key, entry.value);
+        }
+      }
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static Node merge(Entry entry1, Entry entry2, int hash2, int shift) {
+      int hash1 = entry1.key.hashCode();
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Entry[] {entry1, entry2});
+      }
+      return EMPTY.put(entry1.key, hash1, entry1.value, shift)
+          .put(entry2.key, hash2, entry2.value, shift);
+    }
+  }
+
+  /**
+   * Node holding the entries whose keys have the same full hash.
+   */
+  private static final class CollisionNode extends Node {
+    private final int hash;
+    private final Entry[] entries;
+
+    private CollisionNode(int hash, Entry[] entries) {
+      this.hash = hash;
+      this.entries = entries;
+    }
+
+    @Nullable
+    @Override
+    String get(String key, int hash, int shift) {
+      if (this.hash == hash) {
+        for (Entry entry : entries) {
+          if (key.equals(entry.key)) {
+            return entry.value;
+          }
+        }
+      }
+      return null;
+    }
+
+    @Override
+    Node put(String key, int hash, String value, int shift) {
+      if (this.hash != hash) {
+        return new BitmapNode(bit(this.hash, shift), new Object[] {this})
+            .put(key, hash, value, shift);
+      }
+      Entry[] newEntries;
+      int index = indexOf(key);
+      if (index < 0) {
+        newEntries = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, newEntries, 0, entries.length);
+        index = entries.length;
+      } else {
+        newEntries = entries.clone();
+      }
+      newEntries[index] = new Entry(key, value);
+      return new CollisionNode(hash, newEntries);
+    }
+
+    @Override
+    Node remove(String key, int hash, int shift) {
+      if (entries.length == 1) {
+        return BitmapNode.EMPTY;
+      }
+      int index = indexOf(key);
+      Entry[] newEntries = new Entry[entries.length - 1];
+      System.arraycopy(entries, 0, newEntries, 0, index);
+      System.arraycopy(entries, index + 1, newEntries, index, newEntries.length - index);
+      return new CollisionNode(hash, newEntries);
+    }
+
+    @Override
+    void forEach(BiConsumer<String, String> action) {
+      for (Entry entry : entries) {
+        action.accept(entry.key, entry.value);
+      }
+    }
+
+    private int indexOf(String key) {
+      for (int i = 0; i < entries.length; i++) {
+        if (key.equals(entries[i].key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+}
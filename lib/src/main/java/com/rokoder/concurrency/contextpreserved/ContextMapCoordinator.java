@@ -0,0 +1,74 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link ContextCoordinator} for a {@link ThreadLocal} {@link ContextMap}. As the map is immutable,
+ * capturing it is a reference copy, and the updates of the current thread replace the map instead
+ * of mutating the captured one.
+ *
+ * <p>A thread without a context holds {@link ContextMap#empty()}, so {@link #get()} never returns
+ * {@code null}, and setting a {@code null} or empty map clears the {@link ThreadLocal}.
+ */
+public final class ContextMapCoordinator implements ContextCoordinator<ContextMap> {
+  private final ThreadLocal<ContextMap> threadLocal = new ThreadLocal<>();
+
+  private ContextMapCoordinator() {
+  }
+
+  /**
+   * Creates a new {@link ContextMapCoordinator} with its own {@link ThreadLocal}.
+   *
+   * @return Newly created {@link ContextMapCoordinator}
+   */
+  public static ContextMapCoordinator create() {
+    return new ContextMapCoordinator();
+  }
+
+  @Override
+  public ContextMap get() {
+    ContextMap contextMap = threadLocal.get();
+    return contextMap == null ? ContextMap.empty() : contextMap;
+  }
+
+  @Override
+  public void set(@Nullable ContextMap context) {
+    if (context == null || context.isEmpty()) {
+      threadLocal.remove();
+    } else {
+      threadLocal.set(context);
+    }
+  }
+
+  /**
+   * Get the value of the passed key in the context of the current thread.
+   *
+   * @param key Key to look up
+   * @return Value of the key, or {@code null} if the context does not contain the key
+   */
+  @Nullable
+  public String getValue(String key) {
+    return get().get(key);
+  }
+
+  /**
+   * Put the passed entry in the context of the current thread. The contexts captured before are
+   * not affected.
+   *
+   * @param key Key of the entry
+   * @param value Value of the entry
+   */
+  public void putValue(String key, String value) {
+    set(get().put(key, value));
+  }
+
+  /**
+   * Remove the entry of the passed key from the context of the current thread. The contexts
+   * captured before are not affected.
+   *
+   * @param key Key of the entry
+   */
+  public void removeValue(String key) {
+    set(get().remove(key));
+  }
+}
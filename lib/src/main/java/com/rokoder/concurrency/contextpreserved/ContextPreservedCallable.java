@@ -7,6 +7,11 @@ import javax.annotation.Nullable;
 /**
  * {@link Callable} which preserves the {@link ThreadLocal} context across thread boundaries.
  *
+ * <p>Wrapping a {@link ContextPreservedCallable} again with the same {@link ContextCoordinator}
+ * and the same context instance drops the inner decorator, so the task pays for a single context
+ * transition. With a different context both decorators are kept, and the inner context wins while
+ * the task runs.
+ *
  * @param <C> Type of context
  * @param <V> the result type of method {@link Callable#call()}
  */
@@ -15,13 +20,18 @@ public final class ContextPreservedCallable<C, V> implements Callable<V> {
   private final ContextCoordinator<C> contextCoordinator;
   @Nullable
   private final C newContext;
+  private final ContextTransitionPolicy transitionPolicy;
 
   private ContextPreservedCallable(Callable<V> delegate, ContextCoordinator<C> contextCoordinator,
-                                   @Nullable C newContext) {
-    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+                                   @Nullable C newContext,
+                                   ContextTransitionPolicy transitionPolicy) {
     this.contextCoordinator =
         Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.delegate = flatten(Objects.requireNonNull(delegate, "delegate cannot be null"),
+        contextCoordinator, newContext);
     this.newContext = newContext;
+    this.transitionPolicy =
+        Objects.requireNonNull(transitionPolicy, "transitionPolicy cannot be null");
   }
 
   /**
@@ -30,6 +40,10 @@ public final class ContextPreservedCallable<C, V> implements Callable<V> {
    * is captured, using passed {@link ContextCoordinator}, at the time of call to this api from the
    * thread that calls it.
    *
+   * <p>A passed {@link ContextPreservedCallable} with the same coordinator and context instance is
+   * unwrapped first, so the task is decorated once. A passed one with a different context keeps
+   * both wrappers, and the task runs with the inner context.
+   *
    * @param callable Callable to be decorated
    * @param contextCoordinator Context coordinator
    * @param <C> Type of context
@@ -38,7 +52,8 @@ public final class ContextPreservedCallable<C, V> implements Callable<V> {
    */
   public static <C, V> Callable<V> wrap(Callable<V> callable,
                                         ContextCoordinator<C> contextCoordinator) {
-    return new ContextPreservedCallable<>(callable, contextCoordinator, contextCoordinator.get());
+    return new ContextPreservedCallable<>(callable, contextCoordinator,
+        contextCoordinator.capture(), ContextTransitionPolicy.ALWAYS);
   }
 
   /**
@@ -46,6 +61,10 @@ public final class ContextPreservedCallable<C, V> implements Callable<V> {
    * context across thread boundaries using passed {@link ContextCoordinator}. The new context used
    * is one passed.
    *
+   * <p>A passed {@link ContextPreservedCallable} with the same coordinator and context instance is
+   * unwrapped first, so the task is decorated once. A passed one with a different context keeps
+   * both wrappers, and the task runs with the inner context.
+   *
    * @param callable Callable to be decorated
    * @param contextCoordinator Context coordinator
    * @param newContext New context to preserve
@@ -56,17 +75,78 @@ public final class ContextPreservedCallable<C, V> implements Callable<V> {
   public static <C, V> Callable<V> wrap(Callable<V> callable,
                                         ContextCoordinator<C> contextCoordinator,
                                         @Nullable C newContext) {
-    return new ContextPreservedCallable<>(callable, contextCoordinator, newContext);
+    return new ContextPreservedCallable<>(callable, contextCoordinator, newContext,
+        ContextTransitionPolicy.ALWAYS);
+  }
+
+  /**
+   * Decorates the passed {@link Callable} with a new one which preserves the {@link ThreadLocal}
+   * context across thread boundaries using passed {@link ContextCoordinator}. The new context used
+   * is one passed. The passed {@link ContextTransitionPolicy} decides when the set and restore of
+   * the context can be skipped.
+   *
+   * <p>A passed {@link ContextPreservedCallable} with the same coordinator and context instance is
+   * unwrapped first, so the task is decorated once. A passed one with a different context keeps
+   * both wrappers, and the task runs with the inner context.
+   *
+   * @param callable Callable to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param <C> Type of context
+   * @param <V> Result type of method {@link Callable#call()}
+   * @return Newly created wrapped {@link Callable}, or passed {@link Callable} if the policy skips
+   *     wrapping for the new context
+   */
+  public static <C, V> Callable<V> wrap(Callable<V> callable,
+                                        ContextCoordinator<C> contextCoordinator,
+                                        @Nullable C newContext,
+                                        ContextTransitionPolicy transitionPolicy) {
+    Objects.requireNonNull(transitionPolicy, "transitionPolicy cannot be null");
+    if (transitionPolicy.elidesWrap(newContext)) {
+      return Objects.requireNonNull(callable, "delegate cannot be null");
+    }
+    return new ContextPreservedCallable<>(callable, contextCoordinator, newContext,
+        transitionPolicy);
+  }
+
+  /**
+   * Get the delegate of passed {@link Callable} if it is a {@link ContextPreservedCallable} which
+   * installs the same context with the same coordinator, as the inner transition is a no-op then.
+   */
+  private static <V> Callable<V> flatten(Callable<V> callable,
+                                         ContextCoordinator<?> contextCoordinator,
+                                         @Nullable Object newContext) {
+    if (callable instanceof ContextPreservedCallable) {
+      ContextPreservedCallable<?, V> wrapped = (ContextPreservedCallable<?, V>) callable;
+      if (wrapped.contextCoordinator == contextCoordinator && wrapped.newContext == newContext) {
+        return wrapped.delegate;
+      }
+    }
+    return callable;
   }
 
   @Override
   public V call() throws Exception {
-    C prevContext = contextCoordinator.get();
+    ContextCoordinator<C> coordinator = ThreadLocalContextCoordinator.bind(contextCoordinator);
+    if (transitionPolicy.installsOnly()) {
+      coordinator.set(newContext);
+      return delegate.call();
+    }
+    C prevContext;
+    if (transitionPolicy.elidesIdentical()) {
+      prevContext = coordinator.get();
+      if (prevContext == newContext) {
+        return delegate.call();
+      }
+      coordinator.set(newContext);
+    } else {
+      prevContext = coordinator.swap(newContext);
+    }
     try {
-      contextCoordinator.set(newContext);
       return delegate.call();
     } finally {
-      contextCoordinator.set(prevContext);
+      coordinator.set(prevContext);
     }
   }
 }
@@ -0,0 +1,501 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Factory of {@link CompletableFuture} async stages which preserve the {@link ThreadLocal} context
+ * across thread boundaries. Every async stage created through it runs with the context captured,
+ * using passed {@link ContextCoordinator}, at the time the stage is created. This includes the
+ * stages which do not pass an {@link Executor} and run on the default executor of this factory.
+ *
+ * <p>Every call captures the context once and binds it to the {@link Executor} of the stage. The
+ * stages chained directly on the returned futures, like {@code future.thenApplyAsync(fn)}, do not
+ * go through this factory and run with whatever context their thread holds. Chain them through
+ * this factory instead, like {@code factory.thenApplyAsync(future, fn)}, or pass them
+ * {@link #currentExecutor()}.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextPreservedCompletableFuture<C> {
+  private final ContextCoordinator<C> contextCoordinator;
+  private final Executor defaultExecutor;
+
+  private ContextPreservedCompletableFuture(ContextCoordinator<C> contextCoordinator,
+                                            Executor defaultExecutor) {
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.defaultExecutor =
+        Objects.requireNonNull(defaultExecutor, "defaultExecutor cannot be null");
+  }
+
+  /**
+   * Creates a new factory which runs the async stages, which do not pass an {@link Executor}, on
+   * {@link ForkJoinPool#commonPool()} like {@link CompletableFuture} does.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created factory
+   */
+  public static <C> ContextPreservedCompletableFuture<C> of(
+      ContextCoordinator<C> contextCoordinator) {
+    return new ContextPreservedCompletableFuture<>(contextCoordinator, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a new factory which runs the async stages, which do not pass an {@link Executor}, on
+   * passed default executor.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param defaultExecutor Executor used by the stages which do not pass one
+   * @param <C> Type of context
+   * @return Newly created factory
+   */
+  public static <C> ContextPreservedCompletableFuture<C> of(
+      ContextCoordinator<C> contextCoordinator, Executor defaultExecutor) {
+    return new ContextPreservedCompletableFuture<>(contextCoordinator, defaultExecutor);
+  }
+
+  /**
+   * Get an {@link Executor} which runs all the tasks on the default executor with the context
+   * captured at the time of this call. It can be passed to any {@link CompletableFuture} api.
+   *
+   * @return Executor bound to the current context
+   */
+  public Executor currentExecutor() {
+    return bind(defaultExecutor);
+  }
+
+  /**
+   * Context preserved version of {@link CompletableFuture#supplyAsync(Supplier)}.
+   *
+   * @param supplier Function returning the value used to complete the returned future
+   * @param <U> Type of the result
+   * @return New future
+   */
+  public <U> CompletableFuture<U> supplyAsync(Supplier<U> supplier) {
+    return CompletableFuture.supplyAsync(supplier, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletableFuture#supplyAsync(Supplier, Executor)}.
+   *
+   * @param supplier Function returning the value used to complete the returned future
+   * @param executor Executor to use for asynchronous execution
+   * @param <U> Type of the result
+   * @return New future
+   */
+  public <U> CompletableFuture<U> supplyAsync(Supplier<U> supplier, Executor executor) {
+    return CompletableFuture.supplyAsync(supplier, bind(executor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletableFuture#runAsync(Runnable)}.
+   *
+   * @param runnable Action to run before completing the returned future
+   * @return New future
+   */
+  public CompletableFuture<Void> runAsync(Runnable runnable) {
+    return CompletableFuture.runAsync(runnable, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletableFuture#runAsync(Runnable, Executor)}.
+   *
+   * @param runnable Action to run before completing the returned future
+   * @param executor Executor to use for asynchronous execution
+   * @return New future
+   */
+  public CompletableFuture<Void> runAsync(Runnable runnable, Executor executor) {
+    return CompletableFuture.runAsync(runnable, bind(executor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#thenApplyAsync(Function)}.
+   *
+   * @param stage Stage to chain to
+   * @param fn Function to use to compute the value of the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<U> thenApplyAsync(CompletionStage<T> stage,
+                                                    Function<? super T, ? extends U> fn) {
+    return stage.toCompletableFuture().thenApplyAsync(fn, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#thenApplyAsync(Function, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param fn Function to use to compute the value of the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<U> thenApplyAsync(CompletionStage<T> stage,
+                                                    Function<? super T, ? extends U> fn,
+                                                    Executor executor) {
+    return stage.toCompletableFuture().thenApplyAsync(fn, bind(executor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#thenAcceptAsync(Consumer)}.
+   *
+   * @param stage Stage to chain to
+   * @param action Action to perform before completing the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> thenAcceptAsync(CompletionStage<T> stage,
+                                                     Consumer<? super T> action) {
+    return stage.toCompletableFuture().thenAcceptAsync(action, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#thenAcceptAsync(Consumer, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param action Action to perform before completing the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> thenAcceptAsync(CompletionStage<T> stage,
+                                                     Consumer<? super T> action,
+                                                     Executor executor) {
+    return stage.toCompletableFuture().thenAcceptAsync(action, bind(executor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#thenRunAsync(Runnable)}.
+   *
+   * @param stage Stage to chain to
+   * @param action Action to perform before completing the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> thenRunAsync(CompletionStage<T> stage, Runnable action) {
+    return stage.toCompletableFuture().thenRunAsync(action, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#thenRunAsync(Runnable, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param action Action to perform before completing the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> thenRunAsync(CompletionStage<T> stage, Runnable action,
+                                                  Executor executor) {
+    return stage.toCompletableFuture().thenRunAsync(action, bind(executor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#thenCombineAsync(CompletionStage, BiFunction)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param fn Function to use to compute the value of the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the other stage
+   * @param <V> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U, V> CompletableFuture<V> thenCombineAsync(
+      CompletionStage<T> stage, CompletionStage<? extends U> other,
+      BiFunction<? super T, ? super U, ? extends V> fn) {
+    return stage.toCompletableFuture().thenCombineAsync(other, fn, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#thenCombineAsync(CompletionStage, BiFunction, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param fn Function to use to compute the value of the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the other stage
+   * @param <V> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U, V> CompletableFuture<V> thenCombineAsync(
+      CompletionStage<T> stage, CompletionStage<? extends U> other,
+      BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
+    return stage.toCompletableFuture().thenCombineAsync(other, fn, bind(executor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#thenAcceptBothAsync(CompletionStage, BiConsumer)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param action Action to perform before completing the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the other stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<Void> thenAcceptBothAsync(
+      CompletionStage<T> stage, CompletionStage<? extends U> other,
+      BiConsumer<? super T, ? super U> action) {
+    return stage.toCompletableFuture().thenAcceptBothAsync(other, action, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#thenAcceptBothAsync(CompletionStage, BiConsumer, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param action Action to perform before completing the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the other stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<Void> thenAcceptBothAsync(
+      CompletionStage<T> stage, CompletionStage<? extends U> other,
+      BiConsumer<? super T, ? super U> action, Executor executor) {
+    return stage.toCompletableFuture().thenAcceptBothAsync(other, action, bind(executor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#runAfterBothAsync(CompletionStage, Runnable)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param action Action to perform before completing the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> runAfterBothAsync(
+      CompletionStage<T> stage, CompletionStage<?> other, Runnable action) {
+    return stage.toCompletableFuture().runAfterBothAsync(other, action, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#runAfterBothAsync(CompletionStage, Runnable, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param action Action to perform before completing the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> runAfterBothAsync(
+      CompletionStage<T> stage, CompletionStage<?> other, Runnable action, Executor executor) {
+    return stage.toCompletableFuture().runAfterBothAsync(other, action, bind(executor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#applyToEitherAsync(CompletionStage, Function)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param fn Function to use to compute the value of the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<U> applyToEitherAsync(
+      CompletionStage<T> stage, CompletionStage<? extends T> other, Function<? super T, U> fn) {
+    return stage.toCompletableFuture().applyToEitherAsync(other, fn, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#applyToEitherAsync(CompletionStage, Function, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param fn Function to use to compute the value of the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<U> applyToEitherAsync(
+      CompletionStage<T> stage, CompletionStage<? extends T> other, Function<? super T, U> fn,
+      Executor executor) {
+    return stage.toCompletableFuture().applyToEitherAsync(other, fn, bind(executor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#acceptEitherAsync(CompletionStage, Consumer)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param action Action to perform before completing the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> acceptEitherAsync(
+      CompletionStage<T> stage, CompletionStage<? extends T> other, Consumer<? super T> action) {
+    return stage.toCompletableFuture().acceptEitherAsync(other, action, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#acceptEitherAsync(CompletionStage, Consumer, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param action Action to perform before completing the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> acceptEitherAsync(
+      CompletionStage<T> stage, CompletionStage<? extends T> other, Consumer<? super T> action,
+      Executor executor) {
+    return stage.toCompletableFuture().acceptEitherAsync(other, action, bind(executor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#runAfterEitherAsync(CompletionStage, Runnable)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param action Action to perform before completing the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> runAfterEitherAsync(
+      CompletionStage<T> stage, CompletionStage<?> other, Runnable action) {
+    return stage.toCompletableFuture().runAfterEitherAsync(other, action, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of
+   * {@link CompletionStage#runAfterEitherAsync(CompletionStage, Runnable, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param other Other stage
+   * @param action Action to perform before completing the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<Void> runAfterEitherAsync(
+      CompletionStage<T> stage, CompletionStage<?> other, Runnable action, Executor executor) {
+    return stage.toCompletableFuture().runAfterEitherAsync(other, action, bind(executor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#thenComposeAsync(Function)}.
+   *
+   * @param stage Stage to chain to
+   * @param fn Function returning a new stage
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<U> thenComposeAsync(
+      CompletionStage<T> stage, Function<? super T, ? extends CompletionStage<U>> fn) {
+    return stage.toCompletableFuture().thenComposeAsync(fn, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#thenComposeAsync(Function, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param fn Function returning a new stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<U> thenComposeAsync(
+      CompletionStage<T> stage, Function<? super T, ? extends CompletionStage<U>> fn,
+      Executor executor) {
+    return stage.toCompletableFuture().thenComposeAsync(fn, bind(executor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#handleAsync(BiFunction)}.
+   *
+   * @param stage Stage to chain to
+   * @param fn Function to use to compute the value of the returned stage
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<U> handleAsync(
+      CompletionStage<T> stage, BiFunction<? super T, Throwable, ? extends U> fn) {
+    return stage.toCompletableFuture().handleAsync(fn, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#handleAsync(BiFunction, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param fn Function to use to compute the value of the returned stage
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @param <U> Type of the result of the returned stage
+   * @return New stage
+   */
+  public <T, U> CompletableFuture<U> handleAsync(
+      CompletionStage<T> stage, BiFunction<? super T, Throwable, ? extends U> fn,
+      Executor executor) {
+    return stage.toCompletableFuture().handleAsync(fn, bind(executor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#whenCompleteAsync(BiConsumer)}.
+   *
+   * @param stage Stage to chain to
+   * @param action Action to perform
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<T> whenCompleteAsync(
+      CompletionStage<T> stage, BiConsumer<? super T, ? super Throwable> action) {
+    return stage.toCompletableFuture().whenCompleteAsync(action, bind(defaultExecutor));
+  }
+
+  /**
+   * Context preserved version of {@link CompletionStage#whenCompleteAsync(BiConsumer, Executor)}.
+   *
+   * @param stage Stage to chain to
+   * @param action Action to perform
+   * @param executor Executor to use for asynchronous execution
+   * @param <T> Type of the result of the passed stage
+   * @return New stage
+   */
+  public <T> CompletableFuture<T> whenCompleteAsync(
+      CompletionStage<T> stage, BiConsumer<? super T, ? super Throwable> action,
+      Executor executor) {
+    return stage.toCompletableFuture().whenCompleteAsync(action, bind(executor));
+  }
+
+  /**
+   * Captures the current context and binds it to passed executor.
+   */
+  private Executor bind(Executor executor) {
+    Objects.requireNonNull(executor, "executor cannot be null");
+    return FixedContextPreservedExecutor.wrap(executor, contextCoordinator,
+        contextCoordinator.capture());
+  }
+}
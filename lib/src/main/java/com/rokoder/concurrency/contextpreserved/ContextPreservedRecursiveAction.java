@@ -0,0 +1,106 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.util.Objects;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.Nullable;
+
+/**
+ * {@link RecursiveAction} which preserves the {@link ThreadLocal} context across thread boundaries,
+ * including {@link #fork()}, {@link #join()} and {@link #invokeAll} which bypass
+ * {@link java.util.concurrent.Executor#execute(Runnable)} of the pool. Subclasses implement
+ * {@link #computeWithContext()} instead of {@link #compute()}.
+ *
+ * <p>Subtasks should be created with the constructors taking the parent task, which inherit the
+ * context of the parent without a {@link ThreadLocal} lookup. When a subtask runs on a worker which
+ * already holds the same context instance, e.g. the worker running its parent, the context is not
+ * set nor restored.
+ *
+ * <p>The context coordinator and the preserved context are not serialized, so a serialized task
+ * cannot be deserialized, it throws {@link NotSerializableException}.
+ *
+ * @param <C> Type of context
+ */
+public abstract class ContextPreservedRecursiveAction<C> extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+
+  private final transient ContextCoordinator<C> contextCoordinator;
+  @Nullable
+  private final transient C newContext;
+
+  /**
+   * Creates a task which preserves the context captured, using passed {@link ContextCoordinator},
+   * at the time of creation from the thread that creates it.
+   *
+   * @param contextCoordinator Context coordinator
+   */
+  protected ContextPreservedRecursiveAction(ContextCoordinator<C> contextCoordinator) {
+    this(contextCoordinator, contextCoordinator.capture());
+  }
+
+  /**
+   * Creates a task which preserves the passed context.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   */
+  protected ContextPreservedRecursiveAction(ContextCoordinator<C> contextCoordinator,
+                                            @Nullable C newContext) {
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.newContext = newContext;
+  }
+
+  /**
+   * Creates a subtask which preserves the same context as passed parent task.
+   *
+   * @param parent Parent task
+   */
+  protected ContextPreservedRecursiveAction(ContextPreservedRecursiveTask<C, ?> parent) {
+    this(parent.getContextCoordinator(), parent.getNewContext());
+  }
+
+  /**
+   * Creates a subtask which preserves the same context as passed parent task.
+   *
+   * @param parent Parent task
+   */
+  protected ContextPreservedRecursiveAction(ContextPreservedRecursiveAction<C> parent) {
+    this(parent.getContextCoordinator(), parent.getNewContext());
+  }
+
+  /**
+   * The main computation performed by this task, run with the preserved context.
+   */
+  protected abstract void computeWithContext();
+
+  @Override
+  protected final void compute() {
+    ContextCoordinator<C> coordinator = ThreadLocalContextCoordinator.bind(contextCoordinator);
+    C prevContext = coordinator.get();
+    if (prevContext == newContext) {
+      computeWithContext();
+      return;
+    }
+    try {
+      coordinator.set(newContext);
+      computeWithContext();
+    } finally {
+      coordinator.set(prevContext);
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws NotSerializableException {
+    throw new NotSerializableException(getClass().getName());
+  }
+
+  ContextCoordinator<C> getContextCoordinator() {
+    return contextCoordinator;
+  }
+
+  @Nullable
+  C getNewContext() {
+    return newContext;
+  }
+}
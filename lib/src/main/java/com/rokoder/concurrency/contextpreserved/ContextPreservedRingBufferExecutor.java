@@ -0,0 +1,413 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A bounded {@link java.util.concurrent.ExecutorService} which preserves the {@link ThreadLocal}
+ * context across thread boundaries without decorating the tasks. It captures the new context from
+ * calling thread at the time of {@link #execute(Runnable)} and stores it, next to the task, in a
+ * preallocated slot of a multi producer multi consumer ring buffer. The worker threads install the
+ * context of the slot, run the task and restore their previous context.
+ *
+ * <p>The steady state {@link #execute(Runnable)} and run path does not allocate. The apis inherited
+ * from {@link AbstractExecutorService}, like {@code submit}, still allocate their future. When the
+ * ring buffer is full, or the executor is shut down, the task is rejected with
+ * {@link RejectedExecutionException}.
+ *
+ * <p>Idle worker threads wait for tasks according to the {@link WaitStrategy}. A task throwing a
+ * {@link RuntimeException} is reported to the uncaught exception handler of the worker thread,
+ * which keeps running the next tasks. A task throwing an {@link Error} terminates its worker thread
+ * like with {@link java.util.concurrent.ThreadPoolExecutor}, and a new worker thread replaces it.
+ * The interrupt status left by a task is cleared before the next one.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextPreservedRingBufferExecutor<C> extends AbstractExecutorService {
+  private final ContextCoordinator<C> contextCoordinator;
+  private final WaitStrategy waitStrategy;
+  private final int mask;
+  private final @Nullable Runnable[] tasks;
+  private final @Nullable Object[] contexts;
+  private final AtomicLongArray sequences;
+  private final ThreadFactory threadFactory;
+  private final AtomicLong enqueuePosition = new AtomicLong();
+  private final AtomicLong dequeuePosition = new AtomicLong();
+  private final AtomicInteger pendingSubmits = new AtomicInteger();
+  // Workers blocked by WaitStrategy.PARK, the submitters only take the lock when there is one
+  private final AtomicInteger parkedWorkers = new AtomicInteger();
+  private final ReentrantLock parkLock = new ReentrantLock();
+  private final Condition notEmpty = parkLock.newCondition();
+  private final Thread[] workers;
+  private final CountDownLatch terminationLatch;
+  private volatile boolean shutdown;
+  private volatile boolean stopped;
+
+  private ContextPreservedRingBufferExecutor(int capacity, int threads,
+                                             ThreadFactory threadFactory,
+                                             ContextCoordinator<C> contextCoordinator,
+                                             WaitStrategy waitStrategy) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
+    this.threadFactory = Objects.requireNonNull(threadFactory, "threadFactory cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy cannot be null");
+    // A single slot cannot tell a filled slot from a slot released for the next round
+    int size = Math.max(2, Integer.highestOneBit(capacity));
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.mask = size - 1;
+    this.tasks = new Runnable[size];
+    this.contexts = new Object[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    this.terminationLatch = new CountDownLatch(threads);
+    this.workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = Objects.requireNonNull(newWorker(i), "threadFactory returned null thread");
+    }
+  }
+
+  /**
+   * Creates a new executor using {@link Executors#defaultThreadFactory()} and
+   * {@link WaitStrategy#PARK}.
+   *
+   * @param capacity Capacity of the ring buffer, rounded up to the next power of two, and to at
+   *     least two
+   * @param threads Number of worker threads
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created executor
+   */
+  public static <C> ContextPreservedRingBufferExecutor<C> of(
+      int capacity, int threads, ContextCoordinator<C> contextCoordinator) {
+    return of(capacity, threads, Executors.defaultThreadFactory(), contextCoordinator,
+        WaitStrategy.PARK);
+  }
+
+  /**
+   * Creates a new executor.
+   *
+   * @param capacity Capacity of the ring buffer, rounded up to the next power of two, and to at
+   *     least two
+   * @param threads Number of worker threads
+   * @param threadFactory Factory of the worker threads
+   * @param contextCoordinator Context coordinator
+   * @param waitStrategy Strategy used by the idle worker threads to wait for tasks
+   * @param <C> Type of context
+   * @return Newly created executor
+   */
+  public static <C> ContextPreservedRingBufferExecutor<C> of(
+      int capacity, int threads, ThreadFactory threadFactory,
+      ContextCoordinator<C> contextCoordinator, WaitStrategy waitStrategy) {
+    ContextPreservedRingBufferExecutor<C> executor = new ContextPreservedRingBufferExecutor<>(
+        capacity, threads, threadFactory, contextCoordinator, waitStrategy);
+    for (Thread worker : executor.workers) {
+      worker.start();
+    }
+    return executor;
+  }
+
+  /**
+   * Get the capacity of the ring buffer.
+   *
+   * @return Capacity of the ring buffer
+   */
+  public int capacity() {
+    return mask + 1;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    Objects.requireNonNull(command, "command cannot be null");
+    // Workers only exit once they see no pending submit, so a submit which passed the shutdown
+    // check below is guaranteed to either run or be returned by shutdownNow.
+    pendingSubmits.incrementAndGet();
+    try {
+      if (shutdown) {
+        throw new RejectedExecutionException("executor is shut down");
+      }
+      if (!offer(command, contextCoordinator.capture())) {
+        throw new RejectedExecutionException("ring buffer is full");
+      }
+      // The offer advanced the enqueue position before this read, see park()
+      if (parkedWorkers.get() > 0) {
+        signal(false);
+      }
+    } finally {
+      pendingSubmits.decrementAndGet();
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+    signal(true);
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    shutdown = true;
+    stopped = true;
+    parkLock.lock();
+    try {
+      notEmpty.signalAll();
+      for (Thread worker : workers) {
+        worker.interrupt();
+      }
+    } finally {
+      parkLock.unlock();
+    }
+    List<Runnable> pendingTasks = new ArrayList<>();
+    while (pendingSubmits.get() > 0) {
+      Thread.yield();
+    }
+    Runnable task;
+    while ((task = poll()) != null) {
+      pendingTasks.add(task);
+    }
+    return pendingTasks;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return terminationLatch.getCount() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return terminationLatch.await(timeout, unit);
+  }
+
+  private boolean offer(Runnable task, @Nullable C context) {
+    long position = enqueuePosition.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (enqueuePosition.compareAndSet(position, position + 1)) {
+          tasks[index] = task;
+          contexts[index] = context;
+          sequences.lazySet(index, position + 1);
+          return true;
+        }
+        position = enqueuePosition.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = enqueuePosition.get();
+      }
+    }
+  }
+
+  /**
+   * Claims the next slot, returns its position or {@code -1} if the ring buffer is empty. The slot
+   * is released by {@link #release(int, long)}.
+   */
+  private long claim() {
+    long position = dequeuePosition.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - (position + 1);
+      if (difference == 0) {
+        if (dequeuePosition.compareAndSet(position, position + 1)) {
+          return position;
+        }
+        position = dequeuePosition.get();
+      } else if (difference < 0) {
+        return -1;
+      } else {
+        position = dequeuePosition.get();
+      }
+    }
+  }
+
+  private void release(int index, long position) {
+    tasks[index] = null;
+    contexts[index] = null;
+    sequences.lazySet(index, position + mask + 1);
+  }
+
+  private @Nullable Runnable poll() {
+    long position = claim();
+    if (position < 0) {
+      return null;
+    }
+    int index = (int) position & mask;
+    Runnable task = tasks[index];
+    release(index, position);
+    return task;
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean runNext(ContextCoordinator<C> coordinator) {
+    long position = claim();
+    if (position < 0) {
+      return false;
+    }
+    int index = (int) position & mask;
+    Runnable task = Objects.requireNonNull(tasks[index]);
+    C context = (C) contexts[index];
+    release(index, position);
+
+    C prevContext = coordinator.swap(context);
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    } finally {
+      coordinator.set(prevContext);
+    }
+    // An interrupt left by the task would wake up every later park immediately. The interrupts of
+    // shutdownNow are meant for the running task, the stopped flag stops the worker.
+    Thread.interrupted();
+    return true;
+  }
+
+  private void signal(boolean all) {
+    parkLock.lock();
+    try {
+      if (all) {
+        notEmpty.signalAll();
+      } else {
+        notEmpty.signal();
+      }
+    } finally {
+      parkLock.unlock();
+    }
+  }
+
+  /**
+   * Blocks the current worker until a task is submitted or the executor is shut down. The worker
+   * registers as parked before reading the enqueue position, while the submitters advance the
+   * enqueue position before reading the number of parked workers, so either the worker sees the
+   * task or the submitter sees the worker.
+   */
+  private void park() {
+    parkLock.lock();
+    try {
+      parkedWorkers.incrementAndGet();
+      while (enqueuePosition.get() == dequeuePosition.get() && !shutdown) {
+        notEmpty.awaitUninterruptibly();
+      }
+    } finally {
+      parkedWorkers.decrementAndGet();
+      parkLock.unlock();
+    }
+  }
+
+  private @Nullable Thread newWorker(int index) {
+    return threadFactory.newThread(() -> work(index));
+  }
+
+  private void work(int index) {
+    // Workers never leave their thread, so the coordinator is bound once for all their tasks
+    ContextCoordinator<C> coordinator = ThreadLocalContextCoordinator.bind(contextCoordinator);
+    boolean completed = false;
+    try {
+      while (!stopped) {
+        if (!runNext(coordinator)) {
+          if (shutdown && pendingSubmits.get() == 0 && !runNext(coordinator)) {
+            break;
+          }
+          waitStrategy.idle(this);
+        }
+      }
+      completed = true;
+    } finally {
+      if (completed) {
+        terminationLatch.countDown();
+      } else {
+        replaceWorker(index);
+      }
+    }
+  }
+
+  /**
+   * Replaces the worker at the passed index, whose thread is terminated by an {@link Error} thrown
+   * by a task. The error keeps propagating to the uncaught exception handler of the thread.
+   */
+  private void replaceWorker(int index) {
+    Thread worker = newWorker(index);
+    if (worker == null) {
+      // The executor runs with one worker less, but still terminates
+      terminationLatch.countDown();
+      return;
+    }
+    parkLock.lock();
+    try {
+      workers[index] = worker;
+    } finally {
+      parkLock.unlock();
+    }
+    worker.start();
+  }
+
+  /**
+   * Strategy used by the idle worker threads to wait for tasks. It trades CPU usage for the latency
+   * of picking up a new task.
+   */
+  public enum WaitStrategy {
+    /**
+     * Busy spin. Lowest latency, but every idle worker thread keeps a CPU busy.
+     */
+    SPIN {
+      @Override
+      void idle(ContextPreservedRingBufferExecutor<?> executor) {
+        // Busy spin
+      }
+    },
+
+    /**
+     * {@link Thread#yield()} between polls. Low latency while giving the CPU to other runnable
+     * threads.
+     */
+    YIELD {
+      @Override
+      void idle(ContextPreservedRingBufferExecutor<?> executor) {
+        Thread.yield();
+      }
+    },
+
+    /**
+     * Block until a task is submitted. Idle worker threads use no CPU, at the cost of waking up a
+     * thread to pick up a new task. Only the submitters finding a blocked worker pay for the
+     * wake up, which takes a lock.
+     */
+    PARK {
+      @Override
+      void idle(ContextPreservedRingBufferExecutor<?> executor) {
+        executor.park();
+      }
+    };
+
+    abstract void idle(ContextPreservedRingBufferExecutor<?> executor);
+  }
+}
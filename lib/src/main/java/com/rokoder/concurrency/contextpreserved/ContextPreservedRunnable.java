@@ -6,20 +6,35 @@ import javax.annotation.Nullable;
 /**
  * {@link Runnable} which preserves the {@link ThreadLocal} context across thread boundaries.
  *
+ * <p>Wrapping a {@link ContextPreservedRunnable} again with the same {@link ContextCoordinator}
+ * and the same context instance drops the inner decorator, so the task pays for a single context
+ * transition. With a different context both decorators are kept, and the inner context wins while
+ * the task runs.
+ *
  * @param <C> Type of context
  */
 public final class ContextPreservedRunnable<C> implements Runnable {
   private final Runnable delegate;
+  private final Runnable task;
+  @Nullable
+  private final Object owner;
   private final ContextCoordinator<C> contextCoordinator;
   @Nullable
   private final C newContext;
+  private final ContextTransitionPolicy transitionPolicy;
 
   private ContextPreservedRunnable(Runnable delegate, ContextCoordinator<C> contextCoordinator,
-                                   @Nullable C newContext) {
-    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+                                   @Nullable C newContext,
+                                   ContextTransitionPolicy transitionPolicy,
+                                   @Nullable Object owner) {
     this.contextCoordinator =
         Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.task = Objects.requireNonNull(delegate, "delegate cannot be null");
+    this.delegate = flatten(delegate, contextCoordinator, newContext);
+    this.owner = owner;
     this.newContext = newContext;
+    this.transitionPolicy =
+        Objects.requireNonNull(transitionPolicy, "transitionPolicy cannot be null");
   }
 
   /**
@@ -28,13 +43,18 @@ public final class ContextPreservedRunnable<C> implements Runnable {
    * is captured, using passed {@link ContextCoordinator}, at the time of call to this api from the
    * thread that calls it.
    *
+   * <p>A passed {@link ContextPreservedRunnable} with the same coordinator and context instance is
+   * unwrapped first, so the task is decorated once. A passed one with a different context keeps
+   * both wrappers, and the task runs with the inner context.
+   *
    * @param runnable Runnable to be decorated
    * @param contextCoordinator Context coordinator
    * @param <C> Type of context
    * @return Newly created wrapped {@link Runnable}
    */
   public static <C> Runnable wrap(Runnable runnable, ContextCoordinator<C> contextCoordinator) {
-    return new ContextPreservedRunnable<>(runnable, contextCoordinator, contextCoordinator.get());
+    return new ContextPreservedRunnable<>(runnable, contextCoordinator,
+        contextCoordinator.capture(), ContextTransitionPolicy.ALWAYS, null);
   }
 
   /**
@@ -42,6 +62,10 @@ public final class ContextPreservedRunnable<C> implements Runnable {
    * context across thread boundaries using passed {@link ContextCoordinator}. The new context used
    * is one passed.
    *
+   * <p>A passed {@link ContextPreservedRunnable} with the same coordinator and context instance is
+   * unwrapped first, so the task is decorated once. A passed one with a different context keeps
+   * both wrappers, and the task runs with the inner context.
+   *
    * @param runnable Runnable to be decorated
    * @param contextCoordinator Context coordinator
    * @param newContext New context to preserve
@@ -50,17 +74,130 @@ public final class ContextPreservedRunnable<C> implements Runnable {
    */
   public static <C> Runnable wrap(Runnable runnable, ContextCoordinator<C> contextCoordinator,
                                   @Nullable C newContext) {
-    return new ContextPreservedRunnable<>(runnable, contextCoordinator, newContext);
+    return new ContextPreservedRunnable<>(runnable, contextCoordinator, newContext,
+        ContextTransitionPolicy.ALWAYS, null);
+  }
+
+  /**
+   * Decorates the passed {@link Runnable} with a new one which preserves the {@link ThreadLocal}
+   * context across thread boundaries using passed {@link ContextCoordinator}. The new context used
+   * is one passed. The passed {@link ContextTransitionPolicy} decides when the set and restore of
+   * the context can be skipped.
+   *
+   * <p>A passed {@link ContextPreservedRunnable} with the same coordinator and context instance is
+   * unwrapped first, so the task is decorated once. A passed one with a different context keeps
+   * both wrappers, and the task runs with the inner context.
+   *
+   * @param runnable Runnable to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link Runnable}, or passed {@link Runnable} if the policy skips
+   *     wrapping for the new context
+   */
+  public static <C> Runnable wrap(Runnable runnable, ContextCoordinator<C> contextCoordinator,
+                                  @Nullable C newContext,
+                                  ContextTransitionPolicy transitionPolicy) {
+    return wrap(runnable, contextCoordinator, newContext, transitionPolicy, null);
+  }
+
+  /**
+   * Same as {@link #wrap(Runnable, ContextCoordinator, Object, ContextTransitionPolicy)}, and
+   * additionally records the passed owner, so that only the owner gets the task back from
+   * {@link #unwrap(Runnable, Object)}.
+   *
+   * @param runnable Runnable to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param owner Owner of the decorator, or {@code null} for none
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link Runnable}, or passed {@link Runnable} if the policy skips
+   *     wrapping for the new context
+   */
+  static <C> Runnable wrap(Runnable runnable, ContextCoordinator<C> contextCoordinator,
+                           @Nullable C newContext, ContextTransitionPolicy transitionPolicy,
+                           @Nullable Object owner) {
+    Objects.requireNonNull(transitionPolicy, "transitionPolicy cannot be null");
+    if (transitionPolicy.elidesWrap(newContext)) {
+      return Objects.requireNonNull(runnable, "delegate cannot be null");
+    }
+    return new ContextPreservedRunnable<>(runnable, contextCoordinator, newContext,
+        transitionPolicy, owner);
+  }
+
+  /**
+   * Get the undecorated task of passed {@link Runnable} if it is a
+   * {@link ContextPreservedRunnable}. A flattened inner decorator is skipped as well.
+   *
+   * @param runnable Runnable to unwrap
+   * @return Undecorated task, or passed {@link Runnable} if it is not decorated
+   */
+  static Runnable unwrap(Runnable runnable) {
+    return runnable instanceof ContextPreservedRunnable
+        ? ((ContextPreservedRunnable<?>) runnable).delegate : runnable;
+  }
+
+  /**
+   * Get the task passed to {@link #wrap(Runnable, ContextCoordinator, Object,
+   * ContextTransitionPolicy, Object)} if passed {@link Runnable} is a
+   * {@link ContextPreservedRunnable} created for the passed owner. A flattened inner decorator is
+   * returned as passed.
+   *
+   * @param runnable Runnable to unwrap
+   * @param owner Owner of the decorator
+   * @return Task as passed to the owner, or passed {@link Runnable} if it is not decorated for the
+   *     owner
+   */
+  static Runnable unwrap(Runnable runnable, Object owner) {
+    if (runnable instanceof ContextPreservedRunnable) {
+      ContextPreservedRunnable<?> wrapped = (ContextPreservedRunnable<?>) runnable;
+      if (wrapped.owner == owner) {
+        return wrapped.task;
+      }
+    }
+    return runnable;
+  }
+
+  /**
+   * Get the delegate of passed {@link Runnable} if it is a {@link ContextPreservedRunnable} which
+   * installs the same context with the same coordinator, as the inner transition is a no-op then.
+   */
+  private static Runnable flatten(Runnable runnable, ContextCoordinator<?> contextCoordinator,
+                                  @Nullable Object newContext) {
+    if (runnable instanceof ContextPreservedRunnable) {
+      ContextPreservedRunnable<?> wrapped = (ContextPreservedRunnable<?>) runnable;
+      if (wrapped.contextCoordinator == contextCoordinator && wrapped.newContext == newContext) {
+        return wrapped.delegate;
+      }
+    }
+    return runnable;
   }
 
   @Override
   public void run() {
-    C prevContext = contextCoordinator.get();
+    ContextCoordinator<C> coordinator = ThreadLocalContextCoordinator.bind(contextCoordinator);
+    if (transitionPolicy.installsOnly()) {
+      coordinator.set(newContext);
+      delegate.run();
+      return;
+    }
+    C prevContext;
+    if (transitionPolicy.elidesIdentical()) {
+      prevContext = coordinator.get();
+      if (prevContext == newContext) {
+        delegate.run();
+        return;
+      }
+      coordinator.set(newContext);
+    } else {
+      prevContext = coordinator.swap(newContext);
+    }
     try {
-      contextCoordinator.set(newContext);
       delegate.run();
     } finally {
-      contextCoordinator.set(prevContext);
+      coordinator.set(prevContext);
     }
   }
 }
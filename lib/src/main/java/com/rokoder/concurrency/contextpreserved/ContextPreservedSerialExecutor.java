@@ -0,0 +1,153 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An {@link Executor} which preserves the {@link ThreadLocal} context across thread boundaries, and
+ * runs its tasks one at a time, in submission order, on top of a shared delegate {@link Executor}.
+ * It is meant to give per entity ordering, like per account or per connection, with one instance
+ * per entity sharing a pool.
+ *
+ * <p>It captures the new context from calling thread at the time of {@link #execute(Runnable)},
+ * and queues the task on its own lock-free multi producer single consumer queue. The queued tasks
+ * are run by a single delegate task per drain cycle, instead of one delegate submission per task.
+ * Before each task, a drain only sets the context when the thread holds a different context
+ * instance, and it restores the previous context of the pool thread once done. A stream of tasks
+ * sharing one context therefore pays for a single transition per drain, while a task replacing the
+ * context does not leak it into the next tasks nor into the pool thread.
+ *
+ * <p>A drain runs at most the configured number of tasks, then submits a new drain to the delegate
+ * for the remaining ones, so a busy instance does not monopolize a pool thread.
+ *
+ * <p>A task throwing a {@link RuntimeException} is reported to the uncaught exception handler of
+ * the pool thread, and the drain carries on with the next task. If the delegate rejects a drain,
+ * the {@link RejectedExecutionException} is thrown to the caller of {@link #execute(Runnable)},
+ * and the queued tasks, including the one being submitted, run with the next accepted drain.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextPreservedSerialExecutor<C> implements Executor {
+  private static final int DEFAULT_MAX_TASKS_PER_DRAIN = 1024;
+
+  private final Executor delegate;
+  private final ContextCoordinator<C> contextCoordinator;
+  private final int maxTasksPerDrain;
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final AtomicReference<Task> tail;
+  private final Runnable drainTask;
+  // Only accessed by the running drain, the scheduled flag orders the successive drains
+  private Task head;
+
+  private ContextPreservedSerialExecutor(Executor delegate,
+                                         ContextCoordinator<C> contextCoordinator,
+                                         int maxTasksPerDrain) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    if (maxTasksPerDrain < 1) {
+      throw new IllegalArgumentException(
+          "maxTasksPerDrain must be positive: " + maxTasksPerDrain);
+    }
+    this.maxTasksPerDrain = maxTasksPerDrain;
+    this.head = new Task(null, null);
+    this.tail = new AtomicReference<>(head);
+    this.drainTask = this::drain;
+  }
+
+  /**
+   * Creates a new serial executor running at most 1024 tasks per drain.
+   *
+   * @param executor Shared executor running the drains
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created serial executor
+   */
+  public static <C> ContextPreservedSerialExecutor<C> of(Executor executor,
+                                                         ContextCoordinator<C> contextCoordinator) {
+    return of(executor, contextCoordinator, DEFAULT_MAX_TASKS_PER_DRAIN);
+  }
+
+  /**
+   * Creates a new serial executor.
+   *
+   * @param executor Shared executor running the drains
+   * @param contextCoordinator Context coordinator
+   * @param maxTasksPerDrain Maximum number of tasks run by a drain before submitting a new one
+   * @param <C> Type of context
+   * @return Newly created serial executor
+   */
+  public static <C> ContextPreservedSerialExecutor<C> of(Executor executor,
+                                                         ContextCoordinator<C> contextCoordinator,
+                                                         int maxTasksPerDrain) {
+    return new ContextPreservedSerialExecutor<>(executor, contextCoordinator, maxTasksPerDrain);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    Objects.requireNonNull(command, "command cannot be null");
+    Task task = new Task(command, contextCoordinator.capture());
+    tail.getAndSet(task).next = task;
+    schedule();
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      try {
+        delegate.execute(drainTask);
+      } catch (RejectedExecutionException e) {
+        scheduled.set(false);
+        throw e;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void drain() {
+    ContextCoordinator<C> coordinator = ThreadLocalContextCoordinator.bind(contextCoordinator);
+    C prevContext = coordinator.get();
+    try {
+      Task task;
+      for (int i = 0; i < maxTasksPerDrain && (task = head.next) != null; i++) {
+        // The polled task becomes the new sentinel head
+        head = task;
+        Runnable command = Objects.requireNonNull(task.command);
+        C context = (C) task.context;
+        task.command = null;
+        task.context = null;
+        if (coordinator.get() != context) {
+          coordinator.set(context);
+        }
+        try {
+          command.run();
+        } catch (RuntimeException e) {
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+      }
+    } finally {
+      coordinator.set(prevContext);
+      scheduled.set(false);
+      // A task queued after the last poll, or beyond the limit of this drain, needs a new drain.
+      // A producer which swapped the tail but did not link it yet also counts as queued.
+      if (tail.get() != head) {
+        schedule();
+      }
+    }
+  }
+
+  private static final class Task {
+    private @Nullable Runnable command;
+    private @Nullable Object context;
+    private volatile @Nullable Task next;
+
+    private Task(@Nullable Runnable command, @Nullable Object context) {
+      this.command = command;
+      this.context = context;
+    }
+  }
+}
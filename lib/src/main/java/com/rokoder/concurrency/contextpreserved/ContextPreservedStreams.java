@@ -0,0 +1,194 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
+
+/**
+ * Helpers to preserve the {@link ThreadLocal} context in parallel {@link Stream} pipelines, whose
+ * chunks run on the {@link java.util.concurrent.ForkJoinPool#commonPool()} workers.
+ *
+ * <p>The wrapped {@link Spliterator} installs the context around
+ * {@link Spliterator#forEachRemaining(Consumer)}, which processes a whole chunk, so the context is
+ * set and restored once per chunk instead of once per element. Every split created by
+ * {@link Spliterator#trySplit()} preserves the same context. The transition is skipped when the
+ * running thread already holds the same context instance, like the thread which started the
+ * terminal operation.
+ *
+ * <p>Short circuiting operations, like {@link Stream#findFirst()}, pull the elements one at a time
+ * using {@link Spliterator#tryAdvance(Consumer)}, which installs the context per element. The
+ * combining steps of reductions and collectors run outside of the chunks, without the context.
+ *
+ * <p>Only the stateless operations run within the chunks. The stateful operations of a parallel
+ * stream, like {@link Stream#sorted()}, {@link Stream#distinct()} or {@link Stream#limit(long)},
+ * run their own functions, like the comparator of {@code sorted}, outside of the chunks, without
+ * the context.
+ */
+public final class ContextPreservedStreams {
+  private ContextPreservedStreams() {
+  }
+
+  /**
+   * Decorates the passed {@link Spliterator} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is captured, using passed {@link ContextCoordinator}, at the time of call
+   * to this api from the thread that calls it.
+   *
+   * @param spliterator Spliterator to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @param <T> Type of the elements
+   * @return Newly created wrapped {@link Spliterator}
+   */
+  public static <C, T> Spliterator<T> wrap(Spliterator<T> spliterator,
+                                           ContextCoordinator<C> contextCoordinator) {
+    return new ContextPreservedSpliterator<>(spliterator, contextCoordinator,
+        contextCoordinator.capture());
+  }
+
+  /**
+   * Decorates the passed {@link Spliterator} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is one passed.
+   *
+   * @param spliterator Spliterator to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @param <T> Type of the elements
+   * @return Newly created wrapped {@link Spliterator}
+   */
+  public static <C, T> Spliterator<T> wrap(Spliterator<T> spliterator,
+                                           ContextCoordinator<C> contextCoordinator,
+                                           @Nullable C newContext) {
+    return new ContextPreservedSpliterator<>(spliterator, contextCoordinator, newContext);
+  }
+
+  /**
+   * Decorates the passed {@link Stream} with a new one which preserves the {@link ThreadLocal}
+   * context across thread boundaries using passed {@link ContextCoordinator}. The new context used
+   * is captured, using passed {@link ContextCoordinator}, at the time of call to this api from the
+   * thread that calls it.
+   *
+   * <p>The returned stream keeps the parallelism of the passed one, and closing it closes the
+   * passed one. The stateless intermediate operations added to the returned stream run with the
+   * context, and so do the ones of the passed stream if it is sequential or has no stateful
+   * operation. For a parallel stream, {@link Stream#spliterator()} evaluates the stateful
+   * operations, like {@link Stream#sorted()}, {@link Stream#distinct()} or
+   * {@link Stream#limit(long)}, and every operation before them ahead, without the context. To run
+   * them with the context, decorate the source {@link Spliterator} instead, using
+   * {@link #wrap(Spliterator, ContextCoordinator)}, and build the pipeline on top of it, which
+   * still leaves the functions of the stateful operations themselves without the context.
+   *
+   * @param stream Stream to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @param <T> Type of the elements
+   * @return Newly created wrapped {@link Stream}
+   */
+  public static <C, T> Stream<T> wrap(Stream<T> stream,
+                                      ContextCoordinator<C> contextCoordinator) {
+    return wrap(stream, contextCoordinator, contextCoordinator.capture());
+  }
+
+  /**
+   * Decorates the passed {@link Stream} with a new one which preserves the {@link ThreadLocal}
+   * context across thread boundaries using passed {@link ContextCoordinator}. The new context used
+   * is one passed.
+   *
+   * @param stream Stream to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @param <T> Type of the elements
+   * @return Newly created wrapped {@link Stream}
+   * @see #wrap(Stream, ContextCoordinator)
+   */
+  public static <C, T> Stream<T> wrap(Stream<T> stream,
+                                      ContextCoordinator<C> contextCoordinator,
+                                      @Nullable C newContext) {
+    Objects.requireNonNull(stream, "stream cannot be null");
+    return StreamSupport.stream(
+        new ContextPreservedSpliterator<>(stream.spliterator(), contextCoordinator, newContext),
+        stream.isParallel()).onClose(stream::close);
+  }
+
+  private static final class ContextPreservedSpliterator<C, T> implements Spliterator<T> {
+    private final Spliterator<T> delegate;
+    private final ContextCoordinator<C> contextCoordinator;
+    @Nullable
+    private final C newContext;
+
+    private ContextPreservedSpliterator(Spliterator<T> delegate,
+                                        ContextCoordinator<C> contextCoordinator,
+                                        @Nullable C newContext) {
+      this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+      this.contextCoordinator =
+          Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+      this.newContext = newContext;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      C prevContext = install();
+      try {
+        return delegate.tryAdvance(action);
+      } finally {
+        restore(prevContext);
+      }
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      C prevContext = install();
+      try {
+        delegate.forEachRemaining(action);
+      } finally {
+        restore(prevContext);
+      }
+    }
+
+    @Nullable
+    @Override
+    public Spliterator<T> trySplit() {
+      Spliterator<T> split = delegate.trySplit();
+      return split == null
+          ? null : new ContextPreservedSpliterator<>(split, contextCoordinator, newContext);
+    }
+
+    @Override
+    public long estimateSize() {
+      return delegate.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return delegate.characteristics();
+    }
+
+    @Nullable
+    @Override
+    public Comparator<? super T> getComparator() {
+      return delegate.getComparator();
+    }
+
+    @Nullable
+    private C install() {
+      C prevContext = contextCoordinator.get();
+      if (prevContext != newContext) {
+        contextCoordinator.set(newContext);
+      }
+      return prevContext;
+    }
+
+    private void restore(@Nullable C prevContext) {
+      if (prevContext != newContext) {
+        contextCoordinator.set(prevContext);
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link ThreadFactory} which installs the same {@link ThreadLocal} context (which is captured at
+ * the time of creation of this class) once on every thread it creates. The context stays installed
+ * for the whole lifetime of the thread, so pools built on it do not pay any per task wrapping or
+ * context transition.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextPreservedThreadFactory<C> implements ThreadFactory {
+  private final ThreadFactory delegate;
+  private final ContextCoordinator<C> contextCoordinator;
+  @Nullable
+  private final C newContext;
+
+  private ContextPreservedThreadFactory(ThreadFactory delegate,
+                                        ContextCoordinator<C> contextCoordinator,
+                                        @Nullable C newContext) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.newContext = newContext;
+  }
+
+  /**
+   * Decorates the passed {@link ThreadFactory} with a new one which installs the
+   * {@link ThreadLocal} context on the created threads using passed {@link ContextCoordinator}. The
+   * new context used is captured, using passed {@link ContextCoordinator}, at the time of call to
+   * this api from the thread that calls it. And the same context will be used for all created
+   * threads.
+   *
+   * @param threadFactory Thread factory to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ThreadFactory}
+   */
+  public static <C> ThreadFactory wrap(ThreadFactory threadFactory,
+                                       ContextCoordinator<C> contextCoordinator) {
+    return new ContextPreservedThreadFactory<>(threadFactory, contextCoordinator,
+        contextCoordinator.capture());
+  }
+
+  /**
+   * Decorates the passed {@link ThreadFactory} with a new one which installs the
+   * {@link ThreadLocal} context on the created threads using passed {@link ContextCoordinator}. The
+   * new context used is one passed. And the same context will be used for all created threads.
+   *
+   * @param threadFactory Thread factory to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to install
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ThreadFactory}
+   */
+  public static <C> ThreadFactory wrap(ThreadFactory threadFactory,
+                                       ContextCoordinator<C> contextCoordinator,
+                                       @Nullable C newContext) {
+    return new ContextPreservedThreadFactory<>(threadFactory, contextCoordinator, newContext);
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    return delegate.newThread(ContextPreservedRunnable.wrap(runnable, contextCoordinator,
+        newContext, ContextTransitionPolicy.INSTALL_ONLY));
+  }
+}
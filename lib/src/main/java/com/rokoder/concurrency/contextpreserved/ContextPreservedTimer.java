@@ -0,0 +1,392 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Timer backed by a hashed timing wheel which preserves the {@link ThreadLocal} context across
+ * thread boundaries. It captures the new context from calling thread at the time of
+ * {@link #schedule(Runnable, long, TimeUnit)}, and runs the expired tasks on the passed
+ * {@link Executor} with that context installed.
+ *
+ * <p>Scheduling and cancelling a timeout are O(1), unlike the O(log n) of the heap of a
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor}, which suits very large numbers of
+ * pending timeouts which are mostly cancelled, like request timeouts. In exchange the timeouts
+ * only expire on the tick following their deadline, so the accuracy is bounded by the tick
+ * duration.
+ *
+ * <p>A single worker thread advances the wheel every tick and hands the expired tasks to the
+ * executor, it never runs them itself. A {@link RuntimeException} thrown by the executor, like a
+ * {@link RejectedExecutionException}, is reported to the uncaught exception handler of the worker
+ * thread, which keeps running.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextPreservedTimer<C> implements AutoCloseable {
+  private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+  private final ContextCoordinator<C> contextCoordinator;
+  private final Executor executor;
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+  private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+  private final Thread worker;
+  private final CountDownLatch terminationLatch = new CountDownLatch(1);
+  private final long startNanos;
+  private volatile boolean stopped;
+
+  private ContextPreservedTimer(long tickDuration, TimeUnit unit, int ticksPerWheel,
+                                ThreadFactory threadFactory, Executor executor,
+                                ContextCoordinator<C> contextCoordinator) {
+    Objects.requireNonNull(unit, "unit cannot be null");
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+    }
+    if (ticksPerWheel < 1 || ticksPerWheel > 1 << 30) {
+      throw new IllegalArgumentException(
+          "ticksPerWheel must be between 1 and 2^30: " + ticksPerWheel);
+    }
+    Objects.requireNonNull(threadFactory, "threadFactory cannot be null");
+    this.executor = Objects.requireNonNull(executor, "executor cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.tickNanos = unit.toNanos(tickDuration);
+    int size = Integer.highestOneBit(ticksPerWheel);
+    if (size < ticksPerWheel) {
+      size <<= 1;
+    }
+    this.mask = size - 1;
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new Bucket();
+    }
+    this.worker = Objects.requireNonNull(threadFactory.newThread(this::work),
+        "threadFactory returned null thread");
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Creates a new timer with a tick of 10 milliseconds and 512 ticks per wheel, using
+   * {@link Executors#defaultThreadFactory()} for its worker thread.
+   *
+   * @param executor Executor running the expired tasks
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created timer
+   */
+  public static <C> ContextPreservedTimer<C> of(Executor executor,
+                                                ContextCoordinator<C> contextCoordinator) {
+    return of(10, TimeUnit.MILLISECONDS, 512, Executors.defaultThreadFactory(), executor,
+        contextCoordinator);
+  }
+
+  /**
+   * Creates a new timer.
+   *
+   * @param tickDuration Duration of a tick
+   * @param unit Unit of the tick duration
+   * @param ticksPerWheel Number of ticks per wheel, rounded up to the next power of two
+   * @param threadFactory Factory of the worker thread
+   * @param executor Executor running the expired tasks
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created timer
+   */
+  public static <C> ContextPreservedTimer<C> of(long tickDuration, TimeUnit unit,
+                                                int ticksPerWheel, ThreadFactory threadFactory,
+                                                Executor executor,
+                                                ContextCoordinator<C> contextCoordinator) {
+    ContextPreservedTimer<C> timer = new ContextPreservedTimer<>(tickDuration, unit,
+        ticksPerWheel, threadFactory, executor, contextCoordinator);
+    timer.worker.start();
+    return timer;
+  }
+
+  /**
+   * Schedules the passed task to run on the executor of this timer, with the context captured,
+   * using the {@link ContextCoordinator} of this timer, at the time of call to this api from the
+   * thread that calls it.
+   *
+   * @param task Task to run when the timeout expires
+   * @param delay Delay after which the timeout expires
+   * @param unit Unit of the delay
+   * @return Handle of the timeout which can be used to cancel it
+   * @throws RejectedExecutionException If the timer is stopped
+   */
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    Objects.requireNonNull(task, "task cannot be null");
+    Objects.requireNonNull(unit, "unit cannot be null");
+    long deadline = System.nanoTime() - startNanos + unit.toNanos(delay);
+    // Guard against overflow
+    if (delay > 0 && deadline < 0) {
+      deadline = Long.MAX_VALUE;
+    }
+    WheelTimeout timeout = new WheelTimeout(this, task, contextCoordinator.capture(), deadline);
+    pendingTimeouts.add(timeout);
+    // A timeout added after stop drained the pending timeouts is taken back and rejected, else it
+    // was either added before stop, or already returned by it.
+    if (stopped && pendingTimeouts.remove(timeout)) {
+      throw new RejectedExecutionException("timer is stopped");
+    }
+    return timeout;
+  }
+
+  /**
+   * Stops the timer and waits for its worker thread to terminate. The timeouts which did not
+   * expire yet are not run anymore.
+   *
+   * @return Tasks of the timeouts which neither expired nor were cancelled
+   * @throws IllegalStateException If called from the worker thread
+   */
+  public List<Runnable> stop() {
+    if (Thread.currentThread() == worker) {
+      throw new IllegalStateException("timer cannot be stopped from its worker thread");
+    }
+    stopped = true;
+    LockSupport.unpark(worker);
+    boolean interrupted = false;
+    while (true) {
+      try {
+        terminationLatch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    List<Runnable> unprocessedTasks = new ArrayList<>();
+    for (Bucket bucket : wheel) {
+      bucket.drainTo(unprocessedTasks);
+    }
+    WheelTimeout timeout;
+    while ((timeout = pendingTimeouts.poll()) != null) {
+      if (timeout.state.get() == WheelTimeout.INIT) {
+        unprocessedTasks.add(timeout.task);
+      }
+    }
+    return unprocessedTasks;
+  }
+
+  /**
+   * Same as {@link #stop()}, ignoring the returned tasks.
+   */
+  @Override
+  public void close() {
+    stop();
+  }
+
+  private void work() {
+    try {
+      long tick = 0;
+      while (waitForTick(tick)) {
+        processCancelledTimeouts();
+        transferPendingTimeouts(tick);
+        wheel[(int) tick & mask].expireTimeouts();
+        tick++;
+      }
+    } finally {
+      terminationLatch.countDown();
+    }
+  }
+
+  /**
+   * Waits until the end of the passed tick, returns {@code false} if the timer was stopped.
+   */
+  private boolean waitForTick(long tick) {
+    long deadline = tickNanos * (tick + 1);
+    while (!stopped) {
+      long sleepNanos = deadline - (System.nanoTime() - startNanos);
+      if (sleepNanos <= 0) {
+        return true;
+      }
+      LockSupport.parkNanos(this, sleepNanos);
+    }
+    return false;
+  }
+
+  private void processCancelledTimeouts() {
+    WheelTimeout timeout;
+    while ((timeout = cancelledTimeouts.poll()) != null) {
+      Bucket bucket = timeout.bucket;
+      if (bucket != null) {
+        bucket.remove(timeout);
+      }
+    }
+  }
+
+  private void transferPendingTimeouts(long tick) {
+    WheelTimeout timeout;
+    for (int i = 0; i < MAX_TRANSFERS_PER_TICK && (timeout = pendingTimeouts.poll()) != null; i++) {
+      if (timeout.state.get() == WheelTimeout.INIT) {
+        long expiryTick = Math.max(timeout.deadline / tickNanos, tick);
+        timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+        wheel[(int) expiryTick & mask].add(timeout);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void expire(WheelTimeout timeout) {
+    if (timeout.state.compareAndSet(WheelTimeout.INIT, WheelTimeout.EXPIRED)) {
+      try {
+        executor.execute(ContextPreservedRunnable.wrap(timeout.task, contextCoordinator,
+            (C) timeout.context));
+      } catch (RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+      }
+    }
+  }
+
+  /**
+   * Handle of a scheduled timeout.
+   */
+  public interface Timeout {
+    /**
+     * Cancels the timeout, its task will not run. The cancelled timeout is removed from the wheel
+     * on the next tick.
+     *
+     * @return {@code true} if the timeout was cancelled, {@code false} if it already expired or
+     *     was already cancelled
+     */
+    boolean cancel();
+
+    /**
+     * Check if the timeout was cancelled.
+     *
+     * @return {@code true} if the timeout was cancelled
+     */
+    boolean isCancelled();
+
+    /**
+     * Check if the timeout expired, which means that its task was handed to the executor.
+     *
+     * @return {@code true} if the timeout expired
+     */
+    boolean isExpired();
+  }
+
+  private static final class WheelTimeout implements Timeout {
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final ContextPreservedTimer<?> timer;
+    private final Runnable task;
+    private final @Nullable Object context;
+    private final long deadline;
+    private final AtomicInteger state = new AtomicInteger(INIT);
+    // Only accessed by the worker thread
+    private long remainingRounds;
+    private @Nullable Bucket bucket;
+    private @Nullable WheelTimeout prev;
+    private @Nullable WheelTimeout next;
+
+    private WheelTimeout(ContextPreservedTimer<?> timer, Runnable task, @Nullable Object context,
+                         long deadline) {
+      this.timer = timer;
+      this.task = task;
+      this.context = context;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public boolean cancel() {
+      if (!state.compareAndSet(INIT, CANCELLED)) {
+        return false;
+      }
+      timer.cancelledTimeouts.add(this);
+      return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return state.get() == CANCELLED;
+    }
+
+    @Override
+    public boolean isExpired() {
+      return state.get() == EXPIRED;
+    }
+  }
+
+  /**
+   * Doubly linked list of the timeouts hashed to one tick of the wheel. Only accessed by the worker
+   * thread, or after it terminated.
+   */
+  private static final class Bucket {
+    private @Nullable WheelTimeout head;
+    private @Nullable WheelTimeout tail;
+
+    void add(WheelTimeout timeout) {
+      timeout.bucket = this;
+      timeout.prev = tail;
+      if (tail == null) {
+        head = timeout;
+      } else {
+        tail.next = timeout;
+      }
+      tail = timeout;
+    }
+
+    void remove(WheelTimeout timeout) {
+      WheelTimeout prev = timeout.prev;
+      WheelTimeout next = timeout.next;
+      if (prev == null) {
+        head = next;
+      } else {
+        prev.next = next;
+      }
+      if (next == null) {
+        tail = prev;
+      } else {
+        next.prev = prev;
+      }
+      timeout.bucket = null;
+      timeout.prev = null;
+      timeout.next = null;
+    }
+
+    void expireTimeouts() {
+      WheelTimeout timeout = head;
+      while (timeout != null) {
+        WheelTimeout next = timeout.next;
+        if (timeout.remainingRounds <= 0) {
+          remove(timeout);
+          timeout.timer.expire(timeout);
+        } else {
+          timeout.remainingRounds--;
+        }
+        timeout = next;
+      }
+    }
+
+    void drainTo(List<Runnable> tasks) {
+      WheelTimeout timeout = head;
+      while (timeout != null) {
+        if (timeout.state.get() == WheelTimeout.INIT) {
+          tasks.add(timeout.task);
+        }
+        timeout = timeout.next;
+      }
+      head = null;
+      tail = null;
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+
+/**
+ * Task metrics of the Context Preserved executors. It records the number of context captures, the
+ * number of captured {@code null} contexts, and histograms of the time the tasks wait in the queue
+ * of the delegate and of the time they take to execute.
+ *
+ * <p>The submit timestamp is recorded when the context is captured. Recording is lock free, all the
+ * counters are {@link LongAdder}s which stripe under contention, and the histograms have
+ * power of two nanosecond buckets. Executors created without metrics do not record anything.
+ */
+public final class ContextTaskMetrics {
+  private final LongAdder captureCount = new LongAdder();
+  private final LongAdder nullContextCount = new LongAdder();
+  private final Recorder queueWaitRecorder = new Recorder();
+  private final Recorder executionRecorder = new Recorder();
+
+  private ContextTaskMetrics() {
+  }
+
+  /**
+   * Creates new empty metrics.
+   *
+   * @return Newly created metrics
+   */
+  public static ContextTaskMetrics create() {
+    return new ContextTaskMetrics();
+  }
+
+  /**
+   * Get a point in time copy of the metrics. Concurrent recordings may or may not be included.
+   *
+   * @return Snapshot of the metrics
+   */
+  public Snapshot snapshot() {
+    return new Snapshot(captureCount.sum(), nullContextCount.sum(),
+        queueWaitRecorder.snapshot(), executionRecorder.snapshot());
+  }
+
+  void recordCapture(@Nullable Object context) {
+    captureCount.increment();
+    if (context == null) {
+      nullContextCount.increment();
+    }
+  }
+
+  Runnable measure(Runnable task) {
+    return new MeasuredRunnable(task, this, System.nanoTime());
+  }
+
+  <V> Callable<V> measure(Callable<V> task) {
+    return new MeasuredCallable<>(task, this, System.nanoTime());
+  }
+
+  /**
+   * Get the unmeasured task of passed {@link Runnable} if it is measured by these metrics.
+   *
+   * @param runnable Runnable to unwrap
+   * @return Unmeasured task, or passed {@link Runnable} if it is not measured by these metrics
+   */
+  Runnable unwrap(Runnable runnable) {
+    if (runnable instanceof MeasuredRunnable) {
+      MeasuredRunnable measured = (MeasuredRunnable) runnable;
+      if (measured.metrics == this) {
+        return measured.delegate;
+      }
+    }
+    return runnable;
+  }
+
+  private long recordStart(long submitNanos) {
+    long startNanos = System.nanoTime();
+    queueWaitRecorder.record(startNanos - submitNanos);
+    return startNanos;
+  }
+
+  private void recordEnd(long startNanos) {
+    executionRecorder.record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Point in time copy of {@link ContextTaskMetrics}.
+   */
+  public static final class Snapshot {
+    private final long captureCount;
+    private final long nullContextCount;
+    private final HistogramSnapshot queueWait;
+    private final HistogramSnapshot execution;
+
+    private Snapshot(long captureCount, long nullContextCount, HistogramSnapshot queueWait,
+                     HistogramSnapshot execution) {
+      this.captureCount = captureCount;
+      this.nullContextCount = nullContextCount;
+      this.queueWait = queueWait;
+      this.execution = execution;
+    }
+
+    /**
+     * Get the number of context captures.
+     *
+     * @return Number of context captures
+     */
+    public long getCaptureCount() {
+      return captureCount;
+    }
+
+    /**
+     * Get the number of context captures which returned {@code null}.
+     *
+     * @return Number of {@code null} context captures
+     */
+    public long getNullContextCount() {
+      return nullContextCount;
+    }
+
+    /**
+     * Get the histogram of the time, in nanoseconds, between the capture of the context and the
+     * start of the task.
+     *
+     * @return Queue wait histogram
+     */
+    public HistogramSnapshot getQueueWait() {
+      return queueWait;
+    }
+
+    /**
+     * Get the histogram of the execution time, in nanoseconds, of the tasks.
+     *
+     * @return Execution time histogram
+     */
+    public HistogramSnapshot getExecution() {
+      return execution;
+    }
+  }
+
+  /**
+   * Point in time copy of a histogram of nanosecond durations. Bucket {@code 0} counts the zero
+   * durations and bucket {@code i > 0} counts the durations in {@code [2^(i-1), 2^i)}.
+   */
+  public static final class HistogramSnapshot {
+    private final long[] bucketCounts;
+    private final long count;
+    private final long sum;
+
+    HistogramSnapshot(long[] bucketCounts, long sum) {
+      this.bucketCounts = bucketCounts;
+      long total = 0;
+      for (long bucketCount : bucketCounts) {
+        total += bucketCount;
+      }
+      this.count = total;
+      this.sum = sum;
+    }
+
+    /**
+     * Get the number of recorded durations.
+     *
+     * @return Number of recorded durations
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Get the sum of the recorded durations in nanoseconds.
+     *
+     * @return Sum of the recorded durations
+     */
+    public long getSum() {
+      return sum;
+    }
+
+    /**
+     * Get the mean of the recorded durations in nanoseconds.
+     *
+     * @return Mean of the recorded durations, or {@code 0} if nothing is recorded
+     */
+    public double getMean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Get the count of each bucket.
+     *
+     * @return Copy of the bucket counts
+     */
+    public long[] getBucketCounts() {
+      return bucketCounts.clone();
+    }
+
+    /**
+     * Get an upper bound of the passed percentile of the recorded durations in nanoseconds. The
+     * upper bound is the upper limit of the bucket containing the percentile, so it is at most two
+     * times the exact value.
+     *
+     * @param percentile Percentile between {@code 0} and {@code 100}
+     * @return Upper bound of the percentile, or {@code 0} if nothing is recorded
+     */
+    public long getPercentile(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+      }
+      long rank = (long) Math.ceil(percentile / 100 * count);
+      long seen = 0;
+      for (int i = 0; i < bucketCounts.length; i++) {
+        seen += bucketCounts[i];
+        if (seen >= rank && seen > 0) {
+          return (1L << i) - 1;
+        }
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Lock free histogram recorder with power of two buckets.
+   */
+  private static final class Recorder {
+    private static final int BUCKETS = 64;
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+
+    private Recorder() {
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    private void record(long nanos) {
+      long value = Math.max(nanos, 0);
+      buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+      sum.add(value);
+    }
+
+    private HistogramSnapshot snapshot() {
+      long[] bucketCounts = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) {
+        bucketCounts[i] = buckets[i].sum();
+      }
+      return new HistogramSnapshot(bucketCounts, sum.sum());
+    }
+  }
+
+  private static final class MeasuredRunnable implements Runnable {
+    private final Runnable delegate;
+    private final ContextTaskMetrics metrics;
+    private final long submitNanos;
+
+    private MeasuredRunnable(Runnable delegate, ContextTaskMetrics metrics, long submitNanos) {
+      this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+      this.metrics = metrics;
+      this.submitNanos = submitNanos;
+    }
+
+    @Override
+    public void run() {
+      long startNanos = metrics.recordStart(submitNanos);
+      try {
+        delegate.run();
+      } finally {
+        metrics.recordEnd(startNanos);
+      }
+    }
+  }
+
+  private static final class MeasuredCallable<V> implements Callable<V> {
+    private final Callable<V> delegate;
+    private final ContextTaskMetrics metrics;
+    private final long submitNanos;
+
+    private MeasuredCallable(Callable<V> delegate, ContextTaskMetrics metrics, long submitNanos) {
+      this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+      this.metrics = metrics;
+      this.submitNanos = submitNanos;
+    }
+
+    @Override
+    public V call() throws Exception {
+      long startNanos = metrics.recordStart(submitNanos);
+      try {
+        return delegate.call();
+      } finally {
+        metrics.recordEnd(startNanos);
+      }
+    }
+  }
+}
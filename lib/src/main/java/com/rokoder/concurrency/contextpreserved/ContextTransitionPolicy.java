@@ -0,0 +1,71 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Policy deciding when the Context Preserved classes can skip a {@link ThreadLocal} context
+ * transition. A transition is the set of the new context before running a task and the restore of
+ * the previous context after it.
+ */
+public enum ContextTransitionPolicy {
+  /**
+   * Always set the new context and restore the previous one. This is the default.
+   */
+  ALWAYS,
+
+  /**
+   * Skip the set and the restore when the context of the running thread is the same instance as
+   * the new context, including when both are {@code null}. This happens with same thread executors,
+   * caller runs rejection and serial pipelines reusing one context.
+   *
+   * <p>An elided transition also skips the restore, so a task which changes the context leaks the
+   * change to the thread running it, which is the caller thread with same thread executors and
+   * caller runs rejection.
+   */
+  ELIDE_IDENTICAL,
+
+  /**
+   * Same as {@link #ELIDE_IDENTICAL}, and additionally skip decorating the task altogether when the
+   * new context is {@code null}. Such task runs with whatever context the running thread holds, so
+   * it should only be used when worker threads do not hold a context of their own. Like with
+   * {@link #ELIDE_IDENTICAL}, a task which changes the context during an elided transition leaks
+   * the change to the thread running it.
+   */
+  ELIDE_IDENTICAL_AND_NULL,
+
+  /**
+   * Only set the new context, without getting nor restoring the previous one. It is only valid
+   * when every task runs on a new thread which terminates after the task, like the threads of
+   * {@code Executors.newVirtualThreadPerTaskExecutor()}. With pooled threads the context would leak
+   * into the next task of the thread, so the executor decorators reject it. It is used by
+   * {@link ContextPreservedThreadFactory}, and on Java 21 by {@code ContextPreservedVirtualThreads}
+   * and {@code ContextPreservedTaskScope}.
+   */
+  INSTALL_ONLY;
+
+  boolean elidesIdentical() {
+    return this == ELIDE_IDENTICAL || this == ELIDE_IDENTICAL_AND_NULL;
+  }
+
+  boolean installsOnly() {
+    return this == INSTALL_ONLY;
+  }
+
+  boolean elidesWrap(@Nullable Object newContext) {
+    return this == ELIDE_IDENTICAL_AND_NULL && newContext == null;
+  }
+
+  /**
+   * Check passed policy restores the previous context, as required by the decorators of executors
+   * which may run many tasks on the same thread.
+   */
+  static ContextTransitionPolicy requireRestoring(ContextTransitionPolicy transitionPolicy) {
+    Objects.requireNonNull(transitionPolicy, "transitionPolicy cannot be null");
+    if (transitionPolicy == INSTALL_ONLY) {
+      throw new IllegalArgumentException(
+          "INSTALL_ONLY can only be used when every task runs on a new thread");
+    }
+    return transitionPolicy;
+  }
+}
@@ -0,0 +1,362 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Base of the {@link java.util.concurrent.ExecutorService}s which preserve the {@link ThreadLocal}
+ * context across thread boundaries by queuing the captured context next to the task, and running
+ * the tasks on their own worker threads. It owns the worker threads, the lifecycle of the executor
+ * and the loop installing the context of the tasks, while the subclasses only decide the queuing
+ * policy.
+ *
+ * <p>The queue of the subclasses is guarded by a single lock, and is only accessed through
+ * {@link #enqueue(Task)} and {@link #dequeue(int)}, which are called with the lock held. Idle
+ * workers block until {@link #signalNotEmpty(Task)} wakes them up, they never poll.
+ *
+ * <p>A worker only sets the context when the next task carries a different context instance than
+ * the one it holds, and restores its previous context when it runs out of tasks. A task throwing a
+ * {@link RuntimeException} is reported to the uncaught exception handler of the worker thread,
+ * which keeps running the next tasks. A task throwing an {@link Error} terminates its worker thread
+ * like with {@link java.util.concurrent.ThreadPoolExecutor}, and a new worker thread replaces it.
+ * The interrupt status left by a task is cleared before the next one.
+ *
+ * @param <C> Type of context
+ * @param <T> Type of the queued tasks
+ */
+abstract class ContextWorkerPool<C, T extends ContextWorkerPool.Task<C>>
+    extends AbstractExecutorService {
+  final ReentrantLock lock = new ReentrantLock();
+  private final ThreadFactory threadFactory;
+  private final ContextCoordinator<C> contextCoordinator;
+  private final Thread[] workers;
+  private final CountDownLatch terminationLatch;
+  // One condition per worker, so that a task can wake up the worker meant to run it. The waiting
+  // workers form a stack, the last one to wait is woken up first as its cache is the warmest, and
+  // each worker knows its position in the stack, or -1 when it is not waiting.
+  private final Condition[] notEmpty;
+  private final int[] waitingWorkers;
+  private final int[] waitingPositions;
+  private int waitingCount;
+  private boolean shutdown;
+
+  ContextWorkerPool(int threads, ThreadFactory threadFactory,
+                    ContextCoordinator<C> contextCoordinator) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
+    this.threadFactory = Objects.requireNonNull(threadFactory, "threadFactory cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.workers = new Thread[threads];
+    this.terminationLatch = new CountDownLatch(threads);
+    this.notEmpty = new Condition[threads];
+    this.waitingWorkers = new int[threads];
+    this.waitingPositions = new int[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = Objects.requireNonNull(newWorker(i), "threadFactory returned null thread");
+      notEmpty[i] = lock.newCondition();
+      waitingPositions[i] = -1;
+    }
+  }
+
+  /**
+   * Starts the worker threads. The factories of the subclasses call it once the executor is fully
+   * constructed.
+   */
+  final void start() {
+    for (Thread worker : workers) {
+      worker.start();
+    }
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    Objects.requireNonNull(command, "command cannot be null");
+    T task = newTask(command, contextCoordinator.capture());
+    boolean queued;
+    lock.lock();
+    try {
+      if (shutdown) {
+        throw new RejectedExecutionException("executor is shut down");
+      }
+      queued = enqueue(task);
+      if (queued) {
+        signalNotEmpty(task);
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (!queued) {
+      rejected(task);
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    lock.lock();
+    try {
+      shutdown = true;
+      signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> pendingTasks = new ArrayList<>();
+    lock.lock();
+    try {
+      shutdown = true;
+      for (int i = 0; i < workers.length; i++) {
+        T task;
+        while ((task = dequeue(i)) != null) {
+          pendingTasks.add(task.command);
+        }
+      }
+      signalAll();
+      for (Thread worker : workers) {
+        worker.interrupt();
+      }
+    } finally {
+      lock.unlock();
+    }
+    return pendingTasks;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    lock.lock();
+    try {
+      return shutdown;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return terminationLatch.getCount() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return terminationLatch.await(timeout, unit);
+  }
+
+  /**
+   * Creates the queued task of the passed command, out of the lock.
+   *
+   * @param command Command to run
+   * @param context Context captured from the calling thread
+   * @return Task to queue
+   */
+  abstract T newTask(Runnable command, @Nullable C context);
+
+  /**
+   * Queues the passed task. It is called with the lock held.
+   *
+   * @param task Task to queue
+   * @return {@code true} if the task is queued, {@code false} if it is rejected
+   */
+  abstract boolean enqueue(T task);
+
+  /**
+   * Dequeues the next task to run by the passed worker. It is called with the lock held.
+   *
+   * @param worker Index of the worker, between 0 and the number of workers
+   * @return Next task to run, or {@code null} if there is no queued task for the worker
+   */
+  abstract @Nullable T dequeue(int worker);
+
+  /**
+   * Wakes up a worker to run the passed task, which was just queued. It is called with the lock
+   * held. The default implementation wakes up any waiting worker.
+   *
+   * @param task Queued task
+   */
+  void signalNotEmpty(T task) {
+    if (waitingCount > 0) {
+      signal(waitingWorkers[waitingCount - 1]);
+    }
+  }
+
+  /**
+   * Wakes up the passed worker if it is waiting for a task. It is called with the lock held.
+   *
+   * @param worker Index of the worker
+   * @return {@code true} if the worker was waiting
+   */
+  final boolean signal(int worker) {
+    if (waitingPositions[worker] < 0) {
+      return false;
+    }
+    removeWaiting(worker);
+    notEmpty[worker].signal();
+    return true;
+  }
+
+  /**
+   * Handles the passed task rejected by {@link #enqueue(Task)}, out of the lock. The default
+   * implementation throws a {@link RejectedExecutionException}.
+   *
+   * @param task Rejected task
+   */
+  void rejected(T task) {
+    throw new RejectedExecutionException("queue is full");
+  }
+
+  /**
+   * Runs the passed dequeued task on the current worker thread, with its context installed. The
+   * subclasses can override it to skip some tasks.
+   *
+   * @param task Dequeued task
+   * @param coordinator Coordinator bound to the current worker thread
+   */
+  void runTask(T task, ContextCoordinator<C> coordinator) {
+    if (coordinator.get() != task.context) {
+      coordinator.set(task.context);
+    }
+    try {
+      task.command.run();
+    } catch (RuntimeException e) {
+      reportException(e);
+    }
+  }
+
+  /**
+   * Reports the passed exception to the uncaught exception handler of the current thread.
+   *
+   * @param e Exception to report
+   */
+  static void reportException(Exception e) {
+    Thread thread = Thread.currentThread();
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+
+  private void signalAll() {
+    while (waitingCount > 0) {
+      signal(waitingWorkers[waitingCount - 1]);
+    }
+  }
+
+  private void removeWaiting(int worker) {
+    int position = waitingPositions[worker];
+    int last = waitingWorkers[--waitingCount];
+    waitingWorkers[position] = last;
+    waitingPositions[last] = position;
+    waitingPositions[worker] = -1;
+  }
+
+  private @Nullable T poll(int worker) {
+    lock.lock();
+    try {
+      return dequeue(worker);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private @Nullable T take(int worker) {
+    lock.lock();
+    try {
+      T task;
+      while ((task = dequeue(worker)) == null && !shutdown) {
+        waitingPositions[worker] = waitingCount;
+        waitingWorkers[waitingCount++] = worker;
+        // Only a signal, which removes the worker from the waiting ones, stops the wait, and
+        // shutdown signals all of them. The interrupts of shutdownNow are meant for the running
+        // tasks.
+        do {
+          notEmpty[worker].awaitUninterruptibly();
+        } while (waitingPositions[worker] >= 0);
+      }
+      return task;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private @Nullable Thread newWorker(int index) {
+    return threadFactory.newThread(() -> work(index));
+  }
+
+  private void work(int index) {
+    // Workers never leave their thread, so the coordinator is bound once for all their tasks
+    ContextCoordinator<C> coordinator = ThreadLocalContextCoordinator.bind(contextCoordinator);
+    C prevContext = coordinator.get();
+    boolean completed = false;
+    try {
+      while (true) {
+        T task = poll(index);
+        if (task == null) {
+          if (coordinator.get() != prevContext) {
+            coordinator.set(prevContext);
+          }
+          task = take(index);
+          if (task == null) {
+            completed = true;
+            return;
+          }
+        }
+        runTask(task, coordinator);
+        // An interrupt left by the task would fail the first blocking call of the next one. The
+        // interrupts of shutdownNow are meant for the running task, the shutdown flag stops the
+        // worker.
+        Thread.interrupted();
+      }
+    } finally {
+      coordinator.set(prevContext);
+      if (completed) {
+        terminationLatch.countDown();
+      } else {
+        replaceWorker(index);
+      }
+    }
+  }
+
+  /**
+   * Replaces the worker at the passed index, whose thread is terminated by an {@link Error} thrown
+   * by a task. The error keeps propagating to the uncaught exception handler of the thread.
+   */
+  private void replaceWorker(int index) {
+    Thread worker = newWorker(index);
+    if (worker == null) {
+      // The pool runs with one worker less, but still terminates
+      terminationLatch.countDown();
+      return;
+    }
+    lock.lock();
+    try {
+      workers[index] = worker;
+    } finally {
+      lock.unlock();
+    }
+    worker.start();
+  }
+
+  /**
+   * Task queued with the context captured at the time of its submission.
+   *
+   * @param <C> Type of context
+   */
+  static class Task<C> {
+    final Runnable command;
+    final @Nullable C context;
+
+    Task(Runnable command, @Nullable C context) {
+      this.command = command;
+      this.context = context;
+    }
+  }
+}
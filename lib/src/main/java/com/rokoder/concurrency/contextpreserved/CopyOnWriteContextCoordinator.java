@@ -0,0 +1,104 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link ContextCoordinator} for mutable {@link ThreadLocal} contexts which makes
+ * {@link #capture()} an O(1) reference capture. Copying a mutable context at every capture is
+ * expensive, and wasted for tasks which are rejected, cancelled or never mutate it. Instead the
+ * captured instance is remembered as shared with other threads, and it is copied lazily, only when
+ * it is about to be mutated again through {@link #mutableContext()}.
+ *
+ * <p>The identity of the context instance acts as its version. Successive captures of an
+ * unchanged context return the same instance, which also lets the Context Preserved classes skip
+ * redundant transitions when the running thread already holds it.
+ *
+ * <p>All the mutations of the context must go through the instance returned by
+ * {@link #mutableContext()}, else the captured snapshots observe them.
+ *
+ * @param <C> Type of context
+ */
+public abstract class CopyOnWriteContextCoordinator<C> implements ContextCoordinator<C> {
+  private final ThreadLocal<Object> sharedContext = new ThreadLocal<>();
+
+  /**
+   * Get the {@link ThreadLocal} context.
+   *
+   * @return Current context
+   */
+  @Nullable
+  protected abstract C getContext();
+
+  /**
+   * Set the {@link ThreadLocal} context.
+   *
+   * @param context New context
+   */
+  protected abstract void setContext(@Nullable C context);
+
+  /**
+   * Create a copy of the passed context, which can be mutated without affecting the passed one.
+   *
+   * @param context Context to copy
+   * @return Copy of the context
+   */
+  protected abstract C copy(C context);
+
+  @Override
+  @Nullable
+  public final C get() {
+    return getContext();
+  }
+
+  /**
+   * Set the {@link ThreadLocal} context. The context is considered shared, as it can be installed
+   * on other threads too, so it is copied before the next mutation on this thread.
+   *
+   * @param context New context
+   */
+  @Override
+  public final void set(@Nullable C context) {
+    setContext(context);
+    markShared(context);
+  }
+
+  /**
+   * Capture the {@link ThreadLocal} context by reference without copying it. It is copied before
+   * the next mutation on this thread instead.
+   *
+   * @return Captured context
+   */
+  @Override
+  @Nullable
+  public final C capture() {
+    C context = getContext();
+    markShared(context);
+    return context;
+  }
+
+  /**
+   * Get the {@link ThreadLocal} context to be mutated. If the current context was captured or
+   * installed, it is copied and the copy becomes the current context, otherwise the current
+   * context is returned as is.
+   *
+   * @return Current context which is safe to mutate, or {@code null} if there is no context
+   */
+  @Nullable
+  public final C mutableContext() {
+    C context = getContext();
+    if (context != null && sharedContext.get() == context) {
+      context = copy(context);
+      setContext(context);
+      sharedContext.remove();
+    }
+    return context;
+  }
+
+  private void markShared(@Nullable C context) {
+    if (context == null) {
+      sharedContext.remove();
+    } else if (sharedContext.get() != context) {
+      sharedContext.set(context);
+    }
+  }
+}
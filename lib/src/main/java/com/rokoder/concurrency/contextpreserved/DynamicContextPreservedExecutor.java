@@ -2,23 +2,37 @@ package com.rokoder.concurrency.contextpreserved;
 
 import java.util.Objects;
 import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
 
 /**
  * An {@link Executor} which preserves the {@link ThreadLocal} context across thread boundaries. It
  * captures the new context from thread calling {@link Executor#execute(Runnable)} and uses it for
  * new thread which will execute {@link Executor#execute(Runnable)}
  *
+ * <p>Wrapping is idempotent. Wrapping a {@link DynamicContextPreservedExecutor} again with the same
+ * {@link ContextCoordinator} and {@link ContextTransitionPolicy} returns it unchanged, and with a
+ * different {@link ContextCoordinator} fuses both into a single wrapper using a
+ * {@link CompositeContextCoordinator}, so the tasks pay for a single decoration.
+ *
  * @param <C> Type of context
  */
 public final class DynamicContextPreservedExecutor<C> implements Executor {
   private final Executor delegate;
   private final ContextCoordinator<C> contextCoordinator;
+  private final ContextTransitionPolicy transitionPolicy;
+  @Nullable
+  private final ContextTaskMetrics metrics;
 
   private DynamicContextPreservedExecutor(Executor delegate,
-                                          ContextCoordinator<C> contextCoordinator) {
+                                          ContextCoordinator<C> contextCoordinator,
+                                          ContextTransitionPolicy transitionPolicy,
+                                          @Nullable ContextTaskMetrics metrics) {
     this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
     this.contextCoordinator =
         Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.transitionPolicy =
+        Objects.requireNonNull(transitionPolicy, "transitionPolicy cannot be null");
+    this.metrics = metrics;
   }
 
   /**
@@ -34,12 +48,75 @@ public final class DynamicContextPreservedExecutor<C> implements Executor {
    * @return Newly created wrapped {@link Executor}
    */
   public static <C> Executor wrap(Executor executor, ContextCoordinator<C> contextCoordinator) {
-    return new DynamicContextPreservedExecutor<>(executor, contextCoordinator);
+    return fuse(executor, contextCoordinator, ContextTransitionPolicy.ALWAYS);
+  }
+
+  /**
+   * Decorates the passed {@link Executor} with a new one which preserves the {@link ThreadLocal}
+   * context across thread boundaries using passed {@link ContextCoordinator}. The new context used
+   * is captured at the time of the call to {@link Executor#execute(Runnable)}, using passed
+   * {@link ContextCoordinator}. The passed {@link ContextTransitionPolicy} decides when the set and
+   * restore of the context can be skipped.
+   *
+   * @param executor Executor to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link Executor}
+   */
+  public static <C> Executor wrap(Executor executor, ContextCoordinator<C> contextCoordinator,
+                                  ContextTransitionPolicy transitionPolicy) {
+    return fuse(executor, contextCoordinator, transitionPolicy);
+  }
+
+  /**
+   * Same as {@link #wrap(Executor, ContextCoordinator, ContextTransitionPolicy)}, and additionally
+   * records the context captures, queue wait and execution time of the tasks into passed
+   * {@link ContextTaskMetrics}.
+   *
+   * @param executor Executor to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param metrics Metrics to record into
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link Executor}
+   */
+  public static <C> Executor wrap(Executor executor, ContextCoordinator<C> contextCoordinator,
+                                  ContextTransitionPolicy transitionPolicy,
+                                  ContextTaskMetrics metrics) {
+    return new DynamicContextPreservedExecutor<>(executor, contextCoordinator,
+        ContextTransitionPolicy.requireRestoring(transitionPolicy),
+        Objects.requireNonNull(metrics, "metrics cannot be null"));
+  }
+
+  private static <C> Executor fuse(Executor executor, ContextCoordinator<C> contextCoordinator,
+                                   ContextTransitionPolicy transitionPolicy) {
+    Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    ContextTransitionPolicy.requireRestoring(transitionPolicy);
+    if (executor instanceof DynamicContextPreservedExecutor) {
+      DynamicContextPreservedExecutor<?> wrapped = (DynamicContextPreservedExecutor<?>) executor;
+      if (wrapped.metrics == null && wrapped.transitionPolicy == transitionPolicy) {
+        if (wrapped.contextCoordinator == contextCoordinator) {
+          return executor;
+        }
+        return new DynamicContextPreservedExecutor<>(wrapped.delegate,
+            CompositeContextCoordinator.fuse(wrapped.contextCoordinator, contextCoordinator),
+            transitionPolicy, null);
+      }
+    }
+    return new DynamicContextPreservedExecutor<>(executor, contextCoordinator, transitionPolicy,
+        null);
   }
 
   @Override
   public void execute(Runnable command) {
-    delegate.execute(ContextPreservedRunnable.wrap(command, contextCoordinator,
-        contextCoordinator.get()));
+    C context = contextCoordinator.capture();
+    Runnable task =
+        ContextPreservedRunnable.wrap(command, contextCoordinator, context, transitionPolicy);
+    if (metrics != null) {
+      metrics.recordCapture(context);
+      task = metrics.measure(task);
+    }
+    delegate.execute(task);
   }
 }
@@ -1,6 +1,9 @@
 package com.rokoder.concurrency.contextpreserved;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
@@ -9,7 +12,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
@@ -17,17 +19,33 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * boundaries. It captures the new context from calling thread and uses it for new thread which will
  * execute the command
  *
+ * <p>Wrapping is idempotent. Wrapping a {@link DynamicContextPreservedExecutorService} again with
+ * the same {@link ContextCoordinator} and {@link ContextTransitionPolicy} returns it unchanged, and
+ * with a different {@link ContextCoordinator} the {@code wrap} apis fuse both into a single wrapper
+ * using a {@link CompositeContextCoordinator}, so the tasks pay for a single decoration.
+ * {@link #shutdownNow()} returns the original commands passed to {@link #execute(Runnable)} and
+ * {@code executeAll} of this executor, and the tasks submitted by others to the delegate as queued,
+ * while the tasks passed to {@code submit} and {@code invokeAll} come back as the
+ * {@link java.util.concurrent.FutureTask}s of the delegate.
+ *
  * @param <C> Type of context
  */
 public class DynamicContextPreservedExecutorService<C> implements ExecutorService {
   private final ExecutorService delegate;
   private final ContextCoordinator<C> contextCoordinator;
+  private final ContextTransitionPolicy transitionPolicy;
+  private final @Nullable ContextTaskMetrics metrics;
 
-  private DynamicContextPreservedExecutorService(ExecutorService delegate,
-                                                 ContextCoordinator<C> contextCoordinator) {
+  DynamicContextPreservedExecutorService(ExecutorService delegate,
+                                         ContextCoordinator<C> contextCoordinator,
+                                         ContextTransitionPolicy transitionPolicy,
+                                         @Nullable ContextTaskMetrics metrics) {
     this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
     this.contextCoordinator =
         Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.transitionPolicy =
+        Objects.requireNonNull(transitionPolicy, "transitionPolicy cannot be null");
+    this.metrics = metrics;
   }
 
   /**
@@ -43,7 +61,116 @@ public class DynamicContextPreservedExecutorService<C> implements ExecutorServic
    */
   public static <C> ExecutorService wrap(ExecutorService executorService,
                                          ContextCoordinator<C> contextCoordinator) {
-    return new DynamicContextPreservedExecutorService<>(executorService, contextCoordinator);
+    return wrap(executorService, contextCoordinator, ContextTransitionPolicy.ALWAYS);
+  }
+
+  /**
+   * Decorates the passed {@link ExecutorService} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is captured at the time of the call to command execution apis, using
+   * passed {@link ContextCoordinator}. The passed {@link ContextTransitionPolicy} decides when the
+   * set and restore of the context can be skipped.
+   *
+   * @param executorService Executor service to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ExecutorService}
+   */
+  public static <C> ExecutorService wrap(ExecutorService executorService,
+                                         ContextCoordinator<C> contextCoordinator,
+                                         ContextTransitionPolicy transitionPolicy) {
+    DynamicContextPreservedExecutorService<?> wrapped =
+        asFusable(executorService, contextCoordinator, transitionPolicy);
+    if (wrapped == null) {
+      return new DynamicContextPreservedExecutorService<>(executorService, contextCoordinator,
+          transitionPolicy, null);
+    }
+    if (wrapped.contextCoordinator == contextCoordinator) {
+      return wrapped;
+    }
+    return new DynamicContextPreservedExecutorService<>(wrapped.delegate,
+        CompositeContextCoordinator.fuse(wrapped.contextCoordinator, contextCoordinator),
+        transitionPolicy, null);
+  }
+
+  /**
+   * Same as {@link #wrap(ExecutorService, ContextCoordinator)}, but returns the concrete type which
+   * also exposes the batch apis like {@link #submitAll(Collection)} and
+   * {@link #executeAll(Collection, int)}.
+   *
+   * @param executorService Executor service to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ExecutorService}
+   */
+  public static <C> DynamicContextPreservedExecutorService<C> of(
+      ExecutorService executorService, ContextCoordinator<C> contextCoordinator) {
+    return of(executorService, contextCoordinator, ContextTransitionPolicy.ALWAYS);
+  }
+
+  /**
+   * Same as {@link #wrap(ExecutorService, ContextCoordinator, ContextTransitionPolicy)}, but
+   * returns the concrete type which also exposes the batch apis like {@link #submitAll(Collection)}
+   * and {@link #executeAll(Collection, int)}. An executor service already wrapped with the same
+   * {@link ContextCoordinator} and {@link ContextTransitionPolicy} is returned unchanged, but one
+   * wrapped with a different {@link ContextCoordinator} is not fused as the context type differs.
+   *
+   * @param executorService Executor service to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ExecutorService}
+   */
+  public static <C> DynamicContextPreservedExecutorService<C> of(
+      ExecutorService executorService, ContextCoordinator<C> contextCoordinator,
+      ContextTransitionPolicy transitionPolicy) {
+    DynamicContextPreservedExecutorService<?> wrapped =
+        asFusable(executorService, contextCoordinator, transitionPolicy);
+    if (wrapped != null && wrapped.contextCoordinator == contextCoordinator) {
+      // Same coordinator instance, so the context type is C
+      @SuppressWarnings("unchecked")
+      DynamicContextPreservedExecutorService<C> sameWrapped =
+          (DynamicContextPreservedExecutorService<C>) wrapped;
+      return sameWrapped;
+    }
+    return new DynamicContextPreservedExecutorService<>(executorService, contextCoordinator,
+        transitionPolicy, null);
+  }
+
+  /**
+   * Same as {@link #of(ExecutorService, ContextCoordinator, ContextTransitionPolicy)}, and
+   * additionally records the context captures, queue wait and execution time of the tasks into
+   * passed {@link ContextTaskMetrics}.
+   *
+   * @param executorService Executor service to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param metrics Metrics to record into
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ExecutorService}
+   */
+  public static <C> DynamicContextPreservedExecutorService<C> of(
+      ExecutorService executorService, ContextCoordinator<C> contextCoordinator,
+      ContextTransitionPolicy transitionPolicy, ContextTaskMetrics metrics) {
+    return new DynamicContextPreservedExecutorService<>(executorService, contextCoordinator,
+        ContextTransitionPolicy.requireRestoring(transitionPolicy),
+        Objects.requireNonNull(metrics, "metrics cannot be null"));
+  }
+
+  /**
+   * Decorates the passed {@link ExecutorService}, which must run every task on a new thread, with
+   * the {@link ContextTransitionPolicy#INSTALL_ONLY} policy.
+   *
+   * @param executorService Executor service to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ExecutorService}
+   */
+  static <C> ExecutorService wrapThreadPerTask(ExecutorService executorService,
+                                               ContextCoordinator<C> contextCoordinator) {
+    return new DynamicContextPreservedExecutorService<>(executorService, contextCoordinator,
+        ContextTransitionPolicy.INSTALL_ONLY, null);
   }
 
   @Override
@@ -53,7 +180,19 @@ public class DynamicContextPreservedExecutorService<C> implements ExecutorServic
 
   @Override
   public List<Runnable> shutdownNow() {
-    return delegate.shutdownNow();
+    List<Runnable> pendingTasks = delegate.shutdownNow();
+    List<Runnable> originalTasks = new ArrayList<>(pendingTasks.size());
+    for (Runnable pendingTask : pendingTasks) {
+      // Only the decorators of this executor are removed, the tasks of others come back as queued
+      Runnable task = ContextPreservedRunnable.unwrap(
+          metrics == null ? pendingTask : metrics.unwrap(pendingTask), this);
+      if (task instanceof BatchRunnable) {
+        Collections.addAll(originalTasks, ((BatchRunnable) task).commands);
+      } else {
+        originalTasks.add(task);
+      }
+    }
+    return originalTasks;
   }
 
   @Override
@@ -74,23 +213,20 @@ public class DynamicContextPreservedExecutorService<C> implements ExecutorServic
   @SuppressWarnings("keyfor")
   @Override
   public <T> Future<T> submit(Callable<T> task) {
-    return delegate.submit(ContextPreservedCallable.wrap(task, contextCoordinator,
-        contextCoordinator.get()));
+    return delegate.submit(wrapTask(task));
   }
 
   @SuppressWarnings("keyfor")
   @Override
   public <T> Future<T> submit(Runnable task, T result) {
-    return delegate.submit(ContextPreservedRunnable.wrap(task, contextCoordinator,
-        contextCoordinator.get()), result);
+    return delegate.submit(wrapTask(task), result);
   }
 
   // Added org.checkerframework.checker.nullness.qual.Nullable as CheckerFramework is failing and
   // requires @Initialized @NonNull Future<@Nullable ? extends @Initialized @Nullable Object>
   @Override
   public Future<@Nullable ?> submit(Runnable task) {
-    return delegate.submit(ContextPreservedRunnable.wrap(task, contextCoordinator,
-        contextCoordinator.get()));
+    return delegate.submit(wrapTask(task));
   }
 
   @SuppressWarnings("keyfor")
@@ -98,9 +234,7 @@ public class DynamicContextPreservedExecutorService<C> implements ExecutorServic
   public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
       throws InterruptedException {
     Objects.requireNonNull(tasks, "tasks cannot be null");
-    List<Callable<T>> wrappedTaskList =
-        tasks.stream().map((k) -> ContextPreservedCallable.wrap(k, contextCoordinator,
-            contextCoordinator.get())).collect(Collectors.toList());
+    List<Callable<T>> wrappedTaskList = wrapTasks(tasks, capture());
     return delegate.invokeAll(wrappedTaskList);
   }
 
@@ -109,9 +243,7 @@ public class DynamicContextPreservedExecutorService<C> implements ExecutorServic
   public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout,
                                        TimeUnit unit) throws InterruptedException {
     Objects.requireNonNull(tasks, "tasks cannot be null");
-    List<Callable<T>> wrappedTaskList =
-        tasks.stream().map((k) -> ContextPreservedCallable.wrap(k, contextCoordinator,
-            contextCoordinator.get())).collect(Collectors.toList());
+    List<Callable<T>> wrappedTaskList = wrapTasks(tasks, capture());
     return delegate.invokeAll(wrappedTaskList, timeout, unit);
   }
 
@@ -120,9 +252,7 @@ public class DynamicContextPreservedExecutorService<C> implements ExecutorServic
   public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
       throws InterruptedException, ExecutionException {
     Objects.requireNonNull(tasks, "tasks cannot be null");
-    List<Callable<T>> wrappedTaskList =
-        tasks.stream().map((k) -> ContextPreservedCallable.wrap(k, contextCoordinator,
-            contextCoordinator.get())).collect(Collectors.toList());
+    List<Callable<T>> wrappedTaskList = wrapTasks(tasks, capture());
     return delegate.invokeAny(wrappedTaskList);
   }
 
@@ -131,15 +261,183 @@ public class DynamicContextPreservedExecutorService<C> implements ExecutorServic
   public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
       throws InterruptedException, ExecutionException, TimeoutException {
     Objects.requireNonNull(tasks, "tasks cannot be null");
-    List<Callable<T>> wrappedTaskList =
-        tasks.stream().map((k) -> ContextPreservedCallable.wrap(k, contextCoordinator,
-            contextCoordinator.get())).collect(Collectors.toList());
+    List<Callable<T>> wrappedTaskList = wrapTasks(tasks, capture());
     return delegate.invokeAny(wrappedTaskList, timeout, unit);
   }
 
   @Override
   public void execute(Runnable command) {
-    delegate.execute(ContextPreservedRunnable.wrap(command, contextCoordinator,
-        contextCoordinator.get()));
+    delegate.execute(wrapTask(command));
+  }
+
+  /**
+   * Submits all the passed tasks for execution. The new context is captured once for the whole
+   * batch, using passed {@link ContextCoordinator}, and shared by all the tasks.
+   *
+   * @param tasks Tasks to submit
+   * @param <T> Result type of the tasks
+   * @return List of futures, in the same order as the passed tasks
+   */
+  public <T> List<Future<T>> submitAll(Collection<? extends Callable<T>> tasks) {
+    Objects.requireNonNull(tasks, "tasks cannot be null");
+    C context = capture();
+    List<Future<T>> futureList = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      futureList.add(delegate.submit(wrapTask(task, context)));
+    }
+    return futureList;
+  }
+
+  /**
+   * Executes all the passed commands. The new context is captured once for the whole batch, using
+   * passed {@link ContextCoordinator}, and shared by all the commands.
+   *
+   * @param commands Commands to execute
+   */
+  public void executeAll(Collection<? extends Runnable> commands) {
+    Objects.requireNonNull(commands, "commands cannot be null");
+    C context = capture();
+    for (Runnable command : commands) {
+      delegate.execute(wrapTask(command, context));
+    }
+  }
+
+  /**
+   * Executes all the passed commands, packing up to {@code commandsPerTask} consecutive commands
+   * into a single task of the delegate. The new context is captured once for the whole batch, using
+   * passed {@link ContextCoordinator}, and installed once per delegate task. It cuts the delegate
+   * submissions and context transitions for many small commands.
+   *
+   * <p>Commands of a delegate task run in order on the same thread. A command throwing an
+   * exception does not prevent the next commands of the same delegate task from running, the first
+   * exception is rethrown at the end with the next ones added as suppressed.
+   *
+   * @param commands Commands to execute
+   * @param commandsPerTask Maximum number of commands packed into one delegate task
+   */
+  public void executeAll(Collection<? extends Runnable> commands, int commandsPerTask) {
+    Objects.requireNonNull(commands, "commands cannot be null");
+    if (commandsPerTask < 1) {
+      throw new IllegalArgumentException("commandsPerTask must be positive: " + commandsPerTask);
+    }
+    C context = capture();
+    Iterator<? extends Runnable> iterator = commands.iterator();
+    int remaining = commands.size();
+    while (remaining > 0) {
+      Runnable[] batch = new Runnable[Math.min(remaining, commandsPerTask)];
+      for (int i = 0; i < batch.length; i++) {
+        batch[i] = Objects.requireNonNull(iterator.next(), "command cannot be null");
+      }
+      remaining -= batch.length;
+      delegate.execute(wrapTask(new BatchRunnable(batch), context));
+    }
+  }
+
+  ContextCoordinator<C> getContextCoordinator() {
+    return contextCoordinator;
+  }
+
+  ContextTransitionPolicy getTransitionPolicy() {
+    return transitionPolicy;
+  }
+
+  /**
+   * Decorates the passed {@link Runnable} with the context captured from the calling thread.
+   *
+   * @param task Task to be decorated
+   * @return Decorated task
+   */
+  Runnable wrapTask(Runnable task) {
+    return wrapTask(task, capture());
+  }
+
+  /**
+   * Decorates the passed {@link Callable} with the context captured from the calling thread.
+   *
+   * @param task Task to be decorated
+   * @param <T> Result type of the task
+   * @return Decorated task
+   */
+  <T> Callable<T> wrapTask(Callable<T> task) {
+    return wrapTask(task, capture());
+  }
+
+  /**
+   * Get passed executor service as a {@link DynamicContextPreservedExecutorService} which can be
+   * fused with a new wrapper using passed arguments, or {@code null} if it cannot.
+   */
+  private static @Nullable DynamicContextPreservedExecutorService<?> asFusable(
+      ExecutorService executorService, ContextCoordinator<?> contextCoordinator,
+      ContextTransitionPolicy transitionPolicy) {
+    Objects.requireNonNull(executorService, "delegate cannot be null");
+    Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    ContextTransitionPolicy.requireRestoring(transitionPolicy);
+    // Subclasses decorate more apis than the ones known here, so only this exact class is fused
+    if (executorService.getClass() != DynamicContextPreservedExecutorService.class) {
+      return null;
+    }
+    DynamicContextPreservedExecutorService<?> wrapped =
+        (DynamicContextPreservedExecutorService<?>) executorService;
+    return wrapped.metrics == null && wrapped.transitionPolicy == transitionPolicy
+        ? wrapped : null;
+  }
+
+  private @Nullable C capture() {
+    C context = contextCoordinator.capture();
+    if (metrics != null) {
+      metrics.recordCapture(context);
+    }
+    return context;
+  }
+
+  private Runnable wrapTask(Runnable task, @Nullable C context) {
+    Runnable wrappedTask =
+        ContextPreservedRunnable.wrap(task, contextCoordinator, context, transitionPolicy, this);
+    return metrics == null ? wrappedTask : metrics.measure(wrappedTask);
+  }
+
+  private <T> Callable<T> wrapTask(Callable<T> task, @Nullable C context) {
+    Callable<T> wrappedTask =
+        ContextPreservedCallable.wrap(task, contextCoordinator, context, transitionPolicy);
+    return metrics == null ? wrappedTask : metrics.measure(wrappedTask);
+  }
+
+  private <T> List<Callable<T>> wrapTasks(Collection<? extends Callable<T>> tasks,
+                                          @Nullable C context) {
+    List<Callable<T>> wrappedTaskList = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      wrappedTaskList.add(wrapTask(task, context));
+    }
+    return wrappedTaskList;
+  }
+
+  /**
+   * Runs a batch of commands in order within a single context transition.
+   */
+  private static final class BatchRunnable implements Runnable {
+    private final Runnable[] commands;
+
+    private BatchRunnable(Runnable[] commands) {
+      this.commands = commands;
+    }
+
+    @Override
+    public void run() {
+      RuntimeException failure = null;
+      for (Runnable command : commands) {
+        try {
+          command.run();
+        } catch (RuntimeException e) {
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
   }
 }
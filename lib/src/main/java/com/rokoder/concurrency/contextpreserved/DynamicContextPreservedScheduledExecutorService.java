@@ -0,0 +1,110 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link ScheduledExecutorService} which preserves the {@link ThreadLocal} context across thread
+ * boundaries. It captures the new context from calling thread and uses it for new thread which will
+ * execute the command.
+ *
+ * <p>For periodic tasks the context is captured once at the time of the call to
+ * {@link #scheduleAtFixedRate(Runnable, long, long, TimeUnit)} or
+ * {@link #scheduleWithFixedDelay(Runnable, long, long, TimeUnit)}, and the same decorated task is
+ * reused for every period. The returned {@link ScheduledFuture}s are the ones of the delegate, so
+ * they stay cancellable and comparable by delay.
+ *
+ * <p>Like {@link DynamicContextPreservedExecutorService}, wrapping is idempotent and wrapping with
+ * a different {@link ContextCoordinator} fuses both into a single wrapper.
+ *
+ * @param <C> Type of context
+ */
+public final class DynamicContextPreservedScheduledExecutorService<C>
+    extends DynamicContextPreservedExecutorService<C> implements ScheduledExecutorService {
+  private final ScheduledExecutorService delegate;
+
+  private DynamicContextPreservedScheduledExecutorService(
+      ScheduledExecutorService delegate, ContextCoordinator<C> contextCoordinator,
+      ContextTransitionPolicy transitionPolicy) {
+    super(delegate, contextCoordinator, transitionPolicy, null);
+    this.delegate = delegate;
+  }
+
+  /**
+   * Decorates the passed {@link ScheduledExecutorService} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is captured at the time of the call to command execution and scheduling
+   * apis, using passed {@link ContextCoordinator}.
+   *
+   * @param scheduledExecutorService Scheduled executor service to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ScheduledExecutorService}
+   */
+  public static <C> ScheduledExecutorService wrap(ScheduledExecutorService scheduledExecutorService,
+                                                  ContextCoordinator<C> contextCoordinator) {
+    return wrap(scheduledExecutorService, contextCoordinator, ContextTransitionPolicy.ALWAYS);
+  }
+
+  /**
+   * Decorates the passed {@link ScheduledExecutorService} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is captured at the time of the call to command execution and scheduling
+   * apis, using passed {@link ContextCoordinator}. The passed {@link ContextTransitionPolicy}
+   * decides when the set and restore of the context can be skipped.
+   *
+   * @param scheduledExecutorService Scheduled executor service to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param transitionPolicy Policy deciding when context transitions are skipped
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link ScheduledExecutorService}
+   */
+  public static <C> ScheduledExecutorService wrap(ScheduledExecutorService scheduledExecutorService,
+                                                  ContextCoordinator<C> contextCoordinator,
+                                                  ContextTransitionPolicy transitionPolicy) {
+    Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    ContextTransitionPolicy.requireRestoring(transitionPolicy);
+    if (scheduledExecutorService instanceof DynamicContextPreservedScheduledExecutorService) {
+      DynamicContextPreservedScheduledExecutorService<?> wrapped =
+          (DynamicContextPreservedScheduledExecutorService<?>) scheduledExecutorService;
+      if (wrapped.getTransitionPolicy() == transitionPolicy) {
+        if (wrapped.getContextCoordinator() == contextCoordinator) {
+          return wrapped;
+        }
+        return new DynamicContextPreservedScheduledExecutorService<>(wrapped.delegate,
+            CompositeContextCoordinator.fuse(wrapped.getContextCoordinator(), contextCoordinator),
+            transitionPolicy);
+      }
+    }
+    return new DynamicContextPreservedScheduledExecutorService<>(scheduledExecutorService,
+        contextCoordinator, transitionPolicy);
+  }
+
+  // Added org.checkerframework.checker.nullness.qual.Nullable as CheckerFramework is failing and
+  // requires @Initialized @NonNull ScheduledFuture<@Nullable ?>
+  @Override
+  public ScheduledFuture<@Nullable ?> schedule(Runnable command, long delay, TimeUnit unit) {
+    return delegate.schedule(wrapTask(command), delay, unit);
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    return delegate.schedule(wrapTask(callable), delay, unit);
+  }
+
+  @Override
+  public ScheduledFuture<@Nullable ?> scheduleAtFixedRate(Runnable command, long initialDelay,
+                                                          long period, TimeUnit unit) {
+    return delegate.scheduleAtFixedRate(wrapTask(command), initialDelay, period, unit);
+  }
+
+  @Override
+  public ScheduledFuture<@Nullable ?> scheduleWithFixedDelay(Runnable command, long initialDelay,
+                                                             long delay, TimeUnit unit) {
+    return delegate.scheduleWithFixedDelay(wrapTask(command), initialDelay, delay, unit);
+  }
+}
@@ -16,13 +16,17 @@ public final class FixedContextPreservedExecutor<C> implements Executor {
   private final ContextCoordinator<C> contextCoordinator;
   @Nullable
   private final C newContext;
+  @Nullable
+  private final ContextTaskMetrics metrics;
 
   private FixedContextPreservedExecutor(Executor delegate, ContextCoordinator<C> contextCoordinator,
-                                        @Nullable C newContext) {
+                                        @Nullable C newContext,
+                                        @Nullable ContextTaskMetrics metrics) {
     this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
     this.contextCoordinator =
         Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
     this.newContext = newContext;
+    this.metrics = metrics;
   }
 
   /**
@@ -39,7 +43,7 @@ public final class FixedContextPreservedExecutor<C> implements Executor {
    */
   public static <C> Executor wrap(Executor executor, ContextCoordinator<C> contextCoordinator) {
     return new FixedContextPreservedExecutor<>(executor, contextCoordinator,
-        contextCoordinator.get());
+        contextCoordinator.capture(), null);
   }
 
   /**
@@ -56,11 +60,34 @@ public final class FixedContextPreservedExecutor<C> implements Executor {
    */
   public static <C> Executor wrap(Executor executor, ContextCoordinator<C> contextCoordinator,
                                   @Nullable C newContext) {
-    return new FixedContextPreservedExecutor<>(executor, contextCoordinator, newContext);
+    return new FixedContextPreservedExecutor<>(executor, contextCoordinator, newContext, null);
+  }
+
+  /**
+   * Same as {@link #wrap(Executor, ContextCoordinator, Object)}, and additionally records the
+   * queue wait and execution time of the tasks into passed {@link ContextTaskMetrics}. The fixed
+   * context is counted as captured for every task.
+   *
+   * @param executor Executor to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param metrics Metrics to record into
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link Executor}
+   */
+  public static <C> Executor wrap(Executor executor, ContextCoordinator<C> contextCoordinator,
+                                  @Nullable C newContext, ContextTaskMetrics metrics) {
+    return new FixedContextPreservedExecutor<>(executor, contextCoordinator, newContext,
+        Objects.requireNonNull(metrics, "metrics cannot be null"));
   }
 
   @Override
   public void execute(Runnable command) {
-    delegate.execute(ContextPreservedRunnable.wrap(command, contextCoordinator, newContext));
+    Runnable task = ContextPreservedRunnable.wrap(command, contextCoordinator, newContext);
+    if (metrics != null) {
+      metrics.recordCapture(newContext);
+      task = metrics.measure(task);
+    }
+    delegate.execute(task);
   }
 }
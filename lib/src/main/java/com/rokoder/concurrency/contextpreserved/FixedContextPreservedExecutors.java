@@ -0,0 +1,100 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+
+/**
+ * Factory of {@link ExecutorService}s which preserve the same {@link ThreadLocal} context for all
+ * the executed tasks. Unlike {@link FixedContextPreservedExecutor} the tasks are not decorated.
+ * The pools are built on {@link ContextPreservedThreadFactory}, so the context is installed once
+ * per worker thread and there is no per task allocation nor context transition.
+ *
+ * <p><b>Warning:</b> nothing restores the context after a task. A task which sets or replaces the
+ * context leaks it into every later task run on the same worker thread, so tasks must not change
+ * it. Use {@link FixedContextPreservedExecutor} when tasks may change the context.
+ */
+public final class FixedContextPreservedExecutors {
+  private FixedContextPreservedExecutors() {
+  }
+
+  /**
+   * Creates a context preserved version of {@link Executors#newFixedThreadPool(int)}. The context
+   * used is captured, using passed {@link ContextCoordinator}, at the time of call to this api from
+   * the thread that calls it.
+   *
+   * @param threads Number of threads in the pool
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created {@link ExecutorService}
+   */
+  public static <C> ExecutorService newFixedThreadPool(int threads,
+                                                       ContextCoordinator<C> contextCoordinator) {
+    return newFixedThreadPool(threads, contextCoordinator, contextCoordinator.capture());
+  }
+
+  /**
+   * Creates a context preserved version of {@link Executors#newFixedThreadPool(int)}. The context
+   * used is one passed.
+   *
+   * @param threads Number of threads in the pool
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @return Newly created {@link ExecutorService}
+   */
+  public static <C> ExecutorService newFixedThreadPool(int threads,
+                                                       ContextCoordinator<C> contextCoordinator,
+                                                       @Nullable C newContext) {
+    return newFixedThreadPool(threads, Executors.defaultThreadFactory(), contextCoordinator,
+        newContext);
+  }
+
+  /**
+   * Creates a context preserved version of
+   * {@link Executors#newFixedThreadPool(int, ThreadFactory)}. The context used is one passed.
+   *
+   * @param threads Number of threads in the pool
+   * @param threadFactory Thread factory to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @return Newly created {@link ExecutorService}
+   */
+  public static <C> ExecutorService newFixedThreadPool(int threads, ThreadFactory threadFactory,
+                                                       ContextCoordinator<C> contextCoordinator,
+                                                       @Nullable C newContext) {
+    return Executors.newFixedThreadPool(threads,
+        ContextPreservedThreadFactory.wrap(threadFactory, contextCoordinator, newContext));
+  }
+
+  /**
+   * Creates a context preserved version of {@link Executors#newSingleThreadExecutor()}. The context
+   * used is captured, using passed {@link ContextCoordinator}, at the time of call to this api from
+   * the thread that calls it.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created {@link ExecutorService}
+   */
+  public static <C> ExecutorService newSingleThreadExecutor(
+      ContextCoordinator<C> contextCoordinator) {
+    return newSingleThreadExecutor(contextCoordinator, contextCoordinator.capture());
+  }
+
+  /**
+   * Creates a context preserved version of {@link Executors#newSingleThreadExecutor()}. The context
+   * used is one passed.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @return Newly created {@link ExecutorService}
+   */
+  public static <C> ExecutorService newSingleThreadExecutor(
+      ContextCoordinator<C> contextCoordinator, @Nullable C newContext) {
+    return Executors.newSingleThreadExecutor(ContextPreservedThreadFactory.wrap(
+        Executors.defaultThreadFactory(), contextCoordinator, newContext));
+  }
+}
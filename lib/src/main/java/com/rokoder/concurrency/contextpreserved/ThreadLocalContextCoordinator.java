@@ -0,0 +1,94 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link ContextCoordinator} backed by its own {@link ThreadLocal}, which holds a mutable holder
+ * cell per thread instead of the context itself. Once the cell of the running thread is looked up,
+ * the context is read and written with plain field accesses.
+ *
+ * <p>The Context Preserved wrappers, like {@link ContextPreservedRunnable} and
+ * {@link ContextPreservedCallable}, and the executors running the tasks themselves, look up the
+ * cell once per task and use it to get, set and restore the context. It costs a single hash into
+ * the {@code ThreadLocalMap} per task instead of three with a coordinator calling
+ * {@link ThreadLocal#get()} and {@link ThreadLocal#set(Object)}.
+ *
+ * <p>It can be used as is, or extended to add typed accessors to the context. The cell of a thread
+ * stays allocated as long as the thread lives, setting a {@code null} context only clears it.
+ *
+ * @param <C> Type of the context
+ */
+public class ThreadLocalContextCoordinator<C> implements ContextCoordinator<C> {
+  private final ThreadLocal<ContextCell<C>> cells = ThreadLocal.withInitial(ContextCell::new);
+
+  /**
+   * Creates a new coordinator with its own {@link ThreadLocal}.
+   */
+  protected ThreadLocalContextCoordinator() {
+  }
+
+  /**
+   * Creates a new coordinator with its own {@link ThreadLocal}.
+   *
+   * @param <C> Type of the context
+   * @return Newly created coordinator
+   */
+  public static <C> ThreadLocalContextCoordinator<C> create() {
+    return new ThreadLocalContextCoordinator<>();
+  }
+
+  @Override
+  @Nullable
+  public final C get() {
+    return cells.get().get();
+  }
+
+  @Override
+  public final void set(@Nullable C context) {
+    cells.get().set(context);
+  }
+
+  @Override
+  @Nullable
+  public final C swap(@Nullable C newContext) {
+    return cells.get().swap(newContext);
+  }
+
+  /**
+   * Get a coordinator bound to the running thread for the passed one. It is the cell of the
+   * running thread if the passed coordinator is a {@link ThreadLocalContextCoordinator}, else the
+   * passed coordinator itself. The returned coordinator must only be used by the running thread.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of the context
+   * @return Coordinator bound to the running thread
+   */
+  static <C> ContextCoordinator<C> bind(ContextCoordinator<C> contextCoordinator) {
+    return contextCoordinator instanceof ThreadLocalContextCoordinator
+        ? ((ThreadLocalContextCoordinator<C>) contextCoordinator).cells.get() : contextCoordinator;
+  }
+
+  private static final class ContextCell<C> implements ContextCoordinator<C> {
+    @Nullable
+    private C context;
+
+    @Override
+    @Nullable
+    public C get() {
+      return context;
+    }
+
+    @Override
+    public void set(@Nullable C context) {
+      this.context = context;
+    }
+
+    @Override
+    @Nullable
+    public C swap(@Nullable C newContext) {
+      C prevContext = context;
+      context = newContext;
+      return prevContext;
+    }
+  }
+}
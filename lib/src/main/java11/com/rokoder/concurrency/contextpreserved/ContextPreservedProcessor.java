@@ -0,0 +1,97 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Flow.Processor} which preserves the {@link ThreadLocal} context across thread boundaries.
+ * The signals received by the decorated processor, and the signals it sends to its subscribers,
+ * run with the same context, like with {@link ContextPreservedSubscriber}.
+ *
+ * <p>This class is only available on Java 11 and later.
+ *
+ * @param <C> Type of context
+ * @param <T> Type of the items received
+ * @param <R> Type of the items published
+ */
+public final class ContextPreservedProcessor<C, T, R> implements Flow.Processor<T, R> {
+  private final Flow.Processor<T, R> delegate;
+  private final Flow.Subscriber<T> subscriber;
+  private final ContextCoordinator<C> contextCoordinator;
+  @Nullable
+  private final C newContext;
+
+  private ContextPreservedProcessor(Flow.Processor<T, R> delegate,
+                                    ContextCoordinator<C> contextCoordinator,
+                                    @Nullable C newContext) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.newContext = newContext;
+    this.subscriber = ContextPreservedSubscriber.wrap(delegate, contextCoordinator, newContext);
+  }
+
+  /**
+   * Decorates the passed {@link Flow.Processor} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is captured, using passed {@link ContextCoordinator}, at the time of call
+   * to this api from the thread that calls it.
+   *
+   * @param processor Processor to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @param <T> Type of the items received
+   * @param <R> Type of the items published
+   * @return Newly created wrapped {@link Flow.Processor}
+   */
+  public static <C, T, R> Flow.Processor<T, R> wrap(Flow.Processor<T, R> processor,
+                                                    ContextCoordinator<C> contextCoordinator) {
+    return new ContextPreservedProcessor<>(processor, contextCoordinator,
+        contextCoordinator.capture());
+  }
+
+  /**
+   * Decorates the passed {@link Flow.Processor} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is one passed.
+   *
+   * @param processor Processor to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @param <T> Type of the items received
+   * @param <R> Type of the items published
+   * @return Newly created wrapped {@link Flow.Processor}
+   */
+  public static <C, T, R> Flow.Processor<T, R> wrap(Flow.Processor<T, R> processor,
+                                                    ContextCoordinator<C> contextCoordinator,
+                                                    @Nullable C newContext) {
+    return new ContextPreservedProcessor<>(processor, contextCoordinator, newContext);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super R> subscriber) {
+    delegate.subscribe(ContextPreservedSubscriber.wrap(subscriber, contextCoordinator, newContext));
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    subscriber.onSubscribe(subscription);
+  }
+
+  @Override
+  public void onNext(T item) {
+    subscriber.onNext(item);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    subscriber.onError(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    subscriber.onComplete();
+  }
+}
@@ -0,0 +1,291 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Flow.Publisher} backed by a {@link SubmissionPublisher} which preserves the
+ * {@link ThreadLocal} context of the producer of each item across thread boundaries. The context is
+ * captured, using passed {@link ContextCoordinator}, from the thread submitting or offering the
+ * item, and installed when {@link Flow.Subscriber#onNext(Object)} is called with it.
+ *
+ * <p>The delivery tasks of the {@link SubmissionPublisher} deliver many buffered items in one run.
+ * Within a run the context is only switched when the next item carries a different context
+ * instance, so consecutive items sharing a context pay for a single install, and the previous
+ * context of the delivery thread is restored once at the end of the run. The other signals run
+ * with the context captured at the time of the call to {@link #subscribe(Flow.Subscriber)}.
+ *
+ * <p>This class is only available on Java 11 and later.
+ *
+ * @param <C> Type of context
+ * @param <T> Type of the items
+ */
+public final class ContextPreservedSubmissionPublisher<C, T>
+    implements Flow.Publisher<T>, AutoCloseable {
+  private final SubmissionPublisher<Item<C, T>> delegate;
+  private final ContextCoordinator<C> contextCoordinator;
+
+  private ContextPreservedSubmissionPublisher(Executor executor, int maxBufferCapacity,
+                                              ContextCoordinator<C> contextCoordinator) {
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.delegate = new SubmissionPublisher<>(new DeliveryExecutor<>(executor, contextCoordinator),
+        maxBufferCapacity);
+  }
+
+  /**
+   * Creates a new publisher which delivers the items using {@link ForkJoinPool#commonPool()} and
+   * a maximum buffer capacity of {@link Flow#defaultBufferSize()} per subscriber.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @param <T> Type of the items
+   * @return Newly created publisher
+   */
+  public static <C, T> ContextPreservedSubmissionPublisher<C, T> of(
+      ContextCoordinator<C> contextCoordinator) {
+    return new ContextPreservedSubmissionPublisher<>(ForkJoinPool.commonPool(),
+        Flow.defaultBufferSize(), contextCoordinator);
+  }
+
+  /**
+   * Creates a new publisher, see {@link SubmissionPublisher#SubmissionPublisher(Executor, int)}.
+   *
+   * @param executor Executor used to deliver the items
+   * @param maxBufferCapacity Maximum buffer capacity per subscriber
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @param <T> Type of the items
+   * @return Newly created publisher
+   */
+  public static <C, T> ContextPreservedSubmissionPublisher<C, T> of(
+      Executor executor, int maxBufferCapacity, ContextCoordinator<C> contextCoordinator) {
+    return new ContextPreservedSubmissionPublisher<>(executor, maxBufferCapacity,
+        contextCoordinator);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    delegate.subscribe(new ItemSubscriber<>(subscriber, contextCoordinator,
+        contextCoordinator.capture()));
+  }
+
+  /**
+   * Context preserved version of {@link SubmissionPublisher#submit(Object)}.
+   *
+   * @param item Item to publish
+   * @return Estimated maximum lag among subscribers
+   */
+  public int submit(T item) {
+    return delegate.submit(new Item<>(item, contextCoordinator.capture()));
+  }
+
+  /**
+   * Context preserved version of {@link SubmissionPublisher#offer(Object, BiPredicate)} without a
+   * drop handler.
+   *
+   * @param item Item to publish
+   * @return Negative number of drops if negative, else estimated maximum lag among subscribers
+   */
+  public int offer(T item) {
+    return delegate.offer(new Item<>(item, contextCoordinator.capture()), null);
+  }
+
+  /**
+   * Context preserved version of
+   * {@link SubmissionPublisher#offer(Object, long, TimeUnit, BiPredicate)} without a drop handler.
+   *
+   * @param item Item to publish
+   * @param timeout How long to wait for resources for any subscriber before giving up
+   * @param unit Unit of the timeout
+   * @return Negative number of drops if negative, else estimated maximum lag among subscribers
+   */
+  public int offer(T item, long timeout, TimeUnit unit) {
+    return delegate.offer(new Item<>(item, contextCoordinator.capture()), timeout, unit, null);
+  }
+
+  /**
+   * Context preserved version of {@link SubmissionPublisher#consume(Consumer)}.
+   *
+   * @param consumer Function applied to each item
+   * @return Future completed when the publisher completes normally, or completed exceptionally
+   *     upon any error
+   */
+  public CompletableFuture<Void> consume(Consumer<? super T> consumer) {
+    Objects.requireNonNull(consumer, "consumer cannot be null");
+    return delegate.consume(item -> {
+      install(contextCoordinator, item.context);
+      consumer.accept(item.item);
+    });
+  }
+
+  /**
+   * See {@link SubmissionPublisher#close()}.
+   */
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+  /**
+   * See {@link SubmissionPublisher#closeExceptionally(Throwable)}.
+   *
+   * @param error Exception sent to subscribers
+   */
+  public void closeExceptionally(Throwable error) {
+    delegate.closeExceptionally(error);
+  }
+
+  /**
+   * See {@link SubmissionPublisher#isClosed()}.
+   *
+   * @return {@code true} if this publisher is not accepting submissions
+   */
+  public boolean isClosed() {
+    return delegate.isClosed();
+  }
+
+  /**
+   * See {@link SubmissionPublisher#hasSubscribers()}.
+   *
+   * @return {@code true} if this publisher has any subscribers
+   */
+  public boolean hasSubscribers() {
+    return delegate.hasSubscribers();
+  }
+
+  /**
+   * See {@link SubmissionPublisher#getNumberOfSubscribers()}.
+   *
+   * @return Number of current subscribers
+   */
+  public int getNumberOfSubscribers() {
+    return delegate.getNumberOfSubscribers();
+  }
+
+  /**
+   * See {@link SubmissionPublisher#getMaxBufferCapacity()}.
+   *
+   * @return Maximum per subscriber buffer capacity
+   */
+  public int getMaxBufferCapacity() {
+    return delegate.getMaxBufferCapacity();
+  }
+
+  /**
+   * See {@link SubmissionPublisher#estimateMaximumLag()}.
+   *
+   * @return Estimated maximum number of items produced but not yet consumed
+   */
+  public int estimateMaximumLag() {
+    return delegate.estimateMaximumLag();
+  }
+
+  private static <C> void install(ContextCoordinator<C> contextCoordinator,
+                                  @Nullable C newContext) {
+    if (contextCoordinator.get() != newContext) {
+      contextCoordinator.set(newContext);
+    }
+  }
+
+  /**
+   * Item together with the context of its producer.
+   */
+  private static final class Item<C, T> {
+    private final T item;
+    @Nullable
+    private final C context;
+
+    private Item(T item, @Nullable C context) {
+      this.item = Objects.requireNonNull(item, "item cannot be null");
+      this.context = context;
+    }
+  }
+
+  /**
+   * Runs the delivery tasks of the {@link SubmissionPublisher} and restores the previous context of
+   * the delivery thread once at the end of each run.
+   */
+  private static final class DeliveryExecutor<C> implements Executor {
+    private final Executor delegate;
+    private final ContextCoordinator<C> contextCoordinator;
+
+    private DeliveryExecutor(Executor delegate, ContextCoordinator<C> contextCoordinator) {
+      this.delegate = Objects.requireNonNull(delegate, "executor cannot be null");
+      this.contextCoordinator = contextCoordinator;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      Objects.requireNonNull(command, "command cannot be null");
+      delegate.execute(() -> {
+        C prevContext = contextCoordinator.get();
+        try {
+          command.run();
+        } finally {
+          install(contextCoordinator, prevContext);
+        }
+      });
+    }
+  }
+
+  /**
+   * Unwraps the items and installs their context lazily. It relies on {@link DeliveryExecutor} to
+   * restore the context at the end of the run.
+   */
+  private static final class ItemSubscriber<C, T> implements Flow.Subscriber<Item<C, T>> {
+    private final Flow.Subscriber<? super T> delegate;
+    private final ContextCoordinator<C> contextCoordinator;
+    @Nullable
+    private final C subscribeContext;
+
+    private ItemSubscriber(Flow.Subscriber<? super T> delegate,
+                           ContextCoordinator<C> contextCoordinator,
+                           @Nullable C subscribeContext) {
+      this.delegate = Objects.requireNonNull(delegate, "subscriber cannot be null");
+      this.contextCoordinator = contextCoordinator;
+      this.subscribeContext = subscribeContext;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      runWithSubscribeContext(() -> delegate.onSubscribe(subscription));
+    }
+
+    @Override
+    public void onNext(Item<C, T> item) {
+      install(contextCoordinator, item.context);
+      delegate.onNext(item.item);
+    }
+
+    // The terminal signals may be sent from the submitting thread when the executor rejects a
+    // delivery task, so they restore the context themselves
+    @Override
+    public void onError(Throwable throwable) {
+      runWithSubscribeContext(() -> delegate.onError(throwable));
+    }
+
+    @Override
+    public void onComplete() {
+      runWithSubscribeContext(delegate::onComplete);
+    }
+
+    private void runWithSubscribeContext(Runnable signal) {
+      C prevContext = contextCoordinator.get();
+      install(contextCoordinator, subscribeContext);
+      try {
+        signal.run();
+      } finally {
+        install(contextCoordinator, prevContext);
+      }
+    }
+  }
+}
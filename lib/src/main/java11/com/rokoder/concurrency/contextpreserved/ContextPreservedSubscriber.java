@@ -0,0 +1,127 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Flow.Subscriber} which preserves the {@link ThreadLocal} context across thread boundaries.
+ * All the signals of the decorated subscriber run with the same context, which is installed before
+ * the signal and restored after it. The transition is skipped when the running thread already
+ * holds the same context instance, like for consecutive signals delivered on the same thread.
+ *
+ * <p>Arbitrary publishers do not carry a context per item, so this decorator uses the context of
+ * the subscriber. To carry the context of the producer of each item use
+ * {@link ContextPreservedSubmissionPublisher}.
+ *
+ * <p>This class is only available on Java 11 and later.
+ *
+ * @param <C> Type of context
+ * @param <T> Type of the items
+ */
+public final class ContextPreservedSubscriber<C, T> implements Flow.Subscriber<T> {
+  private final Flow.Subscriber<T> delegate;
+  private final ContextCoordinator<C> contextCoordinator;
+  @Nullable
+  private final C newContext;
+
+  private ContextPreservedSubscriber(Flow.Subscriber<T> delegate,
+                                     ContextCoordinator<C> contextCoordinator,
+                                     @Nullable C newContext) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.newContext = newContext;
+  }
+
+  /**
+   * Decorates the passed {@link Flow.Subscriber} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is captured, using passed {@link ContextCoordinator}, at the time of call
+   * to this api from the thread that calls it.
+   *
+   * @param subscriber Subscriber to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @param <T> Type of the items
+   * @return Newly created wrapped {@link Flow.Subscriber}
+   */
+  public static <C, T> Flow.Subscriber<T> wrap(Flow.Subscriber<T> subscriber,
+                                               ContextCoordinator<C> contextCoordinator) {
+    return new ContextPreservedSubscriber<>(subscriber, contextCoordinator,
+        contextCoordinator.capture());
+  }
+
+  /**
+   * Decorates the passed {@link Flow.Subscriber} with a new one which preserves the
+   * {@link ThreadLocal} context across thread boundaries using passed {@link ContextCoordinator}.
+   * The new context used is one passed.
+   *
+   * @param subscriber Subscriber to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @param <T> Type of the items
+   * @return Newly created wrapped {@link Flow.Subscriber}
+   */
+  public static <C, T> Flow.Subscriber<T> wrap(Flow.Subscriber<T> subscriber,
+                                               ContextCoordinator<C> contextCoordinator,
+                                               @Nullable C newContext) {
+    return new ContextPreservedSubscriber<>(subscriber, contextCoordinator, newContext);
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    C prevContext = install();
+    try {
+      delegate.onSubscribe(subscription);
+    } finally {
+      restore(prevContext);
+    }
+  }
+
+  @Override
+  public void onNext(T item) {
+    C prevContext = install();
+    try {
+      delegate.onNext(item);
+    } finally {
+      restore(prevContext);
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    C prevContext = install();
+    try {
+      delegate.onError(throwable);
+    } finally {
+      restore(prevContext);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    C prevContext = install();
+    try {
+      delegate.onComplete();
+    } finally {
+      restore(prevContext);
+    }
+  }
+
+  @Nullable
+  private C install() {
+    C prevContext = contextCoordinator.get();
+    if (prevContext != newContext) {
+      contextCoordinator.set(newContext);
+    }
+    return prevContext;
+  }
+
+  private void restore(@Nullable C prevContext) {
+    if (prevContext != newContext) {
+      contextCoordinator.set(prevContext);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+
+/**
+ * Context of a {@code java.util.concurrent.StructuredTaskScope}, which preserves the
+ * {@link ThreadLocal} context for all of its subtasks. The new context is captured once, when this
+ * class is opened, usually right before opening the scope, and shared by all the subtasks instead
+ * of being captured again on every fork. Fanning out to hundreds of subtasks therefore pays for a
+ * single capture.
+ *
+ * <p>Every subtask of a scope runs on a new thread which terminates after it, so the context is
+ * only installed when the thread starts, see {@link ContextTransitionPolicy#INSTALL_ONLY}. The
+ * previous context is neither captured nor restored.
+ *
+ * <p>The preferred integration is to create the scope with {@link #factory()}, so every fork is
+ * covered without wrapping:
+ *
+ * <pre>{@code
+ * ContextPreservedTaskScope<C> context = ContextPreservedTaskScope.open(contextCoordinator);
+ * try (var scope = StructuredTaskScope.open(Joiner.awaitAllSuccessfulOrThrow(),
+ *     config -> config.withThreadFactory(context.factory()))) {
+ *   scope.fork(task);
+ *   scope.join();
+ * }
+ * }</pre>
+ *
+ * <p>Scopes which cannot be given a {@link ThreadFactory} can wrap each forked task with
+ * {@link #wrap(Callable)} or {@link #wrap(Runnable)} instead.
+ *
+ * <p>{@code StructuredTaskScope} is a preview API, so this class does not depend on it, and works
+ * with its thread factory on any of its versions.
+ *
+ * <p>This class is only available on Java 21 and later.
+ *
+ * @param <C> Type of context
+ */
+public final class ContextPreservedTaskScope<C> {
+  private final ContextCoordinator<C> contextCoordinator;
+  @Nullable
+  private final C newContext;
+  private final ThreadFactory threadFactory;
+
+  private ContextPreservedTaskScope(ContextCoordinator<C> contextCoordinator,
+                                    @Nullable C newContext) {
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.newContext = newContext;
+    this.threadFactory = ContextPreservedThreadFactory.wrap(Thread.ofVirtual().factory(),
+        contextCoordinator, newContext);
+  }
+
+  /**
+   * Opens a new task scope context. The new context used is captured, using passed
+   * {@link ContextCoordinator}, at the time of call to this api from the thread that calls it.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created task scope context
+   */
+  public static <C> ContextPreservedTaskScope<C> open(ContextCoordinator<C> contextCoordinator) {
+    return new ContextPreservedTaskScope<>(contextCoordinator, contextCoordinator.capture());
+  }
+
+  /**
+   * Opens a new task scope context. The new context used is one passed.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @return Newly created task scope context
+   */
+  public static <C> ContextPreservedTaskScope<C> open(ContextCoordinator<C> contextCoordinator,
+                                                      @Nullable C newContext) {
+    return new ContextPreservedTaskScope<>(contextCoordinator, newContext);
+  }
+
+  /**
+   * Get the {@link ThreadFactory} of virtual threads which installs the context of this scope
+   * when they start, to be passed to the {@code StructuredTaskScope}.
+   *
+   * @return Thread factory shared by all the subtasks of the scope
+   */
+  public ThreadFactory factory() {
+    return threadFactory;
+  }
+
+  /**
+   * Decorates the passed {@link Callable} with a new one which installs the context of this scope.
+   * It must run on a new thread, like a subtask forked from a {@code StructuredTaskScope}.
+   *
+   * @param callable Callable to be decorated
+   * @param <V> Type of the result
+   * @return Newly created wrapped {@link Callable}
+   */
+  public <V> Callable<V> wrap(Callable<V> callable) {
+    return ContextPreservedCallable.wrap(callable, contextCoordinator, newContext,
+        ContextTransitionPolicy.INSTALL_ONLY);
+  }
+
+  /**
+   * Decorates the passed {@link Runnable} with a new one which installs the context of this scope.
+   * It must run on a new thread, like a subtask forked from a {@code StructuredTaskScope}.
+   *
+   * @param runnable Runnable to be decorated
+   * @return Newly created wrapped {@link Runnable}
+   */
+  public Runnable wrap(Runnable runnable) {
+    return ContextPreservedRunnable.wrap(runnable, contextCoordinator, newContext,
+        ContextTransitionPolicy.INSTALL_ONLY);
+  }
+
+  /**
+   * Get the context captured when this scope was opened.
+   *
+   * @return Context shared by all the subtasks of the scope
+   */
+  @Nullable
+  public C getContext() {
+    return newContext;
+  }
+}
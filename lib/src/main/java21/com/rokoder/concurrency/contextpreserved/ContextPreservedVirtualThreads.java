@@ -0,0 +1,88 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual thread support which preserves the {@link ThreadLocal} context across thread boundaries.
+ * Every task runs on a new thread, so the context captured from the calling thread is only
+ * installed once when the thread starts, see {@link ContextTransitionPolicy#INSTALL_ONLY}. The
+ * previous context is neither captured nor restored.
+ *
+ * <p>This class is only available on Java 21 and later.
+ */
+public final class ContextPreservedVirtualThreads {
+  private ContextPreservedVirtualThreads() {
+  }
+
+  /**
+   * Creates a context preserved version of {@link Executors#newVirtualThreadPerTaskExecutor()}.
+   * The new context used is captured at the time of the call to command execution apis, using
+   * passed {@link ContextCoordinator}.
+   *
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created {@link ExecutorService}
+   */
+  public static <C> ExecutorService newVirtualThreadPerTaskExecutor(
+      ContextCoordinator<C> contextCoordinator) {
+    return DynamicContextPreservedExecutorService.wrapThreadPerTask(
+        Executors.newVirtualThreadPerTaskExecutor(), contextCoordinator);
+  }
+
+  /**
+   * Creates a {@link ThreadFactory} from passed {@link Thread.Builder}. The new context used is
+   * captured at the time of the call to {@link ThreadFactory#newThread(Runnable)}, using passed
+   * {@link ContextCoordinator}, and installed when the created thread starts.
+   *
+   * @param builder Thread builder, e.g. {@link Thread#ofVirtual()}
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created {@link ThreadFactory}
+   */
+  public static <C> ThreadFactory factory(Thread.Builder builder,
+                                          ContextCoordinator<C> contextCoordinator) {
+    Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    ThreadFactory delegate = builder.factory();
+    return runnable -> delegate.newThread(wrap(runnable, contextCoordinator));
+  }
+
+  /**
+   * Creates an unstarted thread from passed {@link Thread.Builder}. The new context used is
+   * captured at the time of the call to this api, using passed {@link ContextCoordinator}, and
+   * installed when the created thread starts.
+   *
+   * @param builder Thread builder, e.g. {@link Thread#ofVirtual()}
+   * @param contextCoordinator Context coordinator
+   * @param task Task to run
+   * @param <C> Type of context
+   * @return Newly created unstarted {@link Thread}
+   */
+  public static <C> Thread unstarted(Thread.Builder builder,
+                                     ContextCoordinator<C> contextCoordinator, Runnable task) {
+    return builder.unstarted(wrap(task, contextCoordinator));
+  }
+
+  /**
+   * Creates and starts a thread from passed {@link Thread.Builder}. The new context used is
+   * captured at the time of the call to this api, using passed {@link ContextCoordinator}, and
+   * installed when the created thread starts.
+   *
+   * @param builder Thread builder, e.g. {@link Thread#ofVirtual()}
+   * @param contextCoordinator Context coordinator
+   * @param task Task to run
+   * @param <C> Type of context
+   * @return Newly created started {@link Thread}
+   */
+  public static <C> Thread start(Thread.Builder builder, ContextCoordinator<C> contextCoordinator,
+                                 Runnable task) {
+    return builder.start(wrap(task, contextCoordinator));
+  }
+
+  private static <C> Runnable wrap(Runnable task, ContextCoordinator<C> contextCoordinator) {
+    return ContextPreservedRunnable.wrap(task, contextCoordinator, contextCoordinator.capture(),
+        ContextTransitionPolicy.INSTALL_ONLY);
+  }
+}
@@ -0,0 +1,81 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ScopedValue} context coordinator. The context is read with a constant time
+ * {@link ScopedValue} lookup instead of a {@link ThreadLocal} one, and is not inherited through
+ * thread local maps.
+ *
+ * <p>A {@link ScopedValue} can only be bound for the duration of a call, so this coordinator reads
+ * and binds the context, but cannot set it. It is therefore not a {@link ContextCoordinator}, and
+ * is only accepted by {@link ScopedValueContextPreservedRunnable} and
+ * {@link ScopedValueContextPreservedCallable}, which bind the context with
+ * {@link ScopedValue#where(ScopedValue, Object)} and unbind it automatically with no restore step.
+ *
+ * <p>This class is only available on Java 25 and later.
+ *
+ * @param <C> Type of the context
+ */
+public final class ScopedValueContextCoordinator<C> {
+  private final ScopedValue<C> scopedValue;
+
+  private ScopedValueContextCoordinator(ScopedValue<C> scopedValue) {
+    this.scopedValue = Objects.requireNonNull(scopedValue, "scopedValue cannot be null");
+  }
+
+  /**
+   * Creates a new coordinator for the passed {@link ScopedValue}.
+   *
+   * @param scopedValue Scoped value holding the context
+   * @param <C> Type of the context
+   * @return Newly created coordinator
+   */
+  public static <C> ScopedValueContextCoordinator<C> of(ScopedValue<C> scopedValue) {
+    return new ScopedValueContextCoordinator<>(scopedValue);
+  }
+
+  /**
+   * Get the {@link ScopedValue} holding the context.
+   *
+   * @return Scoped value holding the context
+   */
+  public ScopedValue<C> getScopedValue() {
+    return scopedValue;
+  }
+
+  /**
+   * Get the context bound to the current thread.
+   *
+   * @return Return current bound context, or {@code null} if it is not bound.
+   */
+  @Nullable
+  public C get() {
+    return scopedValue.isBound() ? scopedValue.get() : null;
+  }
+
+  /**
+   * Runs the passed {@link Runnable} with the passed context bound to the current thread.
+   *
+   * @param context Context to bind
+   * @param runnable Runnable to run
+   */
+  public void run(@Nullable C context, Runnable runnable) {
+    ScopedValue.where(scopedValue, context).run(runnable);
+  }
+
+  /**
+   * Calls the passed {@link Callable} with the passed context bound to the current thread.
+   *
+   * @param context Context to bind
+   * @param callable Callable to call
+   * @param <V> Result type of method {@link Callable#call()}
+   * @return Result of the callable
+   * @throws Exception If the callable throws an exception
+   */
+  public <V> V call(@Nullable C context, Callable<V> callable) throws Exception {
+    return ScopedValue.where(scopedValue, context).call(callable::call);
+  }
+}
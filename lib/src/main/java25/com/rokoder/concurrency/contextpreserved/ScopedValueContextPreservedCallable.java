@@ -0,0 +1,72 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Callable} which preserves the {@link ScopedValue} context across thread boundaries. The
+ * context is bound with {@link ScopedValue#where(ScopedValue, Object)} for the duration of the
+ * call, so there is no previous context to capture nor restore.
+ *
+ * <p>This class is only available on Java 25 and later.
+ *
+ * @param <C> Type of context
+ * @param <V> the result type of method {@link Callable#call()}
+ */
+public final class ScopedValueContextPreservedCallable<C, V> implements Callable<V> {
+  private final Callable<V> delegate;
+  private final ScopedValueContextCoordinator<C> contextCoordinator;
+  @Nullable
+  private final C newContext;
+
+  private ScopedValueContextPreservedCallable(Callable<V> delegate,
+                                              ScopedValueContextCoordinator<C> contextCoordinator,
+                                              @Nullable C newContext) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.newContext = newContext;
+  }
+
+  /**
+   * Decorates the passed {@link Callable} with a new one which preserves the {@link ScopedValue}
+   * context across thread boundaries using passed {@link ScopedValueContextCoordinator}. The new
+   * context used is captured, using passed {@link ScopedValueContextCoordinator}, at the time of
+   * call to this api from the thread that calls it.
+   *
+   * @param callable Callable to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @param <V> Result type of method {@link Callable#call()}
+   * @return Newly created wrapped {@link Callable}
+   */
+  public static <C, V> Callable<V> wrap(Callable<V> callable,
+                                        ScopedValueContextCoordinator<C> contextCoordinator) {
+    return new ScopedValueContextPreservedCallable<>(callable, contextCoordinator,
+        contextCoordinator.get());
+  }
+
+  /**
+   * Decorates the passed {@link Callable} with a new one which preserves the {@link ScopedValue}
+   * context across thread boundaries using passed {@link ScopedValueContextCoordinator}. The new
+   * context used is one passed.
+   *
+   * @param callable Callable to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @param <V> Result type of method {@link Callable#call()}
+   * @return Newly created wrapped {@link Callable}
+   */
+  public static <C, V> Callable<V> wrap(Callable<V> callable,
+                                        ScopedValueContextCoordinator<C> contextCoordinator,
+                                        @Nullable C newContext) {
+    return new ScopedValueContextPreservedCallable<>(callable, contextCoordinator, newContext);
+  }
+
+  @Override
+  public V call() throws Exception {
+    return contextCoordinator.call(newContext, delegate);
+  }
+}
@@ -0,0 +1,68 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Runnable} which preserves the {@link ScopedValue} context across thread boundaries. The
+ * context is bound with {@link ScopedValue#where(ScopedValue, Object)} for the duration of the
+ * call, so there is no previous context to capture nor restore.
+ *
+ * <p>This class is only available on Java 25 and later.
+ *
+ * @param <C> Type of context
+ */
+public final class ScopedValueContextPreservedRunnable<C> implements Runnable {
+  private final Runnable delegate;
+  private final ScopedValueContextCoordinator<C> contextCoordinator;
+  @Nullable
+  private final C newContext;
+
+  private ScopedValueContextPreservedRunnable(Runnable delegate,
+                                              ScopedValueContextCoordinator<C> contextCoordinator,
+                                              @Nullable C newContext) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+    this.contextCoordinator =
+        Objects.requireNonNull(contextCoordinator, "contextCoordinator cannot be null");
+    this.newContext = newContext;
+  }
+
+  /**
+   * Decorates the passed {@link Runnable} with a new one which preserves the {@link ScopedValue}
+   * context across thread boundaries using passed {@link ScopedValueContextCoordinator}. The new
+   * context used is captured, using passed {@link ScopedValueContextCoordinator}, at the time of
+   * call to this api from the thread that calls it.
+   *
+   * @param runnable Runnable to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link Runnable}
+   */
+  public static <C> Runnable wrap(Runnable runnable,
+                                  ScopedValueContextCoordinator<C> contextCoordinator) {
+    return new ScopedValueContextPreservedRunnable<>(runnable, contextCoordinator,
+        contextCoordinator.get());
+  }
+
+  /**
+   * Decorates the passed {@link Runnable} with a new one which preserves the {@link ScopedValue}
+   * context across thread boundaries using passed {@link ScopedValueContextCoordinator}. The new
+   * context used is one passed.
+   *
+   * @param runnable Runnable to be decorated
+   * @param contextCoordinator Context coordinator
+   * @param newContext New context to preserve
+   * @param <C> Type of context
+   * @return Newly created wrapped {@link Runnable}
+   */
+  public static <C> Runnable wrap(Runnable runnable,
+                                  ScopedValueContextCoordinator<C> contextCoordinator,
+                                  @Nullable C newContext) {
+    return new ScopedValueContextPreservedRunnable<>(runnable, contextCoordinator, newContext);
+  }
+
+  @Override
+  public void run() {
+    contextCoordinator.run(newContext, delegate);
+  }
+}
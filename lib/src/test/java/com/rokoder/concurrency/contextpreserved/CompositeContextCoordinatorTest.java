@@ -0,0 +1,210 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+final class CompositeContextCoordinatorTest {
+  private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+
+  @Test
+  void testGetCapturesAllContexts() {
+    String prefixContext = "testGetCapturesAllContexts";
+    ContextCoordinator<Object> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "other-context");
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(coordinator, mockCoordinator);
+
+    assertThat(composite.size(), is(equalTo(2)));
+    assertThat(composite.get(),
+        arrayContaining(prefixContext + "new-context-1", prefixContext + "other-context"));
+  }
+
+  @Test
+  void testCaptureCapturesAllContexts() {
+    String prefixContext = "testCaptureCapturesAllContexts";
+    ContextCoordinator<Object> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.capture()).thenReturn(prefixContext + "captured-context");
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(coordinator, mockCoordinator);
+
+    assertThat(composite.capture(),
+        arrayContaining(prefixContext + "new-context-1", prefixContext + "captured-context"));
+    Mockito.verify(mockCoordinator, Mockito.never()).get();
+  }
+
+  @Test
+  void testSetInstallsAllContexts() {
+    String prefixContext = "testSetInstallsAllContexts";
+    ContextCoordinator<Object> mockCoordinator1 = Mockito.mock(ContextCoordinator.class);
+    ContextCoordinator<Object> mockCoordinator2 = Mockito.mock(ContextCoordinator.class);
+
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(List.of(mockCoordinator1, mockCoordinator2));
+    composite.set(new Object[] {prefixContext + "context-1", prefixContext + "context-2"});
+
+    Mockito.verify(mockCoordinator1).set(prefixContext + "context-1");
+    Mockito.verify(mockCoordinator2).set(prefixContext + "context-2");
+  }
+
+  @Test
+  void testSnapshotReusedWhileContextsUnchanged() {
+    String prefixContext = "testSnapshotReusedWhileContextsUnchanged";
+    String otherContext = prefixContext + "other-context";
+    ContextCoordinator<Object> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    String context2 = prefixContext + "context-2";
+    Mockito.when(mockCoordinator.get()).thenReturn(context2, context2, otherContext, null);
+    Mockito.when(mockCoordinator.capture()).thenReturn(otherContext);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    String context = prefixContext + "context-1";
+    coordinator.set(context);
+
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(coordinator, mockCoordinator);
+    Object[] snapshot = composite.get();
+    Object[] otherSnapshot = composite.get();
+    Object[] changedSnapshot = composite.get();
+    Object[] capturedSnapshot = composite.capture();
+    Object[] partialSnapshot = composite.get();
+    coordinator.set(null);
+
+    assertThat(otherSnapshot, is(sameInstance(snapshot)));
+    assertThat(changedSnapshot, is(not(sameInstance(snapshot))));
+    assertThat(changedSnapshot, arrayContaining(context, otherContext));
+    assertThat(capturedSnapshot, is(sameInstance(changedSnapshot)));
+    assertThat(partialSnapshot, arrayContaining(context, null));
+  }
+
+  @Test
+  void testNullSnapshotShared() {
+    String prefixContext = "testNullSnapshotShared";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(null);
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(coordinator, Mockito.mock(ContextCoordinator.class));
+    Object[] nullSnapshot = composite.get();
+    coordinator.set(prefixContext + "context-1");
+    Object[] snapshot = composite.capture();
+    coordinator.set(null);
+
+    assertThat(nullSnapshot, arrayContaining(null, null));
+    assertThat(composite.get(), is(sameInstance(nullSnapshot)));
+    assertThat(composite.swap(snapshot), is(sameInstance(nullSnapshot)));
+    assertThat(composite.get(), is(sameInstance(snapshot)));
+    assertThat(composite.swap(null), is(sameInstance(snapshot)));
+    assertThat(coordinator.get(), is(nullValue()));
+  }
+
+  @Test
+  void testSwapInstallsInOrderAndSetRestoresInReverseOrder() {
+    String prefixContext = "testSwapInstallsInOrderAndSetRestoresInReverseOrder";
+    ContextCoordinator<Object> mockCoordinator1 = Mockito.mock(ContextCoordinator.class);
+    ContextCoordinator<Object> mockCoordinator2 = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator1.swap(prefixContext + "new-context-1"))
+        .thenReturn(prefixContext + "previous-context-1");
+    Mockito.when(mockCoordinator2.swap(prefixContext + "new-context-2"))
+        .thenReturn(prefixContext + "previous-context-2");
+
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(mockCoordinator1, mockCoordinator2);
+    Object[] prevContext = composite.swap(
+        new Object[] {prefixContext + "new-context-1", prefixContext + "new-context-2"});
+    composite.set(prevContext);
+
+    assertThat(prevContext, arrayContaining(prefixContext + "previous-context-1",
+        prefixContext + "previous-context-2"));
+    InOrder inOrder = Mockito.inOrder(mockCoordinator1, mockCoordinator2);
+    inOrder.verify(mockCoordinator1).swap(prefixContext + "new-context-1");
+    inOrder.verify(mockCoordinator2).swap(prefixContext + "new-context-2");
+    inOrder.verify(mockCoordinator2).set(prefixContext + "previous-context-2");
+    inOrder.verify(mockCoordinator1).set(prefixContext + "previous-context-1");
+    Mockito.verify(mockCoordinator1, Mockito.never()).get();
+    Mockito.verify(mockCoordinator2, Mockito.never()).get();
+  }
+
+  @Test
+  void testSetNullClearsAllContexts() {
+    ContextCoordinator<Object> mockCoordinator1 = Mockito.mock(ContextCoordinator.class);
+    ContextCoordinator<Object> mockCoordinator2 = Mockito.mock(ContextCoordinator.class);
+
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(mockCoordinator1, mockCoordinator2);
+    composite.set(null);
+
+    Mockito.verify(mockCoordinator1).set(null);
+    Mockito.verify(mockCoordinator2).set(null);
+  }
+
+  @Test
+  void testSetWithWrongLength() {
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(new TestStringContextCoordinator());
+    assertThrows(IllegalArgumentException.class, () -> composite.set(new Object[2]));
+    assertThrows(IllegalArgumentException.class, () -> composite.swap(new Object[2]));
+  }
+
+  @Test
+  void testFuseFlattensComposites() {
+    TestStringContextCoordinator coordinator1 = new TestStringContextCoordinator();
+    TestStringContextCoordinator coordinator2 = new TestStringContextCoordinator();
+    TestStringContextCoordinator coordinator3 = new TestStringContextCoordinator();
+
+    CompositeContextCoordinator fused = CompositeContextCoordinator.fuse(
+        CompositeContextCoordinator.fuse(coordinator1, coordinator2), coordinator3);
+    assertThat(fused.size(), is(3));
+    assertThat(CompositeContextCoordinator.fuse(coordinator1, fused).size(), is(4));
+  }
+
+  @Test
+  void testNullCoordinators() {
+    assertThrows(NullPointerException.class,
+        () -> CompositeContextCoordinator.of((ContextCoordinator<?>[]) null));
+    assertThrows(NullPointerException.class,
+        () -> CompositeContextCoordinator.of((List<ContextCoordinator<?>>) null));
+    assertThrows(NullPointerException.class,
+        () -> CompositeContextCoordinator.of(new TestStringContextCoordinator(), null));
+  }
+
+  @Test
+  void testSingleWrapperPreservesAllContexts()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testSingleWrapperPreservesAllContexts";
+    ContextCoordinator<Object> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "other-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(Mockito.any())).thenCallRealMethod();
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    CompositeContextCoordinator composite =
+        CompositeContextCoordinator.of(coordinator, mockCoordinator);
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    Runnable wrapTask = ContextPreservedRunnable.wrap(contextCaptorTask, composite);
+    executorService.submit(wrapTask).get(1, TimeUnit.SECONDS);
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    Mockito.verify(mockCoordinator, Mockito.times(2)).set(prefixContext + "other-context");
+  }
+}
@@ -0,0 +1,219 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextAffinityExecutorTest {
+
+  @Test
+  void testContextPreserved() throws Exception {
+    String prefixContext = "testContextPreserved";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextAffinityExecutor<String> executor =
+        ContextAffinityExecutor.of(4, coordinator, Function.identity());
+
+    coordinator.set(prefixContext + "new-context-1");
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    executor.execute(contextCaptorTask1);
+    coordinator.set(prefixContext + "new-context-2");
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+    executor.execute(contextCaptorTask2);
+    coordinator.set(null);
+    TestStringContextCaptor contextCaptorTask3 = new TestStringContextCaptor();
+    executor.submit((Runnable) contextCaptorTask3).get(1, TimeUnit.SECONDS);
+    contextCaptorTask1.awaitCompletion(1, TimeUnit.SECONDS);
+    contextCaptorTask2.awaitCompletion(1, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-2")));
+    assertThat(contextCaptorTask3.getCapturedContext(), is(nullValue()));
+  }
+
+  @Test
+  void testSameKeyRunsOnSameWorker() throws Exception {
+    String prefixContext = "testSameKeyRunsOnSameWorker";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextAffinityExecutor<String> executor = ContextAffinityExecutor.of(4, coordinator,
+        context -> context.substring(0, context.lastIndexOf('-')));
+
+    coordinator.set(prefixContext + "tenant-1");
+    Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+    for (int i = 2; i <= 5; i++) {
+      coordinator.set(prefixContext + "tenant-" + i);
+      assertThat(executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS),
+          is(sameInstance(thread)));
+    }
+    coordinator.set(null);
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  void testContextSetOnlyWhenChanged() throws InterruptedException {
+    String prefixContext = "testContextSetOnlyWhenChanged";
+    CountingContextCoordinator coordinator = new CountingContextCoordinator();
+    ContextAffinityExecutor<String> executor =
+        ContextAffinityExecutor.of(1, coordinator, Function.identity());
+    TestBlockingTask blockingTask = new TestBlockingTask();
+
+    coordinator.set(prefixContext + "new-context-1");
+    executor.execute(blockingTask);
+    blockingTask.awaitStarted();
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    executor.execute(contextCaptorTask1);
+    executor.execute(contextCaptorTask1);
+    coordinator.set(prefixContext + "new-context-2");
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+    executor.execute(contextCaptorTask2);
+    blockingTask.release();
+    contextCaptorTask2.awaitCompletion(1, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-2")));
+    assertThat(coordinator.setCounts.get(prefixContext + "new-context-1"), is(2));
+    assertThat(coordinator.setCounts.get(prefixContext + "new-context-2"), is(2));
+    TestStringContext.set(null);
+  }
+
+  @Test
+  void testWorkStealing() throws InterruptedException {
+    String prefixContext = "testWorkStealing";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextAffinityExecutor<String> executor =
+        ContextAffinityExecutor.of(2, coordinator, context -> "same-key");
+    TestBlockingTask blockingTask = new TestBlockingTask();
+    CountDownLatch stolenLatch = new CountDownLatch(2);
+
+    coordinator.set(prefixContext + "new-context");
+    executor.execute(blockingTask);
+    blockingTask.awaitStarted();
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor(stolenLatch::countDown);
+    for (int i = 0; i < 3; i++) {
+      executor.execute(contextCaptorTask);
+    }
+    coordinator.set(null);
+
+    assertThat(stolenLatch.await(1, TimeUnit.SECONDS), is(true));
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context")));
+    blockingTask.release();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  void testRejectAfterShutdown() throws InterruptedException {
+    ContextAffinityExecutor<String> executor = ContextAffinityExecutor.of(2,
+        new TestStringContextCoordinator(), Function.identity());
+    executor.shutdown();
+
+    assertThat(executor.isShutdown(), is(true));
+    assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(executor.isTerminated(), is(true));
+  }
+
+  @Test
+  void testShutdownNowWhenIdle() throws InterruptedException {
+    ContextAffinityExecutor<String> executor = ContextAffinityExecutor.of(2,
+        new TestStringContextCoordinator(), Function.identity());
+
+    assertThat(executor.shutdownNow(), is(empty()));
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  void testShutdownNowReturnsPendingTasks() throws InterruptedException {
+    TestBlockingTask blockingTask = new TestBlockingTask();
+    ContextAffinityExecutor<String> executor = ContextAffinityExecutor.of(1,
+        new TestStringContextCoordinator(), Function.identity());
+
+    executor.execute(blockingTask);
+    blockingTask.awaitStarted();
+    Runnable mockRunnable1 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable2 = Mockito.mock(Runnable.class);
+    executor.execute(mockRunnable1);
+    executor.execute(mockRunnable2);
+
+    assertThat(executor.isTerminated(), is(false));
+    List<Runnable> pendingTasks = executor.shutdownNow();
+    assertThat(pendingTasks, contains(mockRunnable1, mockRunnable2));
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    Mockito.verify(mockRunnable1, Mockito.never()).run();
+  }
+
+  @Test
+  void testExceptionReportedAndWorkerContinues() throws Exception {
+    IllegalStateException exception = new IllegalStateException("test");
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> reportedException.set(e));
+      return thread;
+    };
+    ContextAffinityExecutor<String> executor = ContextAffinityExecutor.of(1, threadFactory,
+        new TestStringContextCoordinator(), Function.identity());
+
+    executor.execute(() -> {
+      throw exception;
+    });
+    executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+
+    assertThat(reportedException.get(), is(exception));
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testInvalidArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    assertThrows(IllegalArgumentException.class,
+        () -> ContextAffinityExecutor.of(0, coordinator, Function.identity()));
+    assertThrows(NullPointerException.class,
+        () -> ContextAffinityExecutor.of(1, coordinator, null));
+    assertThrows(NullPointerException.class,
+        () -> ContextAffinityExecutor.of(1, Executors.defaultThreadFactory(), null,
+            Function.identity()));
+  }
+
+  private static final class CountingContextCoordinator implements ContextCoordinator<String> {
+    private final Map<String, Integer> setCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public String get() {
+      return TestStringContext.get();
+    }
+
+    @Override
+    public void set(String context) {
+      setCounts.merge(String.valueOf(context), 1, Integer::sum);
+      TestStringContext.set(context);
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextCarryingBlockingQueueTest {
+
+  @Test
+  void testContextCarriedToConsumer() throws Exception {
+    String prefixContext = "testContextCarriedToConsumer";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(4, coordinator);
+    ExecutorService consumer = Executors.newSingleThreadExecutor();
+
+    coordinator.set(prefixContext + "new-context-1");
+    queue.put("element-1");
+    coordinator.set(prefixContext + "new-context-2");
+    assertThat(queue.offer("element-2"), is(true));
+    coordinator.set(prefixContext + "new-context-3");
+    assertThat(queue.offer("element-3", 1, TimeUnit.SECONDS), is(true));
+    coordinator.set(null);
+
+    Future<List<String>> consumed = consumer.submit(() -> {
+      List<String> capturedContexts = new ArrayList<>();
+      queue.take();
+      capturedContexts.add(TestStringContext.get());
+      queue.poll();
+      capturedContexts.add(TestStringContext.get());
+      queue.poll(1, TimeUnit.SECONDS);
+      capturedContexts.add(TestStringContext.get());
+      return capturedContexts;
+    });
+
+    assertThat(consumed.get(1, TimeUnit.SECONDS), contains(prefixContext + "new-context-1",
+        prefixContext + "new-context-2", prefixContext + "new-context-3"));
+    assertThat(TestStringContext.get(), is(nullValue()));
+    consumer.shutdown();
+  }
+
+  @Test
+  void testContextSetOnlyWhenChanged() {
+    String prefixContext = "testContextSetOnlyWhenChanged";
+    String context1 = prefixContext + "new-context-1";
+    String context2 = prefixContext + "new-context-2";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.capture()).thenReturn(context1, context1, context2);
+    Mockito.when(mockCoordinator.get()).thenReturn(context1);
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(4, mockCoordinator);
+    queue.add("element-1");
+    queue.add("element-2");
+    queue.add("element-3");
+
+    assertThat(queue.poll(), is(equalTo("element-1")));
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+    assertThat(queue.poll(), is(equalTo("element-2")));
+    assertThat(queue.poll(), is(equalTo("element-3")));
+    Mockito.verify(mockCoordinator).set(context2);
+  }
+
+  @Test
+  void testDrainToSwitchesContextOnChange() {
+    String prefixContext = "testDrainToSwitchesContextOnChange";
+    CountingContextCoordinator coordinator = new CountingContextCoordinator();
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(8, coordinator);
+    List<String> capturedContexts = new ArrayList<>();
+    List<String> drained = new ArrayList<String>() {
+      @Override
+      public boolean add(String element) {
+        capturedContexts.add(TestStringContext.get());
+        return super.add(element);
+      }
+    };
+
+    TestStringContext.set(prefixContext + "new-context-1");
+    queue.add("element-1");
+    queue.add("element-2");
+    TestStringContext.set(prefixContext + "new-context-2");
+    queue.add("element-3");
+    queue.add("element-4");
+    TestStringContext.set(prefixContext + "new-context-1");
+    queue.add("element-5");
+    TestStringContext.set(null);
+
+    assertThat(queue.drainTo(drained, 0), is(0));
+    assertThat(queue.drainTo(drained, 4), is(4));
+    assertThat(queue.drainTo(drained), is(1));
+    assertThat(drained, contains("element-1", "element-2", "element-3", "element-4",
+        "element-5"));
+    assertThat(capturedContexts, contains(prefixContext + "new-context-1",
+        prefixContext + "new-context-1", prefixContext + "new-context-2",
+        prefixContext + "new-context-2", prefixContext + "new-context-1"));
+    assertThat(coordinator.setCount, is(3));
+    assertThrows(IllegalArgumentException.class, () -> queue.drainTo(queue));
+    TestStringContext.set(null);
+  }
+
+  @Test
+  void testDrainToActionRunsWithEachContext() {
+    String prefixContext = "testDrainToActionRunsWithEachContext";
+    String context1 = prefixContext + "new-context-1";
+    String context2 = prefixContext + "new-context-2";
+    String prevContext = prefixContext + "prev-context";
+    CountingContextCoordinator coordinator = new CountingContextCoordinator();
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(8, coordinator);
+    List<String> drained = new ArrayList<>();
+    List<String> capturedContexts = new ArrayList<>();
+
+    TestStringContext.set(context1);
+    queue.add("element-1");
+    queue.add("element-2");
+    TestStringContext.set(context2);
+    queue.add("element-3");
+    TestStringContext.set(context1);
+    queue.add("element-4");
+    TestStringContext.set(prevContext);
+
+    assertThat(queue.drainTo(element -> drained.add(element), 0), is(0));
+    assertThat(queue.drainTo(element -> {
+      drained.add(element);
+      capturedContexts.add(TestStringContext.get());
+    }, 10), is(4));
+    assertThat(drained, contains("element-1", "element-2", "element-3", "element-4"));
+    assertThat(capturedContexts, contains(context1, context1, context2, context1));
+    assertThat(TestStringContext.get(), is(prevContext));
+    // Three switches and the restore of the previous context
+    assertThat(coordinator.setCount, is(4));
+    assertThat(queue.drainTo(element -> drained.add(element), 10), is(0));
+    assertThat(coordinator.setCount, is(4));
+    TestStringContext.set(null);
+  }
+
+  @Test
+  void testDrainToActionFailureLeavesRemainingElements() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(4, coordinator);
+    IllegalStateException exception = new IllegalStateException("test");
+
+    queue.add("element-1");
+    queue.add("element-2");
+
+    assertThat(assertThrows(IllegalStateException.class, () -> queue.drainTo(element -> {
+      throw exception;
+    }, 10)), is(exception));
+    assertThat(queue, contains("element-2"));
+    assertThrows(NullPointerException.class,
+        () -> queue.drainTo((Consumer<String>) null, 10));
+  }
+
+  @Test
+  void testBoundedCapacity() throws Exception {
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(1, new TestStringContextCoordinator());
+
+    assertThat(queue.offer("element-1"), is(true));
+    assertThat(queue.offer("element-2"), is(false));
+    assertThat(queue.offer("element-2", 1, TimeUnit.MILLISECONDS), is(false));
+    assertThat(queue.remainingCapacity(), is(0));
+    FutureTask<Void> blockedPut = new FutureTask<>(() -> {
+      queue.put("element-2");
+      return null;
+    });
+    awaitWaiting(start(blockedPut));
+    assertThat(blockedPut.isDone(), is(false));
+    assertThat(queue.take(), is(equalTo("element-1")));
+    blockedPut.get(1, TimeUnit.SECONDS);
+
+    assertThat(queue.take(), is(equalTo("element-2")));
+    assertThat(queue.poll(), is(nullValue()));
+    assertThat(queue.poll(1, TimeUnit.MILLISECONDS), is(nullValue()));
+    assertThat(queue.remainingCapacity(), is(1));
+  }
+
+  @Test
+  void testBlockingPollAndOffer() throws Exception {
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(1, new TestStringContextCoordinator());
+
+    FutureTask<String> blockedPoll = new FutureTask<>(() -> queue.poll(1, TimeUnit.MINUTES));
+    awaitWaiting(start(blockedPoll));
+    assertThat(queue.offer("element-1"), is(true));
+    assertThat(blockedPoll.get(1, TimeUnit.SECONDS), is(equalTo("element-1")));
+    queue.add("element-2");
+    FutureTask<Boolean> blockedOffer =
+        new FutureTask<>(() -> queue.offer("element-3", 1, TimeUnit.MINUTES));
+    awaitWaiting(start(blockedOffer));
+    assertThat(blockedOffer.isDone(), is(false));
+    assertThat(queue.take(), is(equalTo("element-2")));
+    assertThat(blockedOffer.get(1, TimeUnit.SECONDS), is(true));
+    assertThat(queue.poll(), is(equalTo("element-3")));
+
+    FutureTask<String> blockedTake = new FutureTask<>(queue::take);
+    awaitWaiting(start(blockedTake));
+    assertThat(blockedTake.isDone(), is(false));
+    queue.add("element-4");
+    assertThat(blockedTake.get(1, TimeUnit.SECONDS), is(equalTo("element-4")));
+  }
+
+  @Test
+  void testRemoveShiftsElements() {
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(3, new TestStringContextCoordinator());
+    // Wrap the queue around the end of the arrays
+    queue.add("element-0");
+    queue.poll();
+    queue.add("element-1");
+    queue.add("element-2");
+    queue.add("element-3");
+
+    assertThat(queue.remove("element-2"), is(true));
+    assertThat(queue.remove("element-5"), is(false));
+    assertThat(queue.remove(null), is(false));
+    queue.add("element-4");
+    assertThat(queue, contains("element-1", "element-3", "element-4"));
+    assertThat(queue.remove("element-4"), is(true));
+    assertThat(queue.peek(), is(equalTo("element-1")));
+    assertThat(queue.size(), is(2));
+
+    queue.clear();
+    assertThat(queue, is(empty()));
+    assertThat(queue.peek(), is(nullValue()));
+    queue.add("element-5");
+    assertThat(queue.poll(), is(equalTo("element-5")));
+  }
+
+  @Test
+  void testIteratorIsSnapshot() {
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(2, new TestStringContextCoordinator());
+    queue.add("element-1");
+
+    Iterator<String> iterator = queue.iterator();
+    queue.add("element-2");
+
+    assertThat(iterator.next(), is(equalTo("element-1")));
+    assertThat(iterator.hasNext(), is(false));
+    assertThrows(UnsupportedOperationException.class, iterator::remove);
+  }
+
+  @Test
+  void testInvalidArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextCarryingBlockingQueue<String, String> queue =
+        ContextCarryingBlockingQueue.of(1, coordinator);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> ContextCarryingBlockingQueue.of(0, coordinator));
+    assertThrows(NullPointerException.class,
+        () -> ContextCarryingBlockingQueue.of(1, null));
+    assertThrows(NullPointerException.class, () -> queue.offer(null));
+    assertThrows(NullPointerException.class, () -> queue.put(null));
+    assertThrows(NullPointerException.class,
+        () -> queue.offer(null, 1, TimeUnit.SECONDS));
+    assertThrows(NullPointerException.class, () -> queue.drainTo(null));
+  }
+
+  private static final class CountingContextCoordinator implements ContextCoordinator<String> {
+    private int setCount;
+
+    @Override
+    public String get() {
+      return TestStringContext.get();
+    }
+
+    @Override
+    public void set(String context) {
+      setCount++;
+      TestStringContext.set(context);
+    }
+  }
+
+  private static Thread start(Runnable task) {
+    Thread thread = new Thread(task);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Waits until passed thread is parked, which for the threads started by the tests means blocked
+   * by the queue.
+   */
+  private static void awaitWaiting(Thread thread) {
+    long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    Thread.State state;
+    while ((state = thread.getState()) != Thread.State.WAITING
+        && state != Thread.State.TIMED_WAITING) {
+      assertThat(System.nanoTime() - deadlineNanos < 0, is(true));
+      Thread.yield();
+    }
+  }
+}
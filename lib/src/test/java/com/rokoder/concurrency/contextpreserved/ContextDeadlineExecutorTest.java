@@ -0,0 +1,159 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextDeadlineExecutorTest {
+
+  @Test
+  void testContextPreserved() throws Exception {
+    String prefixContext = "testContextPreserved";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextDeadlineExecutor<String> executor =
+        ContextDeadlineExecutor.of(2, coordinator, context -> ContextDeadlineExecutor.NO_DEADLINE);
+
+    coordinator.set(prefixContext + "new-context-1");
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    executor.execute(contextCaptorTask1);
+    coordinator.set(prefixContext + "new-context-2");
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+    executor.execute(contextCaptorTask2);
+    coordinator.set(null);
+    TestStringContextCaptor contextCaptorTask3 = new TestStringContextCaptor();
+    executor.submit((Runnable) contextCaptorTask3).get(1, TimeUnit.SECONDS);
+    contextCaptorTask1.awaitCompletion(1, TimeUnit.SECONDS);
+    contextCaptorTask2.awaitCompletion(1, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-2")));
+    assertThat(contextCaptorTask3.getCapturedContext(), is(nullValue()));
+    assertThat(executor.getExpiredTaskCount(), is(0L));
+  }
+
+  @Test
+  void testEarliestDeadlineFirst() throws InterruptedException {
+    List<String> order = runOrdered(true);
+
+    assertThat(order, contains("deadline-1", "deadline-2", "deadline-3", "no-deadline"));
+  }
+
+  @Test
+  void testFirstInFirstOut() throws InterruptedException {
+    List<String> order = runOrdered(false);
+
+    assertThat(order, contains("deadline-3", "deadline-1", "no-deadline", "deadline-2"));
+  }
+
+  @Test
+  void testDiscardExpiredTasks() throws Exception {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextDeadlineExecutor<String> executor =
+        ContextDeadlineExecutor.of(1, coordinator, context -> System.nanoTime() - 1);
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+
+    coordinator.set("expired-context");
+    executor.execute(mockRunnable);
+    Future<?> future = executor.submit(mockRunnable);
+    coordinator.set(null);
+    executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+
+    assertThat(future.isCancelled(), is(true));
+    assertThat(executor.getExpiredTaskCount(), is(2L));
+    Mockito.verify(mockRunnable, Mockito.never()).run();
+    executor.shutdown();
+  }
+
+  @Test
+  void testFailExpiredTasks() throws Exception {
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    ContextDeadlineExecutor<String> executor = ContextDeadlineExecutor.of(1,
+        reportingThreadFactory(reportedException), new TestStringContextCoordinator(),
+        context -> System.nanoTime() - 1, false, ContextDeadlineExecutor.ExpiryPolicy.FAIL);
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+
+    TestStringContext.set("expired-context");
+    executor.execute(mockRunnable);
+    Future<?> future = executor.submit(mockRunnable);
+    TestStringContext.set(null);
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+
+    assertThat(exception.getCause(), is(instanceOf(TimeoutException.class)));
+    assertThat(reportedException.get(), is(instanceOf(TimeoutException.class)));
+    assertThat(executor.getExpiredTaskCount(), is(2L));
+    Mockito.verify(mockRunnable, Mockito.never()).run();
+    executor.shutdown();
+  }
+
+  @Test
+  void testInvalidArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    assertThrows(IllegalArgumentException.class, () -> ContextDeadlineExecutor.of(0,
+        coordinator, context -> ContextDeadlineExecutor.NO_DEADLINE));
+    assertThrows(NullPointerException.class,
+        () -> ContextDeadlineExecutor.of(1, coordinator, null));
+    assertThrows(NullPointerException.class, () -> ContextDeadlineExecutor.of(1, threadFactory,
+        coordinator, context -> ContextDeadlineExecutor.NO_DEADLINE, true, null));
+  }
+
+  /**
+   * Queues tasks with the deadlines 3, 1, none and 2 seconds from now behind a blocking task, and
+   * returns the order they ran in.
+   */
+  private static List<String> runOrdered(boolean earliestDeadlineFirst)
+      throws InterruptedException {
+    long now = System.nanoTime();
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextDeadlineExecutor<String> executor = ContextDeadlineExecutor.of(1,
+        Executors.defaultThreadFactory(), coordinator,
+        context -> now + TimeUnit.SECONDS.toNanos(Long.parseLong(context.substring(9))),
+        earliestDeadlineFirst, ContextDeadlineExecutor.ExpiryPolicy.DISCARD);
+    TestBlockingTask blockingTask = new TestBlockingTask();
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    coordinator.set(null);
+    executor.execute(blockingTask);
+    blockingTask.awaitStarted();
+    for (String context : new String[] {"deadline-3", "deadline-1", null, "deadline-2"}) {
+      coordinator.set(context);
+      executor.execute(() -> order.add(context == null ? "no-deadline" : TestStringContext.get()));
+    }
+    coordinator.set(null);
+    blockingTask.release();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    return order;
+  }
+
+  private static ThreadFactory reportingThreadFactory(AtomicReference<Throwable> reported) {
+    return runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> reported.set(e));
+      return thread;
+    };
+  }
+}
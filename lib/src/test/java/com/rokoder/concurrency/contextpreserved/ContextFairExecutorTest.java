@@ -0,0 +1,115 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextFairExecutorTest {
+
+  @Test
+  void testWeightedRoundRobin() throws InterruptedException {
+    String prefixContext = "testWeightedRoundRobin";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextFairExecutor<String> executor = ContextFairExecutor.of(1,
+        Executors.defaultThreadFactory(), coordinator, context -> context.substring(0, 8),
+        key -> "tenant-1".equals(key) ? 2 : 1, Integer.MAX_VALUE,
+        ContextFairExecutor.RejectionPolicy.ABORT);
+    TestBlockingTask blockingTask = new TestBlockingTask();
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    coordinator.set(null);
+    executor.execute(blockingTask);
+    blockingTask.awaitStarted();
+    for (int i = 1; i <= 5; i++) {
+      coordinator.set("tenant-1" + prefixContext + i);
+      executor.execute(() -> order.add(TestStringContext.get().substring(8)));
+    }
+    for (int i = 1; i <= 2; i++) {
+      coordinator.set("tenant-2" + prefixContext + i);
+      executor.execute(() -> order.add(TestStringContext.get().substring(8)));
+    }
+    coordinator.set(null);
+    assertThat(executor.getQueuedTaskCount("tenant-1"), is(5));
+    assertThat(executor.getQueuedTaskCount("tenant-3"), is(0));
+    blockingTask.release();
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(order, contains(prefixContext + 1, prefixContext + 2, prefixContext + 1,
+        prefixContext + 3, prefixContext + 4, prefixContext + 2, prefixContext + 5));
+  }
+
+  @Test
+  void testRejectionPolicies() throws InterruptedException {
+    String prefixContext = "testRejectionPolicies";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    List<ContextFairExecutor<String>> executors = new ArrayList<>();
+    List<TestBlockingTask> blockingTasks = new ArrayList<>();
+    for (ContextFairExecutor.RejectionPolicy policy :
+        ContextFairExecutor.RejectionPolicy.values()) {
+      ContextFairExecutor<String> executor = ContextFairExecutor.of(1,
+          Executors.defaultThreadFactory(), coordinator, Function.identity(), key -> 1, 1, policy);
+      TestBlockingTask blockingTask = new TestBlockingTask();
+      executor.execute(blockingTask);
+      blockingTask.awaitStarted();
+      executors.add(executor);
+      blockingTasks.add(blockingTask);
+    }
+    coordinator.set(prefixContext + "new-context");
+    Runnable mockRunnable1 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable2 = Mockito.mock(Runnable.class);
+    for (ContextFairExecutor<String> executor : executors) {
+      executor.execute(mockRunnable1);
+    }
+
+    assertThrows(RejectedExecutionException.class, () -> executors.get(0).execute(mockRunnable2));
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    executors.get(1).execute(contextCaptorTask);
+    assertThat(contextCaptorTask.getCapturedContext(), is(equalTo(prefixContext + "new-context")));
+    executors.get(2).execute(mockRunnable2);
+    executors.get(3).execute(mockRunnable2);
+    coordinator.set(null);
+    assertThat(executors.get(2).shutdownNow(), contains(mockRunnable1));
+    assertThat(executors.get(3).shutdownNow(), contains(mockRunnable2));
+    for (TestBlockingTask blockingTask : blockingTasks) {
+      blockingTask.release();
+    }
+    for (ContextFairExecutor<String> executor : executors) {
+      executor.shutdown();
+      assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    }
+    Mockito.verify(mockRunnable1, Mockito.times(2)).run();
+    Mockito.verify(mockRunnable2, Mockito.never()).run();
+  }
+
+  @Test
+  void testInvalidArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ThreadFactory threadFactory = Executors.defaultThreadFactory();
+    ContextFairExecutor<String> executor = ContextFairExecutor.of(1, threadFactory, coordinator,
+        Function.identity(), key -> 0, 1, ContextFairExecutor.RejectionPolicy.ABORT);
+
+    assertThrows(IllegalArgumentException.class, () -> executor.execute(() -> { }));
+    assertThrows(IllegalArgumentException.class, () -> ContextFairExecutor.of(1, threadFactory,
+        coordinator, Function.identity(), key -> 1, 0, ContextFairExecutor.RejectionPolicy.ABORT));
+    assertThrows(NullPointerException.class, () -> ContextFairExecutor.of(1, coordinator, null));
+    assertThrows(NullPointerException.class, () -> ContextFairExecutor.of(1, threadFactory,
+        coordinator, Function.identity(), null, 1, ContextFairExecutor.RejectionPolicy.ABORT));
+    assertThrows(NullPointerException.class, () -> ContextFairExecutor.of(1, threadFactory,
+        coordinator, Function.identity(), key -> 1, 1, null));
+    executor.shutdownNow();
+  }
+}
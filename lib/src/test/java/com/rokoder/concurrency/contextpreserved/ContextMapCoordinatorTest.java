@@ -0,0 +1,75 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+final class ContextMapCoordinatorTest {
+  private final ContextMapCoordinator coordinator = ContextMapCoordinator.create();
+
+  @Test
+  void testEmptyWhenNotSet() {
+    assertThat(coordinator.get(), is(sameInstance(ContextMap.empty())));
+    assertThat(coordinator.getValue("key"), is(nullValue()));
+  }
+
+  @Test
+  void testPutAndRemoveValue() {
+    String prefixContext = "testPutAndRemoveValue";
+    coordinator.putValue("key-1", prefixContext + "value-1");
+    coordinator.putValue("key-2", prefixContext + "value-2");
+
+    assertThat(coordinator.getValue("key-1"), is(equalTo(prefixContext + "value-1")));
+    assertThat(coordinator.get().size(), is(2));
+
+    ContextMap contextMap = coordinator.get();
+    coordinator.putValue("key-1", prefixContext + "value-1");
+    assertThat(coordinator.get(), is(sameInstance(contextMap)));
+
+    coordinator.removeValue("key-1");
+    coordinator.removeValue("key-2");
+    assertThat(coordinator.get(), is(sameInstance(ContextMap.empty())));
+  }
+
+  @Test
+  void testSet() {
+    String prefixContext = "testSet";
+    ContextMap contextMap = ContextMap.empty().put("key", prefixContext + "value");
+
+    coordinator.set(contextMap);
+    assertThat(coordinator.get(), is(sameInstance(contextMap)));
+    coordinator.set(null);
+    assertThat(coordinator.get(), is(sameInstance(ContextMap.empty())));
+    coordinator.set(contextMap);
+    coordinator.set(ContextMap.empty());
+    assertThat(coordinator.get(), is(sameInstance(ContextMap.empty())));
+  }
+
+  @Test
+  void testCapturedContextNotAffectedByLaterPut()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testCapturedContextNotAffectedByLaterPut";
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    coordinator.putValue("key", prefixContext + "value-1");
+
+    Future<String> future = DynamicContextPreservedExecutorService.wrap(executorService,
+        coordinator).submit(() -> coordinator.getValue("key"));
+    coordinator.putValue("key", prefixContext + "value-2");
+
+    assertThat(future.get(1, TimeUnit.SECONDS), is(equalTo(prefixContext + "value-1")));
+    assertThat(coordinator.getValue("key"), is(equalTo(prefixContext + "value-2")));
+    assertThat(executorService.submit(() -> coordinator.get().isEmpty()).get(1, TimeUnit.SECONDS),
+        is(true));
+    executorService.shutdown();
+  }
+}
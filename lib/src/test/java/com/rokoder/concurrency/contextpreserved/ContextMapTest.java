@@ -0,0 +1,158 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+final class ContextMapTest {
+  // "Aa", "BB" and "C#" have the same hash code, "Bb" only shares its lowest 5 bits with them
+  private static final String COLLISION_KEY_1 = "Aa";
+  private static final String COLLISION_KEY_2 = "BB";
+  private static final String COLLISION_KEY_3 = "C#";
+  private static final String PREFIX_KEY = "Bb";
+
+  @Test
+  void testEmpty() {
+    ContextMap contextMap = ContextMap.empty();
+
+    assertThat(contextMap.size(), is(0));
+    assertThat(contextMap.isEmpty(), is(true));
+    assertThat(contextMap.get("key"), is(nullValue()));
+    assertThat(contextMap.remove("key"), is(sameInstance(contextMap)));
+    assertThat(contextMap.toMap().isEmpty(), is(true));
+  }
+
+  @Test
+  void testPutAndGet() {
+    String prefixContext = "testPutAndGet";
+    ContextMap contextMap = ContextMap.empty().put("a", prefixContext + "value-1")
+        .put("b", prefixContext + "value-2");
+
+    assertThat(contextMap.size(), is(2));
+    assertThat(contextMap.isEmpty(), is(false));
+    assertThat(contextMap.get("a"), is(equalTo(prefixContext + "value-1")));
+    assertThat(contextMap.get("b"), is(equalTo(prefixContext + "value-2")));
+    assertThat(contextMap.get("A"), is(nullValue()));
+    assertThat(contextMap.get("c"), is(nullValue()));
+    assertThat(contextMap.containsKey("a"), is(true));
+    assertThat(contextMap.containsKey("c"), is(false));
+  }
+
+  @Test
+  void testPutSharesStructure() {
+    String prefixContext = "testPutSharesStructure";
+    ContextMap contextMap1 = ContextMap.empty().put("a", prefixContext + "value-1");
+    ContextMap contextMap2 = contextMap1.put("a", prefixContext + "value-2");
+
+    assertThat(contextMap1.put("a", prefixContext + "value-1"), is(sameInstance(contextMap1)));
+    assertThat(contextMap1.get("a"), is(equalTo(prefixContext + "value-1")));
+    assertThat(contextMap2.get("a"), is(equalTo(prefixContext + "value-2")));
+    assertThat(contextMap2.size(), is(1));
+  }
+
+  @Test
+  void testDeepKeys() {
+    String prefixContext = "testDeepKeys";
+    // "a" and "A" share their lowest 5 hash bits
+    ContextMap contextMap = ContextMap.empty().put("a", prefixContext + "value-1")
+        .put("A", prefixContext + "value-2").put("b", prefixContext + "value-3");
+
+    assertThat(contextMap.get("a"), is(equalTo(prefixContext + "value-1")));
+    assertThat(contextMap.get("A"), is(equalTo(prefixContext + "value-2")));
+    assertThat(contextMap.put("A", prefixContext + "value-4").get("A"),
+        is(equalTo(prefixContext + "value-4")));
+
+    ContextMap removedMap = contextMap.remove("a");
+    assertThat(removedMap.size(), is(2));
+    assertThat(removedMap.get("a"), is(nullValue()));
+    assertThat(removedMap.get("A"), is(equalTo(prefixContext + "value-2")));
+    assertThat(removedMap.remove("A").remove("b"), is(sameInstance(ContextMap.empty())));
+    assertThat(contextMap.remove("b").size(), is(2));
+  }
+
+  @Test
+  void testHashCollisions() {
+    String prefixContext = "testHashCollisions";
+    ContextMap contextMap = ContextMap.empty().put("a", prefixContext + "value")
+        .put(COLLISION_KEY_1, prefixContext + "value-1")
+        .put(COLLISION_KEY_2, prefixContext + "value-2");
+
+    assertThat(contextMap.get(COLLISION_KEY_1), is(equalTo(prefixContext + "value-1")));
+    assertThat(contextMap.get(COLLISION_KEY_2), is(equalTo(prefixContext + "value-2")));
+    assertThat(contextMap.get(COLLISION_KEY_3), is(nullValue()));
+    assertThat(contextMap.get(PREFIX_KEY), is(nullValue()));
+
+    contextMap = contextMap.put(COLLISION_KEY_3, prefixContext + "value-3")
+        .put(COLLISION_KEY_2, prefixContext + "value-4")
+        .put(PREFIX_KEY, prefixContext + "value-5");
+    assertThat(contextMap.size(), is(5));
+    assertThat(contextMap.get(COLLISION_KEY_2), is(equalTo(prefixContext + "value-4")));
+    assertThat(contextMap.get(COLLISION_KEY_3), is(equalTo(prefixContext + "value-3")));
+    assertThat(contextMap.get(PREFIX_KEY), is(equalTo(prefixContext + "value-5")));
+
+    contextMap = contextMap.remove(COLLISION_KEY_1).remove(COLLISION_KEY_3);
+    assertThat(contextMap.get(COLLISION_KEY_2), is(equalTo(prefixContext + "value-4")));
+    contextMap = contextMap.remove(COLLISION_KEY_2).remove(PREFIX_KEY);
+    assertThat(contextMap.size(), is(1));
+    assertThat(contextMap.toMap(), is(equalTo(Map.of("a", prefixContext + "value"))));
+  }
+
+  @Test
+  void testOfAndToMap() {
+    String prefixContext = "testOfAndToMap";
+    Map<String, String> map = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      map.put("key-" + i, prefixContext + "value-" + i);
+    }
+    map.put(COLLISION_KEY_1, prefixContext + "value-1");
+    map.put(COLLISION_KEY_2, prefixContext + "value-2");
+
+    ContextMap contextMap = ContextMap.of(map);
+
+    assertThat(contextMap.size(), is(map.size()));
+    assertThat(contextMap.toMap(), is(equalTo(map)));
+    assertThat(contextMap.hashCode(), is(map.hashCode()));
+    // The HashMap iteration order depends on the insertion order, the entries are compared above
+    assertThat(contextMap.toString(), is(equalTo(contextMap.toMap().toString())));
+    Map<String, String> visited = new HashMap<>();
+    contextMap.forEach(visited::put);
+    assertThat(visited, is(equalTo(map)));
+  }
+
+  @Test
+  void testEquals() {
+    String prefixContext = "testEquals";
+    ContextMap contextMap = ContextMap.empty().put("a", prefixContext + "value-1")
+        .put("b", prefixContext + "value-2");
+
+    assertThat(contextMap, is(equalTo(contextMap)));
+    assertThat(contextMap, is(equalTo(ContextMap.empty().put("b", prefixContext + "value-2")
+        .put("a", prefixContext + "value-1"))));
+    assertThat(contextMap.hashCode(), is(equalTo(ContextMap.empty()
+        .put("b", prefixContext + "value-2").put("a", prefixContext + "value-1").hashCode())));
+    assertThat(contextMap, is(not(equalTo(contextMap.remove("a")))));
+    assertThat(contextMap, is(not(equalTo(contextMap.put("a", prefixContext + "value-3")))));
+    assertThat(contextMap, is(not(equalTo((Object) prefixContext))));
+    assertThat(ContextMap.empty().put(COLLISION_KEY_1, prefixContext + "value"),
+        is(not(equalTo(ContextMap.empty().put(COLLISION_KEY_2, prefixContext + "value")))));
+  }
+
+  @Test
+  void testNullArguments() {
+    ContextMap contextMap = ContextMap.empty();
+
+    assertThrows(NullPointerException.class, () -> ContextMap.of(null));
+    assertThrows(NullPointerException.class, () -> contextMap.get(null));
+    assertThrows(NullPointerException.class, () -> contextMap.put(null, "value"));
+    assertThrows(NullPointerException.class, () -> contextMap.put("key", null));
+    assertThrows(NullPointerException.class, () -> contextMap.forEach(null));
+  }
+}
@@ -3,6 +3,8 @@ package com.rokoder.concurrency.contextpreserved;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.concurrent.Callable;
@@ -103,13 +105,14 @@ final class ContextPreservedCallableTest {
     String prefixContext = "testPreviousContextRestoration";
     Callable mockCallable = Mockito.mock(Callable.class);
     ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
-    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
 
     Callable<String> wrap =
         ContextPreservedCallable.wrap(mockCallable, mockCoordinator, prefixContext + "new-context");
     wrap.call();
 
-    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context");
     Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
     Mockito.verify(mockCallable).call();
   }
@@ -121,17 +124,128 @@ final class ContextPreservedCallableTest {
     Mockito.doThrow(new IllegalStateException("test")).when(mockCallable).call();
 
     ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
-    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
 
     Callable wrap =
         ContextPreservedCallable.wrap(mockCallable, mockCoordinator, prefixContext + "new-context");
     assertThrows(IllegalStateException.class, wrap::call);
 
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
+    Mockito.verify(mockCallable).call();
+  }
+
+  @Test
+  void testElideIdenticalSkipsTransition() throws Exception {
+    String prefixContext = "testElideIdenticalSkipsTransition";
+    String context = prefixContext + "same-context";
+    Callable mockCallable = Mockito.mock(Callable.class);
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+
+    Callable wrap = ContextPreservedCallable.wrap(mockCallable, mockCoordinator, context,
+        ContextTransitionPolicy.ELIDE_IDENTICAL);
+    wrap.call();
+
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+    Mockito.verify(mockCallable).call();
+  }
+
+  @Test
+  void testElideIdenticalWithDifferentContext() throws Exception {
+    String prefixContext = "testElideIdenticalWithDifferentContext";
+    Callable mockCallable = Mockito.mock(Callable.class);
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+
+    Callable wrap = ContextPreservedCallable.wrap(mockCallable, mockCoordinator,
+        prefixContext + "new-context", ContextTransitionPolicy.ELIDE_IDENTICAL);
+    wrap.call();
+
     Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
     Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
     Mockito.verify(mockCallable).call();
   }
 
+  @Test
+  void testElideIdenticalAndNullSkipsWrap() {
+    Callable<String> mockCallable = Mockito.mock(Callable.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    assertThat(ContextPreservedCallable.wrap(mockCallable, coordinator, null,
+        ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL), is(sameInstance(mockCallable)));
+    assertThat(ContextPreservedCallable.wrap(mockCallable, coordinator, null,
+        ContextTransitionPolicy.ELIDE_IDENTICAL), is(not(sameInstance(mockCallable))));
+    assertThrows(NullPointerException.class, () -> ContextPreservedCallable.wrap(null,
+        coordinator, null, ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL));
+    assertThrows(NullPointerException.class,
+        () -> ContextPreservedCallable.wrap(mockCallable, coordinator, null, null));
+  }
+
+  @Test
+  void testInstallOnlySkipsGetAndRestore() throws Exception {
+    String prefixContext = "testInstallOnlySkipsGetAndRestore";
+    Callable mockCallable = Mockito.mock(Callable.class);
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+
+    Callable wrap = ContextPreservedCallable.wrap(mockCallable, mockCoordinator,
+        prefixContext + "new-context", ContextTransitionPolicy.INSTALL_ONLY);
+    wrap.call();
+
+    Mockito.verify(mockCoordinator, Mockito.never()).get();
+    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verifyNoMoreInteractions(mockCoordinator);
+    Mockito.verify(mockCallable).call();
+  }
+
+  @Test
+  void testRewrapWithSameContextFuses() throws Exception {
+    String prefixContext = "testRewrapWithSameContextFuses";
+    String context = prefixContext + "context-1";
+    Callable<String> mockCallable = Mockito.mock(Callable.class);
+    Mockito.when(mockCallable.call()).thenReturn(prefixContext + "result");
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.swap(context)).thenReturn(prefixContext + "previous-context");
+
+    Callable<String> wrapTask1 =
+        ContextPreservedCallable.wrap(mockCallable, mockCoordinator, context);
+    Callable<String> wrapTask2 = ContextPreservedCallable.wrap(wrapTask1, mockCoordinator, context);
+
+    assertThat(wrapTask2.call(), is(equalTo(prefixContext + "result")));
+    Mockito.verify(mockCoordinator).swap(context);
+    Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
+  }
+
+  @Test
+  void testRewrapWithDifferentContextKeepsInnerContext() throws Exception {
+    String prefixContext = "testRewrapWithDifferentContextKeepsInnerContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "previous-context");
+
+    Callable<String> wrapTask1 = ContextPreservedCallable.wrap(new TestStringContextCaptor(),
+        coordinator, prefixContext + "context-1");
+    Callable<String> wrapTask2 =
+        ContextPreservedCallable.wrap(wrapTask1, coordinator, prefixContext + "context-2");
+
+    assertThat(wrapTask2.call(), is(equalTo(prefixContext + "context-1")));
+    assertThat(coordinator.get(), is(equalTo(prefixContext + "previous-context")));
+    coordinator.set(null);
+  }
+
+  @Test
+  void testRewrapWithDifferentCoordinatorNests() throws Exception {
+    String prefixContext = "testRewrapWithDifferentCoordinatorNests";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    Callable<String> wrapTask1 = ContextPreservedCallable.wrap(new TestStringContextCaptor(),
+        coordinator, prefixContext + "context-1");
+    Callable<String> wrapTask2 = ContextPreservedCallable.wrap(wrapTask1,
+        new TestStringContextCoordinator(), prefixContext + "context-2");
+
+    assertThat(wrapTask2.call(), is(equalTo(prefixContext + "context-1")));
+  }
+
   private void submitAndWait(Callable<String> callable)
       throws ExecutionException, InterruptedException, TimeoutException {
     Future<?> future = executorService.submit(callable);
@@ -0,0 +1,160 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+final class ContextPreservedCompletableFutureTest {
+  private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+
+  @Test
+  void testDefaultExecutorStages() {
+    String prefixContext = "testDefaultExecutorStages";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    ContextPreservedCompletableFuture<String> factory =
+        ContextPreservedCompletableFuture.of(coordinator);
+    AtomicReference<String> capturedContext = new AtomicReference<>();
+
+    CompletableFuture<String> supplied = factory.supplyAsync(TestStringContext::get);
+    assertThat(supplied.join(), is(equalTo(prefixContext + "new-context-1")));
+
+    coordinator.set(prefixContext + "new-context-2");
+    factory.runAsync(() -> capturedContext.set(TestStringContext.get())).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-2")));
+
+    CompletableFuture<String> completed = CompletableFuture.completedFuture("value");
+    assertThat(factory.thenApplyAsync(completed, v -> TestStringContext.get()).join(),
+        is(equalTo(prefixContext + "new-context-2")));
+    factory.thenAcceptAsync(completed, v -> capturedContext.set(v + TestStringContext.get()))
+        .join();
+    assertThat(capturedContext.get(), is(equalTo("value" + prefixContext + "new-context-2")));
+    assertThat(factory.thenComposeAsync(completed,
+            v -> CompletableFuture.completedFuture(TestStringContext.get())).join(),
+        is(equalTo(prefixContext + "new-context-2")));
+    assertThat(factory.handleAsync(completed, (v, t) -> TestStringContext.get()).join(),
+        is(equalTo(prefixContext + "new-context-2")));
+    factory.whenCompleteAsync(completed, (v, t) -> capturedContext.set(TestStringContext.get()))
+        .join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-2")));
+
+    factory.thenRunAsync(completed, () -> capturedContext.set(TestStringContext.get() + "run"))
+        .join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-2run")));
+    assertThat(factory.thenCombineAsync(completed, completed,
+            (v1, v2) -> v1 + v2 + TestStringContext.get()).join(),
+        is(equalTo("valuevalue" + prefixContext + "new-context-2")));
+    factory.thenAcceptBothAsync(completed, completed,
+        (v1, v2) -> capturedContext.set(v1 + TestStringContext.get())).join();
+    assertThat(capturedContext.get(), is(equalTo("value" + prefixContext + "new-context-2")));
+    factory.runAfterBothAsync(completed, completed,
+        () -> capturedContext.set(TestStringContext.get() + "both")).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-2both")));
+    assertThat(factory.applyToEitherAsync(completed, completed,
+            v -> v + TestStringContext.get()).join(),
+        is(equalTo("value" + prefixContext + "new-context-2")));
+    factory.acceptEitherAsync(completed, completed,
+        v -> capturedContext.set(TestStringContext.get() + "either")).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-2either")));
+    factory.runAfterEitherAsync(completed, completed,
+        () -> capturedContext.set(TestStringContext.get())).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-2")));
+  }
+
+  @Test
+  void testExplicitExecutorStages() {
+    String prefixContext = "testExplicitExecutorStages";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    ContextPreservedCompletableFuture<String> factory =
+        ContextPreservedCompletableFuture.of(coordinator, executorService);
+    AtomicReference<String> capturedContext = new AtomicReference<>();
+
+    assertThat(factory.supplyAsync(TestStringContext::get, executorService).join(),
+        is(equalTo(prefixContext + "new-context-1")));
+    factory.runAsync(() -> capturedContext.set(TestStringContext.get()), executorService).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1")));
+
+    CompletableFuture<String> completed = CompletableFuture.completedFuture("value");
+    assertThat(factory.thenApplyAsync(completed, v -> TestStringContext.get(), executorService)
+        .join(), is(equalTo(prefixContext + "new-context-1")));
+    factory.thenAcceptAsync(completed, v -> capturedContext.set(v + TestStringContext.get()),
+        executorService).join();
+    assertThat(capturedContext.get(), is(equalTo("value" + prefixContext + "new-context-1")));
+    assertThat(factory.thenComposeAsync(completed,
+            v -> CompletableFuture.completedFuture(TestStringContext.get()), executorService)
+        .join(), is(equalTo(prefixContext + "new-context-1")));
+    assertThat(factory.handleAsync(completed, (v, t) -> TestStringContext.get(), executorService)
+        .join(), is(equalTo(prefixContext + "new-context-1")));
+    factory.whenCompleteAsync(completed, (v, t) -> capturedContext.set(TestStringContext.get()),
+        executorService).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1")));
+
+    factory.thenRunAsync(completed, () -> capturedContext.set(TestStringContext.get() + "run"),
+        executorService).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1run")));
+    assertThat(factory.thenCombineAsync(completed, completed,
+            (v1, v2) -> v1 + v2 + TestStringContext.get(), executorService).join(),
+        is(equalTo("valuevalue" + prefixContext + "new-context-1")));
+    factory.thenAcceptBothAsync(completed, completed,
+        (v1, v2) -> capturedContext.set(v1 + TestStringContext.get()), executorService).join();
+    assertThat(capturedContext.get(), is(equalTo("value" + prefixContext + "new-context-1")));
+    factory.runAfterBothAsync(completed, completed,
+        () -> capturedContext.set(TestStringContext.get() + "both"), executorService).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1both")));
+    assertThat(factory.applyToEitherAsync(completed, completed,
+            v -> v + TestStringContext.get(), executorService).join(),
+        is(equalTo("value" + prefixContext + "new-context-1")));
+    factory.acceptEitherAsync(completed, completed,
+        v -> capturedContext.set(TestStringContext.get() + "either"), executorService).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1either")));
+    factory.runAfterEitherAsync(completed, completed,
+        () -> capturedContext.set(TestStringContext.get()), executorService).join();
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1")));
+  }
+
+  @Test
+  void testCurrentExecutorKeepsCapturedContext() {
+    String prefixContext = "testCurrentExecutorKeepsCapturedContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    ContextPreservedCompletableFuture<String> factory =
+        ContextPreservedCompletableFuture.of(coordinator, executorService);
+
+    Executor executor = factory.currentExecutor();
+    coordinator.set(prefixContext + "new-context-2");
+
+    assertThat(CompletableFuture.supplyAsync(TestStringContext::get, executor).join(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(CompletableFuture.completedFuture("value")
+            .thenApplyAsync(v -> TestStringContext.get(), factory.currentExecutor()).join(),
+        is(equalTo(prefixContext + "new-context-2")));
+    coordinator.set(null);
+  }
+
+  @Test
+  void testStageOnDynamicExecutorKeepsCreatorContext() {
+    String prefixContext = "testStageOnDynamicExecutorKeepsCreatorContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    Executor dynamicExecutor = DynamicContextPreservedExecutor.wrap(executorService, coordinator);
+    ContextPreservedCompletableFuture<String> factory =
+        ContextPreservedCompletableFuture.of(coordinator, dynamicExecutor);
+    CompletableFuture<String> pending = new CompletableFuture<>();
+
+    coordinator.set(prefixContext + "creator-context");
+    CompletableFuture<String> stage =
+        factory.thenApplyAsync(pending, v -> TestStringContext.get(), dynamicExecutor);
+    coordinator.set(prefixContext + "completer-context");
+    pending.complete("value");
+
+    assertThat(stage.join(), is(equalTo(prefixContext + "creator-context")));
+    coordinator.set(null);
+  }
+}
@@ -0,0 +1,161 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextPreservedRecursiveActionTest {
+  private final ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+  @Test
+  void testContextPreservedAcrossInvokeAll() {
+    String prefixContext = "testContextPreservedAcrossInvokeAll";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    AtomicLong sum = new AtomicLong();
+    ContextCheckingSumAction action =
+        new ContextCheckingSumAction(coordinator, prefixContext + "new-context-1", sum, 0, 1000);
+    coordinator.set(prefixContext + "new-context-2");
+    forkJoinPool.invoke(action);
+    assertThat(sum.get(), is(equalTo(499500L)));
+  }
+
+  @Test
+  void testSameContextSkipsTransition() {
+    String prefixContext = "testSameContextSkipsTransition";
+    String context = prefixContext + "same-context";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    new MockRunnableAction(mockCoordinator, context, mockRunnable).invoke();
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testPreviousContextRestoration() {
+    String prefixContext = "testPreviousContextRestoration";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    new MockRunnableAction(mockCoordinator, prefixContext + "new-context", mockRunnable).invoke();
+    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testSubtaskOfTask() {
+    String prefixContext = "testSubtaskOfTask";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    AtomicLong sum = new AtomicLong();
+    ContextPreservedRecursiveTask<String, Long> task =
+        new ContextPreservedRecursiveTask<String, Long>(coordinator) {
+          @Override
+          protected Long computeWithContext() {
+            new ContextCheckingSumAction(this, prefixContext + "new-context-1", sum, 0, 10)
+                .invoke();
+            return sum.get();
+          }
+        };
+    coordinator.set(prefixContext + "new-context-2");
+    assertThat(forkJoinPool.invoke(task), is(equalTo(45L)));
+  }
+
+  @Test
+  void testDeserializationRejected() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(new MockRunnableAction(new TestStringContextCoordinator(), "new-context",
+        Mockito.mock(Runnable.class)));
+    }
+
+    try (ObjectInputStream in =
+             new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertThrows(NotSerializableException.class, in::readObject);
+    }
+  }
+
+  private static final class MockRunnableAction extends ContextPreservedRecursiveAction<String> {
+    private static final long serialVersionUID = 1L;
+    private final transient Runnable runnable;
+
+    MockRunnableAction(ContextCoordinator<String> coordinator, String newContext,
+                       Runnable runnable) {
+      super(coordinator, newContext);
+      this.runnable = runnable;
+    }
+
+    @Override
+    protected void computeWithContext() {
+      runnable.run();
+    }
+  }
+
+  private static final class ContextCheckingSumAction
+      extends ContextPreservedRecursiveAction<String> {
+    private static final long serialVersionUID = 1L;
+    private final String expectedContext;
+    private final AtomicLong sum;
+    private final int from;
+    private final int to;
+
+    ContextCheckingSumAction(ContextCoordinator<String> coordinator, String expectedContext,
+                             AtomicLong sum, int from, int to) {
+      super(coordinator);
+      this.expectedContext = expectedContext;
+      this.sum = sum;
+      this.from = from;
+      this.to = to;
+    }
+
+    ContextCheckingSumAction(ContextCheckingSumAction parent, int from, int to) {
+      super(parent);
+      this.expectedContext = parent.expectedContext;
+      this.sum = parent.sum;
+      this.from = from;
+      this.to = to;
+    }
+
+    ContextCheckingSumAction(ContextPreservedRecursiveTask<String, ?> parent,
+                             String expectedContext, AtomicLong sum, int from, int to) {
+      super(parent);
+      this.expectedContext = expectedContext;
+      this.sum = sum;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void computeWithContext() {
+      assertThat(TestStringContext.get(), is(equalTo(expectedContext)));
+      if (to - from <= 10) {
+        for (int i = from; i < to; i++) {
+          sum.addAndGet(i);
+        }
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      ForkJoinTask.invokeAll(new ContextCheckingSumAction(this, from, mid),
+          new ContextCheckingSumAction(this, mid, to));
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextPreservedRecursiveTaskTest {
+  private final ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+  @Test
+  void testContextPreservedAcrossForkAndJoin() {
+    String prefixContext = "testContextPreservedAcrossForkAndJoin";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ContextCheckingSumTask task =
+        new ContextCheckingSumTask(coordinator, prefixContext + "new-context-1", 0, 1000);
+    assertThat(forkJoinPool.invoke(task), is(equalTo(499500L)));
+  }
+
+  @Test
+  void testPassedContext() {
+    String prefixContext = "testPassedContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ContextCheckingSumTask task = new ContextCheckingSumTask(coordinator,
+        prefixContext + "new-passed-context", prefixContext + "new-passed-context", 0, 1000);
+    assertThat(forkJoinPool.invoke(task), is(equalTo(499500L)));
+  }
+
+  @Test
+  void testSameContextSkipsTransition() {
+    String prefixContext = "testSameContextSkipsTransition";
+    String context = prefixContext + "same-context";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+
+    ContextPreservedRecursiveTask<String, String> task =
+        new ContextPreservedRecursiveTask<String, String>(mockCoordinator, context) {
+          @Override
+          protected String computeWithContext() {
+            return "result";
+          }
+        };
+    assertThat(task.invoke(), is(equalTo("result")));
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+  }
+
+  @Test
+  void testPreviousContextRestoration() {
+    String prefixContext = "testPreviousContextRestoration";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+
+    ContextPreservedRecursiveTask<String, String> task =
+        new ContextPreservedRecursiveTask<String, String>(mockCoordinator,
+            prefixContext + "new-context") {
+          @Override
+          protected String computeWithContext() {
+            return "result";
+          }
+        };
+    assertThat(task.invoke(), is(equalTo("result")));
+    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
+  }
+
+  @Test
+  void testSubtaskOfAction() {
+    String prefixContext = "testSubtaskOfAction";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    long[] result = new long[1];
+    ContextPreservedRecursiveAction<String> action =
+        new ContextPreservedRecursiveAction<String>(coordinator) {
+          @Override
+          protected void computeWithContext() {
+            result[0] = new ContextCheckingSumTask(this, prefixContext + "new-context-1", 0, 10)
+                .fork().join();
+          }
+        };
+    coordinator.set(prefixContext + "new-context-2");
+    forkJoinPool.invoke(action);
+    assertThat(result[0], is(equalTo(45L)));
+  }
+
+  @Test
+  void testDeserializationRejected() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(new ContextCheckingSumTask(new TestStringContextCoordinator(),
+          "new-context", "new-context", 0, 10));
+    }
+
+    try (ObjectInputStream in =
+             new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertThrows(NotSerializableException.class, in::readObject);
+    }
+  }
+
+  private static final class ContextCheckingSumTask
+      extends ContextPreservedRecursiveTask<String, Long> {
+    private static final long serialVersionUID = 1L;
+    private final String expectedContext;
+    private final int from;
+    private final int to;
+
+    ContextCheckingSumTask(ContextCoordinator<String> coordinator, String expectedContext,
+                           int from, int to) {
+      super(coordinator);
+      this.expectedContext = expectedContext;
+      this.from = from;
+      this.to = to;
+    }
+
+    ContextCheckingSumTask(ContextCoordinator<String> coordinator, String newContext,
+                           String expectedContext, int from, int to) {
+      super(coordinator, newContext);
+      this.expectedContext = expectedContext;
+      this.from = from;
+      this.to = to;
+    }
+
+    ContextCheckingSumTask(ContextCheckingSumTask parent, int from, int to) {
+      super(parent);
+      this.expectedContext = parent.expectedContext;
+      this.from = from;
+      this.to = to;
+    }
+
+    ContextCheckingSumTask(ContextPreservedRecursiveAction<String> parent, String expectedContext,
+                           int from, int to) {
+      super(parent);
+      this.expectedContext = expectedContext;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Long computeWithContext() {
+      assertThat(TestStringContext.get(), is(equalTo(expectedContext)));
+      if (to - from <= 10) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+          sum += i;
+        }
+        return sum;
+      }
+      int mid = (from + to) >>> 1;
+      ContextCheckingSumTask left = new ContextCheckingSumTask(this, from, mid);
+      ContextCheckingSumTask right = new ContextCheckingSumTask(this, mid, to);
+      left.fork();
+      return right.compute() + left.join();
+    }
+  }
+}
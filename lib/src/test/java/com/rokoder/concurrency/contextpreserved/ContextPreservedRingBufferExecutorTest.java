@@ -0,0 +1,298 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+final class ContextPreservedRingBufferExecutorTest {
+
+  @Test
+  void testContextPreserved() throws InterruptedException {
+    for (ContextPreservedRingBufferExecutor.WaitStrategy waitStrategy
+        : ContextPreservedRingBufferExecutor.WaitStrategy.values()) {
+      String prefixContext = "testContextPreserved" + waitStrategy;
+      TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+      ContextPreservedRingBufferExecutor<String> executor =
+          ContextPreservedRingBufferExecutor.of(4, 2, Executors.defaultThreadFactory(),
+              coordinator, waitStrategy);
+
+      coordinator.set(prefixContext + "new-context-1");
+      TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+      executor.execute(contextCaptorTask1);
+      coordinator.set(prefixContext + "new-context-2");
+      TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+      executor.execute(contextCaptorTask2);
+      contextCaptorTask1.awaitCompletion(1, TimeUnit.SECONDS);
+      contextCaptorTask2.awaitCompletion(1, TimeUnit.SECONDS);
+      executor.shutdown();
+
+      assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+      assertThat(contextCaptorTask1.getCapturedContext(),
+          is(equalTo(prefixContext + "new-context-1")));
+      assertThat(contextCaptorTask2.getCapturedContext(),
+          is(equalTo(prefixContext + "new-context-2")));
+    }
+  }
+
+  @Test
+  void testPreviousContextRestoration() throws InterruptedException {
+    String prefixContext = "testPreviousContextRestoration";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "new-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(2, 1, mockCoordinator);
+
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    executor.execute(mockRunnable);
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    InOrder inOrder = Mockito.inOrder(mockCoordinator, mockRunnable);
+    inOrder.verify(mockCoordinator).swap(prefixContext + "new-context");
+    inOrder.verify(mockRunnable).run();
+    inOrder.verify(mockCoordinator).set(prefixContext + "previous-context");
+  }
+
+  @Test
+  void testCapacity() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextPreservedRingBufferExecutor<String> executor1 =
+        ContextPreservedRingBufferExecutor.of(3, 1, coordinator);
+    ContextPreservedRingBufferExecutor<String> executor2 =
+        ContextPreservedRingBufferExecutor.of(4, 1, coordinator);
+    ContextPreservedRingBufferExecutor<String> executor3 =
+        ContextPreservedRingBufferExecutor.of(1, 1, coordinator);
+
+    assertThat(executor1.capacity(), is(4));
+    assertThat(executor2.capacity(), is(4));
+    assertThat(executor3.capacity(), is(2));
+    executor1.shutdownNow();
+    executor2.shutdownNow();
+    executor3.shutdownNow();
+  }
+
+  @Test
+  void testRejectWhenFull() throws InterruptedException {
+    TestBlockingTask blockingTask = new TestBlockingTask();
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(2, 1, new TestStringContextCoordinator());
+
+    executor.execute(blockingTask);
+    blockingTask.awaitStarted();
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    executor.execute(mockRunnable);
+    executor.execute(mockRunnable);
+
+    assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    blockingTask.release();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    Mockito.verify(mockRunnable, Mockito.times(2)).run();
+  }
+
+  @Test
+  void testInterruptStatusClearedAfterTask() throws Exception {
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(2, 1, new TestStringContextCoordinator());
+
+    executor.submit(() -> Thread.currentThread().interrupt()).get(1, TimeUnit.SECONDS);
+    Future<Boolean> interrupted = executor.submit(() -> Thread.currentThread().isInterrupted());
+
+    assertThat(interrupted.get(1, TimeUnit.SECONDS), is(false));
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  void testRejectAfterShutdown() throws InterruptedException {
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(2, 1, new TestStringContextCoordinator());
+    executor.shutdown();
+
+    assertThat(executor.isShutdown(), is(true));
+    assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(executor.isTerminated(), is(true));
+  }
+
+  @Test
+  void testShutdownNowReturnsPendingTasks() throws InterruptedException {
+    TestBlockingTask blockingTask = new TestBlockingTask();
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(4, 1, new TestStringContextCoordinator());
+
+    executor.execute(blockingTask);
+    blockingTask.awaitStarted();
+    Runnable mockRunnable1 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable2 = Mockito.mock(Runnable.class);
+    executor.execute(mockRunnable1);
+    executor.execute(mockRunnable2);
+
+    assertThat(executor.isTerminated(), is(false));
+    List<Runnable> pendingTasks = executor.shutdownNow();
+    assertThat(pendingTasks, contains(mockRunnable1, mockRunnable2));
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    Mockito.verify(mockRunnable1, Mockito.never()).run();
+  }
+
+  @Test
+  void testExceptionReportedAndWorkerContinues() throws Exception {
+    IllegalStateException exception = new IllegalStateException("test");
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> reportedException.set(e));
+      return thread;
+    };
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(2, 1, threadFactory,
+            new TestStringContextCoordinator(),
+            ContextPreservedRingBufferExecutor.WaitStrategy.YIELD);
+
+    executor.execute(() -> {
+      throw exception;
+    });
+    executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+
+    assertThat(reportedException.get(), is(exception));
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testWorkerReplacedAfterError() throws Exception {
+    TestError error = new TestError();
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    CountDownLatch reportedLatch = new CountDownLatch(1);
+    AtomicInteger createdThreads = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      createdThreads.incrementAndGet();
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> {
+        reportedException.set(e);
+        reportedLatch.countDown();
+      });
+      return thread;
+    };
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(2, 1, threadFactory,
+            new TestStringContextCoordinator(),
+            ContextPreservedRingBufferExecutor.WaitStrategy.PARK);
+
+    executor.execute(() -> {
+      throw error;
+    });
+    executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+    assertThat(executor.isTerminated(), is(false));
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    // The dying worker reports the error after starting its replacement
+    assertThat(reportedLatch.await(1, TimeUnit.SECONDS), is(true));
+    assertThat(reportedException.get(), is(error));
+    assertThat(createdThreads.get(), is(2));
+  }
+
+  @Test
+  void testTerminatesWhenWorkerCannotBeReplaced() throws InterruptedException {
+    AtomicInteger createdThreads = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      if (createdThreads.incrementAndGet() > 1) {
+        return null;
+      }
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> { });
+      return thread;
+    };
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(2, 1, threadFactory,
+            new TestStringContextCoordinator(),
+            ContextPreservedRingBufferExecutor.WaitStrategy.PARK);
+
+    executor.execute(() -> {
+      throw new TestError();
+    });
+
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(createdThreads.get(), is(2));
+    executor.shutdown();
+  }
+
+  @Test
+  void testConcurrentProducers() throws Exception {
+    String prefixContext = "testConcurrentProducers";
+    int producers = 4;
+    int tasksPerProducer = 1_000;
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextPreservedRingBufferExecutor<String> executor =
+        ContextPreservedRingBufferExecutor.of(16, 4, Executors.defaultThreadFactory(),
+            coordinator, ContextPreservedRingBufferExecutor.WaitStrategy.SPIN);
+    ExecutorService producerExecutor = Executors.newFixedThreadPool(producers);
+    AtomicInteger matchedCount = new AtomicInteger();
+
+    List<Future<?>> producerFutures = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      String context = prefixContext + "new-context-" + p;
+      producerFutures.add(producerExecutor.submit(() -> {
+        coordinator.set(context);
+        for (int i = 0; i < tasksPerProducer; i++) {
+          Runnable task = () -> {
+            if (context.equals(TestStringContext.get())) {
+              matchedCount.incrementAndGet();
+            }
+          };
+          while (true) {
+            try {
+              executor.execute(task);
+              break;
+            } catch (RejectedExecutionException e) {
+              Thread.yield();
+            }
+          }
+        }
+      }));
+    }
+    for (Future<?> producerFuture : producerFutures) {
+      producerFuture.get(10, TimeUnit.SECONDS);
+    }
+    producerExecutor.shutdown();
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+    assertThat(matchedCount.get(), is(producers * tasksPerProducer));
+  }
+
+  @Test
+  void testInvalidArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    assertThrows(IllegalArgumentException.class,
+        () -> ContextPreservedRingBufferExecutor.of(0, 1, coordinator));
+    assertThrows(IllegalArgumentException.class,
+        () -> ContextPreservedRingBufferExecutor.of((1 << 30) + 1, 1, coordinator));
+    assertThrows(IllegalArgumentException.class,
+        () -> ContextPreservedRingBufferExecutor.of(1, 0, coordinator));
+  }
+
+  private static final class TestError extends Error {
+    private static final long serialVersionUID = 1L;
+  }
+}
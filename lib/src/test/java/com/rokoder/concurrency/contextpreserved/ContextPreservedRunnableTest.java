@@ -3,6 +3,8 @@ package com.rokoder.concurrency.contextpreserved;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.concurrent.ExecutionException;
@@ -98,13 +100,14 @@ final class ContextPreservedRunnableTest {
     String prefixContext = "testCapturedContextAtCreation";
     Runnable mockRunnable = Mockito.mock(Runnable.class);
     ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
-    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
 
     Runnable wrap =
         ContextPreservedRunnable.wrap(mockRunnable, mockCoordinator, prefixContext + "new-context");
     wrap.run();
 
-    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context");
     Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
     Mockito.verify(mockRunnable).run();
   }
@@ -116,20 +119,178 @@ final class ContextPreservedRunnableTest {
     Mockito.doThrow(new IllegalStateException("test")).when(mockRunnable).run();
 
     ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
-    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
 
     Runnable wrap =
         ContextPreservedRunnable.wrap(mockRunnable, mockCoordinator, prefixContext + "new-context");
     assertThrows(IllegalStateException.class, wrap::run);
 
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testElideIdenticalSkipsTransition() {
+    String prefixContext = "testElideIdenticalSkipsTransition";
+    String context = prefixContext + "same-context";
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+
+    Runnable wrap = ContextPreservedRunnable.wrap(mockRunnable, mockCoordinator, context,
+        ContextTransitionPolicy.ELIDE_IDENTICAL);
+    wrap.run();
+
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testElideIdenticalWithDifferentContext() {
+    String prefixContext = "testElideIdenticalWithDifferentContext";
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+
+    Runnable wrap = ContextPreservedRunnable.wrap(mockRunnable, mockCoordinator,
+        prefixContext + "new-context", ContextTransitionPolicy.ELIDE_IDENTICAL);
+    wrap.run();
+
     Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
     Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
     Mockito.verify(mockRunnable).run();
   }
 
+  @Test
+  void testElideIdenticalAndNullSkipsWrap() {
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    assertThat(ContextPreservedRunnable.wrap(mockRunnable, coordinator, null,
+        ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL), is(sameInstance(mockRunnable)));
+    assertThat(ContextPreservedRunnable.wrap(mockRunnable, coordinator, null,
+        ContextTransitionPolicy.ELIDE_IDENTICAL), is(not(sameInstance(mockRunnable))));
+    assertThrows(NullPointerException.class, () -> ContextPreservedRunnable.wrap(null,
+        coordinator, null, ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL));
+    assertThrows(NullPointerException.class,
+        () -> ContextPreservedRunnable.wrap(mockRunnable, coordinator, null, null));
+  }
+
+  @Test
+  void testInstallOnlySkipsGetAndRestore() {
+    String prefixContext = "testInstallOnlySkipsGetAndRestore";
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+
+    Runnable wrap = ContextPreservedRunnable.wrap(mockRunnable, mockCoordinator,
+        prefixContext + "new-context", ContextTransitionPolicy.INSTALL_ONLY);
+    wrap.run();
+
+    Mockito.verify(mockCoordinator, Mockito.never()).get();
+    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verifyNoMoreInteractions(mockCoordinator);
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testRewrapWithSameContextFuses() {
+    String prefixContext = "testRewrapWithSameContextFuses";
+    String context = prefixContext + "context-1";
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.swap(context)).thenReturn(prefixContext + "previous-context");
+
+    Runnable wrapTask1 = ContextPreservedRunnable.wrap(mockRunnable, mockCoordinator, context);
+    Runnable wrapTask2 = ContextPreservedRunnable.wrap(wrapTask1, mockCoordinator, context);
+    wrapTask2.run();
+
+    assertThat(ContextPreservedRunnable.unwrap(wrapTask2), is(sameInstance(mockRunnable)));
+    Mockito.verify(mockCoordinator).swap(context);
+    Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testRewrapWithDifferentContextKeepsInnerContext() {
+    String prefixContext = "testRewrapWithDifferentContextKeepsInnerContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "previous-context");
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+
+    Runnable wrapTask1 =
+        ContextPreservedRunnable.wrap(contextCaptorTask, coordinator, prefixContext + "context-1");
+    Runnable wrapTask2 =
+        ContextPreservedRunnable.wrap(wrapTask1, coordinator, prefixContext + "context-2");
+    wrapTask2.run();
+
+    assertThat(ContextPreservedRunnable.unwrap(wrapTask2), is(sameInstance(wrapTask1)));
+    assertThat(contextCaptorTask.getCapturedContext(), is(equalTo(prefixContext + "context-1")));
+    assertThat(coordinator.get(), is(equalTo(prefixContext + "previous-context")));
+    coordinator.set(null);
+  }
+
+  @Test
+  void testRewrapWithDifferentCoordinatorNests() {
+    String prefixContext = "testRewrapWithDifferentCoordinatorNests";
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    Runnable wrapTask1 =
+        ContextPreservedRunnable.wrap(mockRunnable, coordinator, prefixContext + "context-1");
+    Runnable wrapTask2 = ContextPreservedRunnable.wrap(wrapTask1,
+        new TestStringContextCoordinator(), prefixContext + "context-2");
+
+    assertThat(ContextPreservedRunnable.unwrap(wrapTask2), is(sameInstance(wrapTask1)));
+    assertThat(ContextPreservedRunnable.unwrap(mockRunnable), is(sameInstance(mockRunnable)));
+  }
+
+  @Test
+  void testContextInstalledWithSwap() {
+    String prefixContext = "testContextInstalledWithSwap";
+    SwapCountingContextCoordinator coordinator = new SwapCountingContextCoordinator();
+    coordinator.set(prefixContext + "previous-context");
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+
+    ContextPreservedRunnable.wrap(contextCaptorTask, coordinator, prefixContext + "new-context")
+        .run();
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context")));
+    assertThat(coordinator.swapCount, is(1));
+    assertThat(coordinator.getCount, is(0));
+    assertThat(TestStringContext.get(), is(equalTo(prefixContext + "previous-context")));
+    coordinator.set(null);
+  }
+
   private void submitAndWait(Runnable runnable)
       throws ExecutionException, InterruptedException, TimeoutException {
     Future<?> future = executorService.submit(runnable);
     future.get(1, TimeUnit.SECONDS);
   }
+
+  private static final class SwapCountingContextCoordinator implements ContextCoordinator<String> {
+    private int getCount;
+    private int swapCount;
+
+    @Override
+    public String get() {
+      getCount++;
+      return TestStringContext.get();
+    }
+
+    @Override
+    public void set(String context) {
+      TestStringContext.set(context);
+    }
+
+    @Override
+    public String swap(String newContext) {
+      swapCount++;
+      String prevContext = TestStringContext.get();
+      TestStringContext.set(newContext);
+      return prevContext;
+    }
+  }
 }
@@ -0,0 +1,244 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextPreservedSerialExecutorTest {
+
+  @Test
+  void testContextPreservedInOrder() throws InterruptedException {
+    String prefixContext = "testContextPreservedInOrder";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(executorService, coordinator, 8);
+    List<Integer> order = new ArrayList<>();
+    List<String> capturedContexts = new ArrayList<>();
+    CountDownLatch completedLatch = new CountDownLatch(100);
+
+    for (int i = 0; i < 100; i++) {
+      int index = i;
+      coordinator.set(prefixContext + "new-context-" + i / 10);
+      executor.execute(() -> {
+        order.add(index);
+        capturedContexts.add(TestStringContext.get());
+        completedLatch.countDown();
+      });
+    }
+    coordinator.set(null);
+
+    assertThat(completedLatch.await(1, TimeUnit.SECONDS), is(true));
+    for (int i = 0; i < 100; i++) {
+      assertThat(order.get(i), is(i));
+      assertThat(capturedContexts.get(i), is(equalTo(prefixContext + "new-context-" + i / 10)));
+    }
+    executorService.shutdown();
+    assertThat(executorService.awaitTermination(1, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  void testContextSetOncePerDrain() {
+    String prefixContext = "testContextSetOncePerDrain";
+    CountingContextCoordinator coordinator = new CountingContextCoordinator();
+    List<Runnable> drains = new ArrayList<>();
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(drains::add, coordinator);
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+
+    TestStringContext.set(prefixContext + "new-context-1");
+    executor.execute(contextCaptorTask1);
+    executor.execute(contextCaptorTask1);
+    TestStringContext.set(prefixContext + "new-context-2");
+    executor.execute(contextCaptorTask2);
+    executor.execute(contextCaptorTask2);
+    TestStringContext.set(prefixContext + "previous-context");
+
+    assertThat(drains.size(), is(1));
+    drains.get(0).run();
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-2")));
+    assertThat(TestStringContext.get(), is(equalTo(prefixContext + "previous-context")));
+    assertThat(coordinator.setCounts.get(prefixContext + "new-context-1"), is(1));
+    assertThat(coordinator.setCounts.get(prefixContext + "new-context-2"), is(1));
+    assertThat(coordinator.setCounts.get(prefixContext + "previous-context"), is(1));
+    TestStringContext.set(null);
+  }
+
+  @Test
+  void testSameContextSkipsTransition() {
+    String prefixContext = "testSameContextSkipsTransition";
+    String context = prefixContext + "same-context";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.capture()).thenReturn(context);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(Runnable::run, mockCoordinator);
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+
+    executor.execute(mockRunnable);
+    executor.execute(mockRunnable);
+
+    Mockito.verify(mockRunnable, Mockito.times(2)).run();
+    // Only the restore at the end of each drain
+    Mockito.verify(mockCoordinator, Mockito.times(2)).set(context);
+  }
+
+  @Test
+  void testContextReplacedByTaskDoesNotLeak() {
+    String prefixContext = "testContextReplacedByTaskDoesNotLeak";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    List<Runnable> drains = new ArrayList<>();
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(drains::add, coordinator);
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+
+    coordinator.set(prefixContext + "new-context-1");
+    executor.execute(() -> coordinator.set(prefixContext + "replaced-context"));
+    executor.execute(contextCaptorTask);
+    coordinator.set(prefixContext + "previous-context");
+    drains.get(0).run();
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(coordinator.get(), is(equalTo(prefixContext + "previous-context")));
+    coordinator.set(null);
+  }
+
+  @Test
+  void testDrainLimitResubmits() {
+    List<Runnable> drains = new ArrayList<>();
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(drains::add, new TestStringContextCoordinator(), 2);
+    AtomicInteger runCount = new AtomicInteger();
+
+    for (int i = 0; i < 5; i++) {
+      executor.execute(runCount::incrementAndGet);
+    }
+
+    assertThat(drains.size(), is(1));
+    drains.get(0).run();
+    assertThat(runCount.get(), is(2));
+    assertThat(drains.size(), is(2));
+    drains.get(1).run();
+    drains.get(2).run();
+    assertThat(runCount.get(), is(5));
+    assertThat(drains.size(), is(3));
+  }
+
+  @Test
+  void testTaskSubmittedByTaskRunsInSameDrain() {
+    List<Runnable> drains = new ArrayList<>();
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(drains::add, new TestStringContextCoordinator());
+    List<String> order = new ArrayList<>();
+
+    executor.execute(() -> {
+      order.add("task-1");
+      executor.execute(() -> order.add("task-3"));
+    });
+    executor.execute(() -> order.add("task-2"));
+    drains.get(0).run();
+
+    assertThat(order, contains("task-1", "task-2", "task-3"));
+    assertThat(drains.size(), is(1));
+  }
+
+  @Test
+  void testExceptionReportedAndDrainContinues() throws InterruptedException {
+    IllegalStateException exception = new IllegalStateException("test");
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> reportedException.set(e));
+      return thread;
+    });
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(executorService, new TestStringContextCoordinator());
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+
+    executor.execute(() -> {
+      throw exception;
+    });
+    executor.execute(contextCaptorTask);
+
+    assertThat(contextCaptorTask.awaitCompletion(1, TimeUnit.SECONDS), is(true));
+    assertThat(reportedException.get(), is(exception));
+    executorService.shutdown();
+  }
+
+  @Test
+  void testRejectedDrainRunsWithNextOne() {
+    RejectedExecutionException exception = new RejectedExecutionException("test");
+    Executor mockExecutor = Mockito.mock(Executor.class);
+    Mockito.doThrow(exception).doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(0).run();
+      return null;
+    }).when(mockExecutor).execute(Mockito.any());
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(mockExecutor, new TestStringContextCoordinator());
+    Runnable mockRunnable1 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable2 = Mockito.mock(Runnable.class);
+
+    RejectedExecutionException thrown =
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(mockRunnable1));
+    assertThat(thrown, is(exception));
+    Mockito.verify(mockRunnable1, Mockito.never()).run();
+    executor.execute(mockRunnable2);
+
+    Mockito.verify(mockRunnable1).run();
+    Mockito.verify(mockRunnable2).run();
+    assertThat(TestStringContext.get(), is(nullValue()));
+  }
+
+  @Test
+  void testInvalidArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextPreservedSerialExecutor<String> executor =
+        ContextPreservedSerialExecutor.of(Runnable::run, coordinator);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> ContextPreservedSerialExecutor.of(Runnable::run, coordinator, 0));
+    assertThrows(NullPointerException.class,
+        () -> ContextPreservedSerialExecutor.of(null, coordinator));
+    assertThrows(NullPointerException.class,
+        () -> ContextPreservedSerialExecutor.of(Runnable::run, null));
+    assertThrows(NullPointerException.class, () -> executor.execute(null));
+  }
+
+  private static final class CountingContextCoordinator implements ContextCoordinator<String> {
+    private final Map<String, Integer> setCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public String get() {
+      return TestStringContext.get();
+    }
+
+    @Override
+    public void set(String context) {
+      setCounts.merge(String.valueOf(context), 1, Integer::sum);
+      TestStringContext.set(context);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextPreservedStreamsTest {
+
+  @Test
+  void testParallelStreamContextPreserved() {
+    String prefixContext = "testParallelStreamContextPreserved";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context");
+
+    Set<String> capturedContexts = ContextPreservedStreams.wrap(
+            IntStream.range(0, 100_000).boxed().parallel(), coordinator)
+        .map(i -> String.valueOf(TestStringContext.get()))
+        .collect(Collectors.toSet());
+
+    assertThat(capturedContexts, contains(prefixContext + "new-context"));
+    coordinator.set(null);
+  }
+
+  @Test
+  void testParallelStatefulUpstreamRunsWithoutContext() {
+    String prefixContext = "testParallelStatefulUpstreamRunsWithoutContext";
+    String context = prefixContext + "new-context";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(null);
+    Set<String> comparatorContexts = ConcurrentHashMap.newKeySet();
+    Set<String> upstreamContexts = ConcurrentHashMap.newKeySet();
+    Comparator<Integer> comparator = (i1, i2) -> {
+      comparatorContexts.add(String.valueOf(TestStringContext.get()));
+      return Integer.compare(i2, i1);
+    };
+
+    // The passed stream is evaluated up to sorted by its spliterator, without the context
+    List<String> downstreamContexts = ContextPreservedStreams.wrap(
+            IntStream.range(0, 1_000).boxed().parallel()
+                .peek(i -> upstreamContexts.add(String.valueOf(TestStringContext.get())))
+                .sorted(comparator),
+            coordinator, context)
+        .map(i -> String.valueOf(TestStringContext.get()))
+        .distinct()
+        .collect(Collectors.toList());
+
+    assertThat(upstreamContexts.contains(context), is(false));
+    assertThat(comparatorContexts.contains(context), is(false));
+    assertThat(downstreamContexts, contains(context));
+
+    // The source spliterator installs the context for every operation before sorted
+    upstreamContexts.clear();
+    comparatorContexts.clear();
+    List<Integer> sorted = StreamSupport.stream(ContextPreservedStreams.wrap(
+            IntStream.range(0, 1_000).boxed().collect(Collectors.toList()).spliterator(),
+            coordinator, context), true)
+        .peek(i -> upstreamContexts.add(String.valueOf(TestStringContext.get())))
+        .sorted(comparator)
+        .collect(Collectors.toList());
+
+    assertThat(sorted.get(0), is(999));
+    assertThat(upstreamContexts, contains(context));
+    assertThat(comparatorContexts.contains(context), is(false));
+  }
+
+  @Test
+  void testContextInstalledOncePerChunk() {
+    String prefixContext = "testContextInstalledOncePerChunk";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+    List<Integer> elements = new ArrayList<>();
+
+    Spliterator<Integer> spliterator = ContextPreservedStreams.wrap(
+        IntStream.range(0, 1_000).boxed().collect(Collectors.toList()).spliterator(),
+        mockCoordinator, prefixContext + "new-context");
+    spliterator.forEachRemaining(elements::add);
+
+    assertThat(elements.size(), is(1_000));
+    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
+  }
+
+  @Test
+  void testTryAdvance() {
+    String prefixContext = "testTryAdvance";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+    List<String> elements = new ArrayList<>();
+
+    Spliterator<String> spliterator = ContextPreservedStreams.wrap(
+        List.of("element-1").spliterator(), mockCoordinator, prefixContext + "new-context");
+
+    assertThat(spliterator.tryAdvance(elements::add), is(true));
+    assertThat(spliterator.tryAdvance(elements::add), is(false));
+    assertThat(elements, contains("element-1"));
+    Mockito.verify(mockCoordinator, Mockito.times(2)).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator, Mockito.times(2)).set(prefixContext + "previous-context");
+  }
+
+  @Test
+  void testSameContextSkipsTransition() {
+    String prefixContext = "testSameContextSkipsTransition";
+    String context = prefixContext + "same-context";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+
+    Spliterator<String> spliterator = ContextPreservedStreams.wrap(
+        List.of("element-1", "element-2").spliterator(), mockCoordinator, context);
+    spliterator.tryAdvance(element -> { });
+    spliterator.forEachRemaining(element -> { });
+
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+  }
+
+  @Test
+  void testSplitPreservesContext() {
+    String prefixContext = "testSplitPreservesContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context");
+    Spliterator<String> spliterator =
+        ContextPreservedStreams.wrap(List.of("element-1", "element-2").spliterator(), coordinator);
+    coordinator.set(null);
+    List<String> capturedContexts = new ArrayList<>();
+
+    Spliterator<String> split = spliterator.trySplit();
+    assertThat(split, is(notNullValue()));
+    split.forEachRemaining(element -> capturedContexts.add(TestStringContext.get()));
+    assertThat(split.trySplit(), is(nullValue()));
+
+    assertThat(capturedContexts, contains(prefixContext + "new-context"));
+    assertThat(TestStringContext.get(), is(nullValue()));
+  }
+
+  @Test
+  void testCharacteristicsDelegated() {
+    Comparator<String> comparator = Comparator.reverseOrder();
+    TreeSet<String> treeSet = new TreeSet<>(comparator);
+    treeSet.add("element-1");
+    treeSet.add("element-2");
+
+    Spliterator<String> spliterator =
+        ContextPreservedStreams.wrap(treeSet.spliterator(), new TestStringContextCoordinator());
+
+    assertThat(spliterator.estimateSize(), is(2L));
+    assertThat(spliterator.characteristics(), is(treeSet.spliterator().characteristics()));
+    assertThat(spliterator.getComparator(), is(sameInstance(comparator)));
+  }
+
+  @Test
+  void testStreamPropertiesPreserved() {
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    Stream<String> stream =
+        ContextPreservedStreams.wrap(Stream.of("element-1").onClose(mockRunnable), coordinator);
+    assertThat(stream.isParallel(), is(false));
+    assertThat(stream.collect(Collectors.toList()), contains("element-1"));
+    stream.close();
+
+    Mockito.verify(mockRunnable).run();
+    assertThat(ContextPreservedStreams.wrap(Stream.of("element-1").parallel(), coordinator, null)
+        .isParallel(), is(true));
+  }
+
+  @Test
+  void testNullArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    assertThrows(NullPointerException.class,
+        () -> ContextPreservedStreams.wrap((Stream<String>) null, coordinator));
+    assertThrows(NullPointerException.class,
+        () -> ContextPreservedStreams.wrap((Spliterator<String>) null, coordinator, null));
+    assertThrows(NullPointerException.class,
+        () -> ContextPreservedStreams.wrap(List.of("element-1").spliterator(), null, null));
+  }
+}
@@ -0,0 +1,63 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextPreservedThreadFactoryTest {
+
+  @Test
+  void testCapturedContextAtCreation() throws InterruptedException {
+    String prefixContext = "testCapturedContextAtCreation";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ThreadFactory threadFactory =
+        ContextPreservedThreadFactory.wrap(Executors.defaultThreadFactory(), coordinator);
+    coordinator.set(prefixContext + "new-context-2");
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    Thread thread = threadFactory.newThread(contextCaptorTask);
+    thread.start();
+    thread.join(1000);
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+  }
+
+  @Test
+  void testPassedContextAtCreation() throws InterruptedException {
+    String prefixContext = "testPassedContextAtCreation";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ThreadFactory threadFactory = ContextPreservedThreadFactory.wrap(
+        Executors.defaultThreadFactory(), coordinator, prefixContext + "new-passed-context");
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    Thread thread = threadFactory.newThread(contextCaptorTask);
+    thread.start();
+    thread.join(1000);
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-passed-context")));
+  }
+
+  @Test
+  void testContextInstalledOnlyOnce() {
+    String prefixContext = "testContextInstalledOnlyOnce";
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+
+    ThreadFactory threadFactory = ContextPreservedThreadFactory.wrap(
+        Executors.defaultThreadFactory(), mockCoordinator, prefixContext + "new-context");
+    threadFactory.newThread(mockRunnable).run();
+
+    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verifyNoMoreInteractions(mockCoordinator);
+    Mockito.verify(mockRunnable).run();
+  }
+}
@@ -0,0 +1,218 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextPreservedTimerTest {
+
+  @Test
+  void testContextPreserved() throws InterruptedException {
+    String prefixContext = "testContextPreserved";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    ContextPreservedTimer<String> timer = ContextPreservedTimer.of(1, TimeUnit.MILLISECONDS, 8,
+        Executors.defaultThreadFactory(), executorService, coordinator);
+
+    coordinator.set(prefixContext + "new-context-1");
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    ContextPreservedTimer.Timeout timeout1 =
+        timer.schedule(contextCaptorTask1, 5, TimeUnit.MILLISECONDS);
+    coordinator.set(prefixContext + "new-context-2");
+    // Longer than the wheel, so it expires after more than one round
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+    ContextPreservedTimer.Timeout timeout2 =
+        timer.schedule(contextCaptorTask2, 30, TimeUnit.MILLISECONDS);
+    coordinator.set(null);
+
+    assertThat(contextCaptorTask1.awaitCompletion(1, TimeUnit.SECONDS), is(true));
+    assertThat(contextCaptorTask2.awaitCompletion(1, TimeUnit.SECONDS), is(true));
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-2")));
+    assertThat(timeout1.isExpired(), is(true));
+    assertThat(timeout2.isCancelled(), is(false));
+    assertThat(timeout2.cancel(), is(false));
+    assertThat(timer.stop(), is(empty()));
+    executorService.shutdown();
+  }
+
+  @Test
+  void testCancel() throws InterruptedException {
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    ContextPreservedTimer<String> timer = ContextPreservedTimer.of(1, TimeUnit.MILLISECONDS, 8,
+        Executors.defaultThreadFactory(), Runnable::run, new TestStringContextCoordinator());
+
+    ContextPreservedTimer.Timeout timeout1 = timer.schedule(mockRunnable, 1, TimeUnit.HOURS);
+    assertThat(timeout1.cancel(), is(true));
+    ContextPreservedTimer.Timeout timeout2 = timer.schedule(mockRunnable, 1, TimeUnit.HOURS);
+    awaitTicks(timer);
+    assertThat(timeout2.cancel(), is(true));
+    awaitTicks(timer);
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    timer.schedule(contextCaptorTask, 1, TimeUnit.MILLISECONDS);
+
+    assertThat(contextCaptorTask.awaitCompletion(1, TimeUnit.SECONDS), is(true));
+    assertThat(timeout1.cancel(), is(false));
+    assertThat(timeout1.isCancelled(), is(true));
+    assertThat(timeout2.isExpired(), is(false));
+    Mockito.verify(mockRunnable, Mockito.never()).run();
+    timer.close();
+  }
+
+  @Test
+  void testStopReturnsUnprocessedTasks() throws InterruptedException {
+    Runnable mockRunnable1 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable2 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable3 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable4 = Mockito.mock(Runnable.class);
+    // A single tick per wheel puts all the timeouts in the same bucket
+    ContextPreservedTimer<String> timer = ContextPreservedTimer.of(1, TimeUnit.MILLISECONDS, 1,
+        Executors.defaultThreadFactory(), Runnable::run, new TestStringContextCoordinator());
+
+    ContextPreservedTimer.Timeout timeout1 = timer.schedule(mockRunnable1, 1, TimeUnit.HOURS);
+    ContextPreservedTimer.Timeout timeout2 = timer.schedule(mockRunnable2, 1, TimeUnit.HOURS);
+    timer.schedule(mockRunnable3, 1, TimeUnit.HOURS);
+    ContextPreservedTimer.Timeout timeout4 = timer.schedule(mockRunnable4, 1, TimeUnit.HOURS);
+    awaitTicks(timer);
+    timeout2.cancel();
+    timeout1.cancel();
+    timeout4.cancel();
+    awaitTicks(timer);
+
+    assertThat(timer.stop(), contains(mockRunnable3));
+    assertThat(timer.stop(), is(empty()));
+  }
+
+  @Test
+  void testStopReturnsPendingTasks() {
+    Runnable mockRunnable1 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable2 = Mockito.mock(Runnable.class);
+    ContextPreservedTimer<String> timer = ContextPreservedTimer.of(1, TimeUnit.HOURS, 8,
+        Executors.defaultThreadFactory(), Runnable::run, new TestStringContextCoordinator());
+
+    timer.schedule(mockRunnable1, 1, TimeUnit.MILLISECONDS);
+    timer.schedule(mockRunnable2, 1, TimeUnit.MILLISECONDS).cancel();
+
+    assertThat(timer.stop(), contains(mockRunnable1));
+    assertThrows(RejectedExecutionException.class,
+        () -> timer.schedule(mockRunnable1, 1, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void testStopRestoresInterrupt() {
+    ContextPreservedTimer<String> timer =
+        ContextPreservedTimer.of(Runnable::run, new TestStringContextCoordinator());
+
+    Thread.currentThread().interrupt();
+    assertThat(timer.stop(), is(empty()));
+    assertThat(Thread.interrupted(), is(true));
+  }
+
+  @Test
+  void testStopFromWorkerThread() throws InterruptedException {
+    AtomicReference<ContextPreservedTimer<String>> timerReference = new AtomicReference<>();
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    CountDownLatch reportedLatch = new CountDownLatch(1);
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> {
+        reportedException.set(e);
+        reportedLatch.countDown();
+      });
+      return thread;
+    };
+    ContextPreservedTimer<String> timer = ContextPreservedTimer.of(1, TimeUnit.MILLISECONDS, 8,
+        threadFactory, Runnable::run, new TestStringContextCoordinator());
+    timerReference.set(timer);
+
+    timer.schedule(() -> timerReference.get().stop(), 1, TimeUnit.MILLISECONDS);
+
+    assertThat(reportedLatch.await(1, TimeUnit.SECONDS), is(true));
+    assertThat(reportedException.get(), is(instanceOf(IllegalStateException.class)));
+    timer.stop();
+  }
+
+  @Test
+  void testExecutorExceptionReported() throws InterruptedException {
+    RejectedExecutionException exception = new RejectedExecutionException("test");
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    CountDownLatch reportedLatch = new CountDownLatch(1);
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> {
+        reportedException.set(e);
+        reportedLatch.countDown();
+      });
+      return thread;
+    };
+    Executor rejectingExecutor = command -> {
+      throw exception;
+    };
+    ContextPreservedTimer<String> timer = ContextPreservedTimer.of(1, TimeUnit.MILLISECONDS, 8,
+        threadFactory, rejectingExecutor, new TestStringContextCoordinator());
+
+    timer.schedule(() -> { }, 1, TimeUnit.MILLISECONDS);
+
+    assertThat(reportedLatch.await(1, TimeUnit.SECONDS), is(true));
+    assertThat(reportedException.get(), is(exception));
+    timer.stop();
+  }
+
+  @Test
+  void testVeryLongDelay() {
+    ContextPreservedTimer<String> timer =
+        ContextPreservedTimer.of(Runnable::run, new TestStringContextCoordinator());
+
+    ContextPreservedTimer.Timeout timeout =
+        timer.schedule(() -> { }, Long.MAX_VALUE, TimeUnit.DAYS);
+
+    assertThat(timeout.isExpired(), is(false));
+    assertThat(timeout.cancel(), is(true));
+    timer.stop();
+  }
+
+  @Test
+  void testInvalidArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    assertThrows(IllegalArgumentException.class, () -> ContextPreservedTimer.of(0,
+        TimeUnit.MILLISECONDS, 8, threadFactory, Runnable::run, coordinator));
+    assertThrows(IllegalArgumentException.class, () -> ContextPreservedTimer.of(1,
+        TimeUnit.MILLISECONDS, 0, threadFactory, Runnable::run, coordinator));
+    assertThrows(IllegalArgumentException.class, () -> ContextPreservedTimer.of(1,
+        TimeUnit.MILLISECONDS, (1 << 30) + 1, threadFactory, Runnable::run, coordinator));
+    assertThrows(NullPointerException.class,
+        () -> ContextPreservedTimer.of(Runnable::run, null));
+  }
+
+  /**
+   * Waits until the worker of passed timer, which must run the tasks on its own thread, went
+   * through whole ticks started after this call. So it moved the timeouts scheduled before this
+   * call into the wheel, and removed the timeouts cancelled before this call from it.
+   */
+  private static void awaitTicks(ContextPreservedTimer<String> timer) throws InterruptedException {
+    for (int i = 0; i < 2; i++) {
+      CountDownLatch tickLatch = new CountDownLatch(1);
+      timer.schedule(tickLatch::countDown, 1, TimeUnit.MILLISECONDS);
+      assertThat(tickLatch.await(1, TimeUnit.SECONDS), is(true));
+    }
+  }
+}
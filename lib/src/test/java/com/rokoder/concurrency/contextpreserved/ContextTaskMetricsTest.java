@@ -0,0 +1,128 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.Callable;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextTaskMetricsTest {
+
+  @Test
+  void testEmpty() {
+    ContextTaskMetrics.Snapshot snapshot = ContextTaskMetrics.create().snapshot();
+
+    assertThat(snapshot.getCaptureCount(), is(0L));
+    assertThat(snapshot.getNullContextCount(), is(0L));
+    assertThat(snapshot.getQueueWait().getCount(), is(0L));
+    assertThat(snapshot.getQueueWait().getSum(), is(0L));
+    assertThat(snapshot.getQueueWait().getMean(), is(0.0));
+    assertThat(snapshot.getQueueWait().getPercentile(50), is(0L));
+    assertThat(snapshot.getExecution().getBucketCounts().length, is(64));
+  }
+
+  @Test
+  void testRecordCapture() {
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+    metrics.recordCapture("testRecordCapture");
+    metrics.recordCapture(null);
+
+    ContextTaskMetrics.Snapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.getCaptureCount(), is(2L));
+    assertThat(snapshot.getNullContextCount(), is(1L));
+  }
+
+  @Test
+  void testMeasureRunnable() {
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    metrics.measure(mockRunnable).run();
+
+    Mockito.verify(mockRunnable).run();
+    ContextTaskMetrics.Snapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.getQueueWait().getCount(), is(1L));
+    assertThat(snapshot.getExecution().getCount(), is(1L));
+    assertThat(snapshot.getExecution().getPercentile(100),
+        is(greaterThanOrEqualTo(snapshot.getExecution().getSum())));
+  }
+
+  @Test
+  void testMeasureRunnableWithException() {
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    Mockito.doThrow(new IllegalStateException("test")).when(mockRunnable).run();
+
+    assertThrows(IllegalStateException.class, () -> metrics.measure(mockRunnable).run());
+    assertThat(metrics.snapshot().getExecution().getCount(), is(1L));
+  }
+
+  @Test
+  void testUnwrap() {
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+    Runnable otherMeasuredRunnable = ContextTaskMetrics.create().measure(mockRunnable);
+
+    assertThat(metrics.unwrap(metrics.measure(mockRunnable)), is(sameInstance(mockRunnable)));
+    assertThat(metrics.unwrap(mockRunnable), is(sameInstance(mockRunnable)));
+    assertThat(metrics.unwrap(otherMeasuredRunnable), is(sameInstance(otherMeasuredRunnable)));
+  }
+
+  @Test
+  void testMeasureCallable() throws Exception {
+    String prefixContext = "testMeasureCallable";
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+
+    assertThat(metrics.measure(() -> prefixContext + "result").call(),
+        is(equalTo(prefixContext + "result")));
+    ContextTaskMetrics.Snapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.getQueueWait().getCount(), is(1L));
+    assertThat(snapshot.getExecution().getCount(), is(1L));
+  }
+
+  @Test
+  void testMeasureCallableWithException() throws Exception {
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+    Callable<String> mockCallable = Mockito.mock(Callable.class);
+    Mockito.when(mockCallable.call()).thenThrow(new IllegalStateException("test"));
+
+    assertThrows(IllegalStateException.class, () -> metrics.measure(mockCallable).call());
+    assertThat(metrics.snapshot().getExecution().getCount(), is(1L));
+  }
+
+  @Test
+  void testHistogramSnapshot() {
+    long[] bucketCounts = new long[64];
+    bucketCounts[1] = 1;
+    bucketCounts[3] = 2;
+    bucketCounts[10] = 1;
+    ContextTaskMetrics.HistogramSnapshot histogram =
+        new ContextTaskMetrics.HistogramSnapshot(bucketCounts, 1024);
+
+    assertThat(histogram.getCount(), is(4L));
+    assertThat(histogram.getSum(), is(1024L));
+    assertThat(histogram.getMean(), is(256.0));
+    assertThat(histogram.getPercentile(0), is(1L));
+    assertThat(histogram.getPercentile(25), is(1L));
+    assertThat(histogram.getPercentile(50), is(7L));
+    assertThat(histogram.getPercentile(75), is(7L));
+    assertThat(histogram.getPercentile(100), is(1023L));
+
+    histogram.getBucketCounts()[1] = 10;
+    assertThat(histogram.getBucketCounts()[1], is(1L));
+  }
+
+  @Test
+  void testInvalidPercentile() {
+    ContextTaskMetrics.HistogramSnapshot histogram =
+        ContextTaskMetrics.create().snapshot().getExecution();
+
+    assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(-1));
+    assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+  }
+}
@@ -0,0 +1,32 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.jupiter.api.Test;
+
+final class ContextTransitionPolicyTest {
+
+  @Test
+  void testElidesIdentical() {
+    assertThat(ContextTransitionPolicy.ALWAYS.elidesIdentical(), is(false));
+    assertThat(ContextTransitionPolicy.ELIDE_IDENTICAL.elidesIdentical(), is(true));
+    assertThat(ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL.elidesIdentical(), is(true));
+    assertThat(ContextTransitionPolicy.INSTALL_ONLY.elidesIdentical(), is(false));
+  }
+
+  @Test
+  void testElidesWrap() {
+    assertThat(ContextTransitionPolicy.ALWAYS.elidesWrap(null), is(false));
+    assertThat(ContextTransitionPolicy.ELIDE_IDENTICAL.elidesWrap(null), is(false));
+    assertThat(ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL.elidesWrap(null), is(true));
+    assertThat(ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL.elidesWrap(new Object()),
+        is(false));
+  }
+
+  @Test
+  void testInstallsOnly() {
+    assertThat(ContextTransitionPolicy.INSTALL_ONLY.installsOnly(), is(true));
+    assertThat(ContextTransitionPolicy.ALWAYS.installsOnly(), is(false));
+  }
+}
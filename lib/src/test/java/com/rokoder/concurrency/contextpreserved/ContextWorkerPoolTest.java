@@ -0,0 +1,298 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextWorkerPoolTest {
+
+  @Test
+  void testContextPreserved() throws Exception {
+    String prefixContext = "testContextPreserved";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    FifoPool pool = FifoPool.of(2, Executors.defaultThreadFactory(), coordinator, 10);
+
+    coordinator.set(prefixContext + "new-context-1");
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    pool.execute(contextCaptorTask1);
+    coordinator.set(prefixContext + "new-context-2");
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+    pool.execute(contextCaptorTask2);
+    coordinator.set(null);
+    TestStringContextCaptor contextCaptorTask3 = new TestStringContextCaptor();
+    pool.submit((Runnable) contextCaptorTask3).get(1, TimeUnit.SECONDS);
+    contextCaptorTask1.awaitCompletion(1, TimeUnit.SECONDS);
+    contextCaptorTask2.awaitCompletion(1, TimeUnit.SECONDS);
+    pool.shutdown();
+
+    assertThat(pool.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-2")));
+    assertThat(contextCaptorTask3.getCapturedContext(), is(nullValue()));
+  }
+
+  @Test
+  void testContextSetOnlyWhenChanged() throws InterruptedException {
+    String prefixContext = "testContextSetOnlyWhenChanged";
+    CountingContextCoordinator coordinator = new CountingContextCoordinator();
+    FifoPool pool = FifoPool.of(1, Executors.defaultThreadFactory(), coordinator, 10);
+    TestBlockingTask blockingTask = new TestBlockingTask();
+
+    pool.execute(blockingTask);
+    blockingTask.awaitStarted();
+    coordinator.set(prefixContext + "new-context-1");
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    pool.execute(contextCaptorTask1);
+    pool.execute(contextCaptorTask1);
+    coordinator.set(prefixContext + "new-context-2");
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+    pool.execute(contextCaptorTask2);
+    coordinator.set(null);
+    blockingTask.release();
+    pool.shutdown();
+
+    assertThat(pool.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-2")));
+    // Once by the test thread and once by the worker, for both contexts
+    assertThat(coordinator.setCounts.get(prefixContext + "new-context-1"), is(2));
+    assertThat(coordinator.setCounts.get(prefixContext + "new-context-2"), is(2));
+  }
+
+  @Test
+  void testRejectWhenQueueIsFull() throws InterruptedException {
+    FifoPool pool =
+        FifoPool.of(1, Executors.defaultThreadFactory(), new TestStringContextCoordinator(), 1);
+    TestBlockingTask blockingTask = new TestBlockingTask();
+
+    pool.execute(blockingTask);
+    blockingTask.awaitStarted();
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    pool.execute(mockRunnable);
+
+    assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> { }));
+    blockingTask.release();
+    pool.shutdown();
+    assertThat(pool.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testRejectAfterShutdown() throws InterruptedException {
+    FifoPool pool =
+        FifoPool.of(2, Executors.defaultThreadFactory(), new TestStringContextCoordinator(), 10);
+    pool.shutdown();
+
+    assertThat(pool.isShutdown(), is(true));
+    assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> { }));
+    assertThat(pool.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(pool.isTerminated(), is(true));
+  }
+
+  @Test
+  void testShutdownNowWhenIdle() throws InterruptedException {
+    FifoPool pool =
+        FifoPool.of(2, Executors.defaultThreadFactory(), new TestStringContextCoordinator(), 10);
+
+    assertThat(pool.isShutdown(), is(false));
+    assertThat(pool.shutdownNow(), is(empty()));
+    assertThat(pool.awaitTermination(1, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  void testShutdownNowReturnsPendingTasks() throws InterruptedException {
+    FifoPool pool =
+        FifoPool.of(1, Executors.defaultThreadFactory(), new TestStringContextCoordinator(), 10);
+    TestBlockingTask blockingTask = new TestBlockingTask();
+
+    pool.execute(blockingTask);
+    blockingTask.awaitStarted();
+    Runnable mockRunnable1 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable2 = Mockito.mock(Runnable.class);
+    pool.execute(mockRunnable1);
+    pool.execute(mockRunnable2);
+
+    assertThat(pool.isTerminated(), is(false));
+    assertThat(pool.shutdownNow(), contains(mockRunnable1, mockRunnable2));
+    assertThat(pool.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(blockingTask.wasInterrupted(), is(true));
+    Mockito.verify(mockRunnable1, Mockito.never()).run();
+  }
+
+  @Test
+  void testExceptionReportedAndWorkerContinues() throws Exception {
+    IllegalStateException exception = new IllegalStateException("test");
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> reportedException.set(e));
+      return thread;
+    };
+    FifoPool pool = FifoPool.of(1, threadFactory, new TestStringContextCoordinator(), 10);
+
+    pool.execute(() -> {
+      throw exception;
+    });
+    pool.submit(() -> { }).get(1, TimeUnit.SECONDS);
+
+    assertThat(reportedException.get(), is(exception));
+    pool.shutdown();
+  }
+
+  @Test
+  void testInterruptClearedBetweenTasks() throws Exception {
+    FifoPool pool = FifoPool.of(1, Executors.defaultThreadFactory(),
+        new TestStringContextCoordinator(), 10);
+
+    pool.execute(() -> Thread.currentThread().interrupt());
+    boolean interrupted =
+        pool.submit(() -> Thread.currentThread().isInterrupted()).get(1, TimeUnit.SECONDS);
+
+    assertThat(interrupted, is(false));
+    pool.shutdown();
+  }
+
+  @Test
+  void testWorkerReplacedAfterError() throws Exception {
+    TestError error = new TestError();
+    AtomicReference<Throwable> reportedException = new AtomicReference<>();
+    CountDownLatch reportedLatch = new CountDownLatch(1);
+    AtomicInteger createdThreads = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      createdThreads.incrementAndGet();
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> {
+        reportedException.set(e);
+        reportedLatch.countDown();
+      });
+      return thread;
+    };
+    FifoPool pool = FifoPool.of(1, threadFactory, new TestStringContextCoordinator(), 10);
+
+    pool.execute(() -> {
+      throw error;
+    });
+    pool.submit(() -> { }).get(1, TimeUnit.SECONDS);
+    pool.shutdown();
+
+    assertThat(pool.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    // The dying worker reports the error after starting its replacement
+    assertThat(reportedLatch.await(1, TimeUnit.SECONDS), is(true));
+    assertThat(reportedException.get(), is(error));
+    assertThat(createdThreads.get(), is(2));
+  }
+
+  @Test
+  void testTerminatesWhenWorkerCannotBeReplaced() throws InterruptedException {
+    AtomicInteger createdThreads = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      if (createdThreads.incrementAndGet() > 1) {
+        return null;
+      }
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> { });
+      return thread;
+    };
+    FifoPool pool = FifoPool.of(1, threadFactory, new TestStringContextCoordinator(), 10);
+
+    pool.execute(() -> {
+      throw new TestError();
+    });
+
+    assertThat(pool.awaitTermination(1, TimeUnit.SECONDS), is(true));
+    assertThat(createdThreads.get(), is(2));
+    pool.shutdown();
+  }
+
+  @Test
+  void testInvalidArguments() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    assertThrows(IllegalArgumentException.class,
+        () -> FifoPool.of(0, threadFactory, coordinator, 10));
+    assertThrows(NullPointerException.class, () -> FifoPool.of(1, null, coordinator, 10));
+    assertThrows(NullPointerException.class, () -> FifoPool.of(1, threadFactory, null, 10));
+    assertThrows(NullPointerException.class,
+        () -> FifoPool.of(1, runnable -> null, coordinator, 10));
+    assertThrows(NullPointerException.class,
+        () -> FifoPool.of(1, threadFactory, coordinator, 10).execute(null));
+  }
+
+  /**
+   * Bounded first in first out pool, leaving the worker pool as the only behavior under test.
+   */
+  private static final class FifoPool
+      extends ContextWorkerPool<String, ContextWorkerPool.Task<String>> {
+    private final ArrayDeque<Task<String>> tasks = new ArrayDeque<>();
+    private final int capacity;
+
+    private FifoPool(int threads, ThreadFactory threadFactory,
+                     ContextCoordinator<String> contextCoordinator, int capacity) {
+      super(threads, threadFactory, contextCoordinator);
+      this.capacity = capacity;
+    }
+
+    static FifoPool of(int threads, ThreadFactory threadFactory,
+                       ContextCoordinator<String> contextCoordinator, int capacity) {
+      FifoPool pool = new FifoPool(threads, threadFactory, contextCoordinator, capacity);
+      pool.start();
+      return pool;
+    }
+
+    @Override
+    Task<String> newTask(Runnable command, String context) {
+      return new Task<>(command, context);
+    }
+
+    @Override
+    boolean enqueue(Task<String> task) {
+      return tasks.size() < capacity && tasks.add(task);
+    }
+
+    @Override
+    Task<String> dequeue(int worker) {
+      return tasks.pollFirst();
+    }
+  }
+
+  private static final class TestError extends Error {
+    private static final long serialVersionUID = 1L;
+  }
+
+  private static final class CountingContextCoordinator implements ContextCoordinator<String> {
+    private final Map<String, Integer> setCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public String get() {
+      return TestStringContext.get();
+    }
+
+    @Override
+    public void set(String context) {
+      setCounts.merge(String.valueOf(context), 1, Integer::sum);
+      TestStringContext.set(context);
+    }
+  }
+}
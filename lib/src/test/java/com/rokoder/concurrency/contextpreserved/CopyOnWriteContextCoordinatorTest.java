@@ -0,0 +1,116 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+final class CopyOnWriteContextCoordinatorTest {
+  private final TestListContextCoordinator coordinator = new TestListContextCoordinator();
+
+  @Test
+  void testMutableContextWithoutCaptureIsNotCopied() {
+    String prefixContext = "testMutableContextWithoutCaptureIsNotCopied";
+    List<String> context = new ArrayList<>();
+    coordinator.setContext(context);
+
+    coordinator.mutableContext().add(prefixContext + "value");
+
+    assertThat(coordinator.get(), is(sameInstance(context)));
+    assertThat(context, contains(prefixContext + "value"));
+    assertThat(coordinator.copyCount, is(0));
+  }
+
+  @Test
+  void testCaptureIsCopiedOnWrite() {
+    String prefixContext = "testCaptureIsCopiedOnWrite";
+    coordinator.setContext(new ArrayList<>(List.of(prefixContext + "value-1")));
+
+    List<String> captured = coordinator.capture();
+    assertThat(coordinator.capture(), is(sameInstance(captured)));
+    assertThat(coordinator.copyCount, is(0));
+
+    coordinator.mutableContext().add(prefixContext + "value-2");
+    coordinator.mutableContext().add(prefixContext + "value-3");
+
+    assertThat(coordinator.copyCount, is(1));
+    assertThat(captured, contains(prefixContext + "value-1"));
+    assertThat(coordinator.get(), is(not(sameInstance(captured))));
+    assertThat(coordinator.get(), contains(prefixContext + "value-1", prefixContext + "value-2",
+        prefixContext + "value-3"));
+  }
+
+  @Test
+  void testSetIsCopiedOnWrite() {
+    String prefixContext = "testSetIsCopiedOnWrite";
+    List<String> context = new ArrayList<>(List.of(prefixContext + "value-1"));
+    coordinator.set(context);
+
+    coordinator.mutableContext().add(prefixContext + "value-2");
+
+    assertThat(coordinator.copyCount, is(1));
+    assertThat(context, contains(prefixContext + "value-1"));
+  }
+
+  @Test
+  void testNullContext() {
+    coordinator.setContext(new ArrayList<>());
+    coordinator.capture();
+    coordinator.set(null);
+
+    assertThat(coordinator.capture(), is(nullValue()));
+    assertThat(coordinator.mutableContext(), is(nullValue()));
+    assertThat(coordinator.get(), is(nullValue()));
+    assertThat(coordinator.copyCount, is(0));
+  }
+
+  @Test
+  void testCapturedContextNotMutatedAfterSubmission()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testCapturedContextNotMutatedAfterSubmission";
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    coordinator.setContext(new ArrayList<>(List.of(prefixContext + "value-1")));
+
+    Future<List<String>> future = DynamicContextPreservedExecutorService.wrap(executorService,
+        coordinator).submit(() -> new ArrayList<>(coordinator.get()));
+    coordinator.mutableContext().add(prefixContext + "value-2");
+
+    assertThat(future.get(1, TimeUnit.SECONDS), contains(prefixContext + "value-1"));
+    assertThat(coordinator.get(), contains(prefixContext + "value-1", prefixContext + "value-2"));
+    executorService.shutdown();
+  }
+
+  private static final class TestListContextCoordinator
+      extends CopyOnWriteContextCoordinator<List<String>> {
+    private final ThreadLocal<List<String>> threadLocal = new ThreadLocal<>();
+    private int copyCount;
+
+    @Override
+    protected List<String> getContext() {
+      return threadLocal.get();
+    }
+
+    @Override
+    protected void setContext(List<String> context) {
+      threadLocal.set(context);
+    }
+
+    @Override
+    protected List<String> copy(List<String> context) {
+      copyCount++;
+      return new ArrayList<>(context);
+    }
+  }
+}
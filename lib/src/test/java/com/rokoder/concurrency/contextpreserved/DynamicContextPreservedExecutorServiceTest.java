@@ -2,17 +2,23 @@ package com.rokoder.concurrency.contextpreserved;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 final class DynamicContextPreservedExecutorServiceTest {
@@ -271,6 +277,342 @@ final class DynamicContextPreservedExecutorServiceTest {
         is(Matchers.equalTo(prefixContext + "new-context-2")));
   }
 
+  @Test
+  void testElideIdenticalSkipsTransition() throws Exception {
+    String prefixContext = "testElideIdenticalSkipsTransition";
+    String context = prefixContext + "same-context";
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    ExecutorService singleThreadExecutorService = Executors.newSingleThreadExecutor();
+
+    ExecutorService wrappedExecutorService =
+        DynamicContextPreservedExecutorService.wrap(singleThreadExecutorService, mockCoordinator,
+            ContextTransitionPolicy.ELIDE_IDENTICAL);
+    Callable<String> mockCallable = Mockito.mock(Callable.class);
+    Mockito.when(mockCallable.call()).thenReturn("test-result");
+    assertThat(wrappedExecutorService.submit(mockCallable).get(1, TimeUnit.SECONDS),
+        equalTo("test-result"));
+    wrappedExecutorService.invokeAll(List.of(mockCallable));
+    singleThreadExecutorService.shutdown();
+
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+    Mockito.verify(mockCallable, Mockito.times(2)).call();
+  }
+
+  @Test
+  void testSubmitAllCapturesOnce() throws Exception {
+    String prefixContext = "testSubmitAllCapturesOnce";
+    ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "new-context-1");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+
+    DynamicContextPreservedExecutorService<String> wrappedExecutorService =
+        DynamicContextPreservedExecutorService.of(mockExecutorService, mockCoordinator);
+    List<Callable<String>> callableList = List.of(() -> "result-1", () -> "result-2");
+    List<Future<String>> futureList = wrappedExecutorService.submitAll(callableList);
+    wrappedExecutorService.invokeAll(callableList);
+
+    assertThat(futureList.size(), is(2));
+    Mockito.verify(mockExecutorService, Mockito.times(2)).submit(Mockito.any(Callable.class));
+    Mockito.verify(mockCoordinator, Mockito.times(2)).get();
+  }
+
+  @Test
+  void testSubmitAllContext() throws Exception {
+    String prefixContext = "testSubmitAllContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    DynamicContextPreservedExecutorService<String> wrappedExecutorService =
+        DynamicContextPreservedExecutorService.of(executorService, coordinator,
+            ContextTransitionPolicy.ELIDE_IDENTICAL);
+    List<Future<String>> futureList = wrappedExecutorService.submitAll(
+        List.of(new TestStringContextCaptor(), new TestStringContextCaptor()));
+
+    for (Future<String> future : futureList) {
+      assertThat(future.get(1, TimeUnit.SECONDS), equalTo(prefixContext + "new-context-1"));
+    }
+  }
+
+  @Test
+  void testExecuteAll() {
+    String prefixContext = "testExecuteAll";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+    List<TestStringContextCaptor> taskList = List.of(contextCaptorTask1, contextCaptorTask2);
+    DynamicContextPreservedExecutorService<String> wrappedExecutorService =
+        DynamicContextPreservedExecutorService.of(executorService, coordinator);
+    wrappedExecutorService.executeAll(taskList);
+    submitAndWait(taskList);
+
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(Matchers.equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(Matchers.equalTo(prefixContext + "new-context-1")));
+  }
+
+  @Test
+  void testExecuteAllPacked() {
+    String prefixContext = "testExecuteAllPacked";
+    ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "new-context-1");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context-1"))
+        .thenReturn(prefixContext + "previous-context");
+
+    DynamicContextPreservedExecutorService<String> wrappedExecutorService =
+        DynamicContextPreservedExecutorService.of(mockExecutorService, mockCoordinator);
+    List<Runnable> commandList = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      commandList.add(Mockito.mock(Runnable.class));
+    }
+    wrappedExecutorService.executeAll(commandList, 2);
+
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutorService, Mockito.times(3)).execute(captor.capture());
+    Mockito.verify(mockCoordinator).get();
+    captor.getAllValues().get(0).run();
+    Mockito.verify(commandList.get(0)).run();
+    Mockito.verify(commandList.get(1)).run();
+    Mockito.verify(commandList.get(2), Mockito.never()).run();
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context-1");
+    Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
+  }
+
+  @Test
+  void testExecuteAllPackedWithException() {
+    ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    DynamicContextPreservedExecutorService<String> wrappedExecutorService =
+        DynamicContextPreservedExecutorService.of(mockExecutorService, coordinator);
+    IllegalStateException exception1 = new IllegalStateException("test-1");
+    IllegalStateException exception2 = new IllegalStateException("test-2");
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    wrappedExecutorService.executeAll(List.<Runnable>of(() -> {
+      throw exception1;
+    }, () -> {
+      throw exception2;
+    }, mockRunnable), 3);
+
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutorService).execute(captor.capture());
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, () -> captor.getValue().run());
+    assertThat(thrown, is(sameInstance(exception1)));
+    assertThat(thrown.getSuppressed()[0], is(sameInstance(exception2)));
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testExecuteAllInvalidCommandsPerTask() {
+    DynamicContextPreservedExecutorService<String> wrappedExecutorService =
+        DynamicContextPreservedExecutorService.of(executorService,
+            new TestStringContextCoordinator());
+    assertThrows(IllegalArgumentException.class,
+        () -> wrappedExecutorService.executeAll(List.of(), 0));
+  }
+
+  @Test
+  void testMetrics() throws Exception {
+    String prefixContext = "testMetrics";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+
+    DynamicContextPreservedExecutorService<String> wrappedExecutorService =
+        DynamicContextPreservedExecutorService.of(executorService, coordinator,
+            ContextTransitionPolicy.ALWAYS, metrics);
+    Future<String> future = wrappedExecutorService.submit((Callable<String>)
+        new TestStringContextCaptor());
+    assertThat(future.get(1, TimeUnit.SECONDS), equalTo(prefixContext + "new-context-1"));
+    wrappedExecutorService.submit(Mockito.mock(Runnable.class)).get(1, TimeUnit.SECONDS);
+    List<Future<String>> futureList = wrappedExecutorService.submitAll(
+        List.of(new TestStringContextCaptor(), new TestStringContextCaptor()));
+    for (Future<String> batchFuture : futureList) {
+      batchFuture.get(1, TimeUnit.SECONDS);
+    }
+
+    ContextTaskMetrics.Snapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.getCaptureCount(), is(3L));
+    assertThat(snapshot.getNullContextCount(), is(0L));
+    assertThat(snapshot.getQueueWait().getCount(), is(4L));
+    assertThat(snapshot.getExecution().getCount(), is(4L));
+  }
+
+  @Test
+  void testWrapIsIdempotent() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ExecutorService wrappedExecutorService =
+        DynamicContextPreservedExecutorService.wrap(executorService, coordinator);
+
+    assertThat(DynamicContextPreservedExecutorService.wrap(wrappedExecutorService, coordinator),
+        is(sameInstance(wrappedExecutorService)));
+    assertThat(DynamicContextPreservedExecutorService.of(wrappedExecutorService, coordinator),
+        is(sameInstance(wrappedExecutorService)));
+    assertThat(DynamicContextPreservedExecutorService.wrap(wrappedExecutorService, coordinator,
+        ContextTransitionPolicy.ELIDE_IDENTICAL), is(not(sameInstance(wrappedExecutorService))));
+    assertThat(DynamicContextPreservedExecutorService.of(wrappedExecutorService,
+        new TestStringContextCoordinator()), is(not(sameInstance(wrappedExecutorService))));
+    ExecutorService measuredExecutorService = DynamicContextPreservedExecutorService.of(
+        executorService, coordinator, ContextTransitionPolicy.ALWAYS, ContextTaskMetrics.create());
+    assertThat(DynamicContextPreservedExecutorService.wrap(measuredExecutorService, coordinator),
+        is(not(sameInstance(measuredExecutorService))));
+    ExecutorService scheduledExecutorService = DynamicContextPreservedScheduledExecutorService.wrap(
+        Executors.newSingleThreadScheduledExecutor(), coordinator);
+    assertThat(DynamicContextPreservedExecutorService.wrap(scheduledExecutorService, coordinator),
+        is(not(sameInstance(scheduledExecutorService))));
+    scheduledExecutorService.shutdown();
+  }
+
+  @Test
+  void testWrapFusesCoordinators() {
+    String prefixContext = "testWrapFusesCoordinators";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "other-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(Mockito.any())).thenCallRealMethod();
+    ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
+
+    ExecutorService wrappedExecutorService = DynamicContextPreservedExecutorService.wrap(
+        DynamicContextPreservedExecutorService.wrap(mockExecutorService, coordinator),
+        mockCoordinator);
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    wrappedExecutorService.execute(contextCaptorTask);
+
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutorService).execute(captor.capture());
+    assertThat(ContextPreservedRunnable.unwrap(captor.getValue()),
+        is(sameInstance(contextCaptorTask)));
+    coordinator.set(null);
+    captor.getValue().run();
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    Mockito.verify(mockCoordinator, Mockito.times(2)).set(prefixContext + "other-context");
+  }
+
+  @Test
+  void testShutdownNowReturnsOriginalCommands() {
+    ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    DynamicContextPreservedExecutorService<String> wrappedExecutorService =
+        DynamicContextPreservedExecutorService.of(mockExecutorService, coordinator,
+            ContextTransitionPolicy.ALWAYS, ContextTaskMetrics.create());
+
+    Runnable mockRunnable1 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable2 = Mockito.mock(Runnable.class);
+    Runnable mockRunnable3 = Mockito.mock(Runnable.class);
+    Runnable otherRunnable = Mockito.mock(Runnable.class);
+    wrappedExecutorService.execute(mockRunnable1);
+    wrappedExecutorService.executeAll(List.of(mockRunnable2, mockRunnable3), 2);
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutorService, Mockito.times(2)).execute(captor.capture());
+    List<Runnable> pendingTasks = new ArrayList<>(captor.getAllValues());
+    pendingTasks.add(otherRunnable);
+    Mockito.when(mockExecutorService.shutdownNow()).thenReturn(pendingTasks);
+
+    assertThat(wrappedExecutorService.shutdownNow(),
+        Matchers.contains(mockRunnable1, mockRunnable2, mockRunnable3, otherRunnable));
+  }
+
+  @Test
+  void testShutdownNowKeepsForeignDecorators() {
+    String prefixContext = "testShutdownNowKeepsForeignDecorators";
+    String context = prefixContext + "new-context-1";
+    ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ExecutorService wrappedExecutorService = DynamicContextPreservedExecutorService.wrap(
+        mockExecutorService, coordinator, ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL);
+
+    // Passed through unchanged as the current context is null
+    coordinator.set(null);
+    Runnable elidedTask =
+        ContextPreservedRunnable.wrap(Mockito.mock(Runnable.class), coordinator, context);
+    wrappedExecutorService.execute(elidedTask);
+    // Flattened as it carries the current context
+    coordinator.set(context);
+    Runnable flattenedTask =
+        ContextPreservedRunnable.wrap(Mockito.mock(Runnable.class), coordinator, context);
+    wrappedExecutorService.execute(flattenedTask);
+    coordinator.set(null);
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutorService, Mockito.times(2)).execute(captor.capture());
+    assertThat(captor.getAllValues().get(0), is(sameInstance(elidedTask)));
+    assertThat(ContextPreservedRunnable.unwrap(captor.getAllValues().get(1)),
+        is(not(sameInstance(flattenedTask))));
+    // Submitted straight to the delegate
+    Runnable delegateTask =
+        ContextPreservedRunnable.wrap(Mockito.mock(Runnable.class), coordinator, context);
+    List<Runnable> pendingTasks = new ArrayList<>(captor.getAllValues());
+    pendingTasks.add(delegateTask);
+    Mockito.when(mockExecutorService.shutdownNow()).thenReturn(pendingTasks);
+
+    assertThat(wrappedExecutorService.shutdownNow(),
+        Matchers.contains(elidedTask, flattenedTask, delegateTask));
+  }
+
+  @Test
+  void testRepeatedFusionBuildsFlatComposite() {
+    ExecutorService wrappedExecutorService = executorService;
+    for (int i = 0; i < 3; i++) {
+      wrappedExecutorService = DynamicContextPreservedExecutorService.wrap(
+          wrappedExecutorService, new TestStringContextCoordinator());
+    }
+
+    ContextCoordinator<?> fusedCoordinator =
+        ((DynamicContextPreservedExecutorService<?>) wrappedExecutorService)
+            .getContextCoordinator();
+    assertThat(((CompositeContextCoordinator) fusedCoordinator).size(), is(3));
+  }
+
+  @Test
+  void testInstallOnlyRejected() {
+    ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    assertThrows(IllegalArgumentException.class,
+        () -> DynamicContextPreservedExecutorService.wrap(mockExecutorService, coordinator,
+            ContextTransitionPolicy.INSTALL_ONLY));
+    assertThrows(IllegalArgumentException.class,
+        () -> DynamicContextPreservedExecutorService.of(mockExecutorService, coordinator,
+            ContextTransitionPolicy.INSTALL_ONLY));
+    assertThrows(IllegalArgumentException.class,
+        () -> DynamicContextPreservedExecutorService.of(mockExecutorService, coordinator,
+            ContextTransitionPolicy.INSTALL_ONLY, ContextTaskMetrics.create()));
+    assertThrows(NullPointerException.class,
+        () -> DynamicContextPreservedExecutorService.wrap(mockExecutorService, coordinator, null));
+  }
+
+  @Test
+  void testWrapThreadPerTaskInstallsOnly() {
+    String prefixContext = "testWrapThreadPerTaskInstallsOnly";
+    ExecutorService mockExecutorService = Mockito.mock(ExecutorService.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ExecutorService wrappedExecutorService =
+        DynamicContextPreservedExecutorService.wrapThreadPerTask(mockExecutorService, coordinator);
+
+    coordinator.set(prefixContext + "new-context");
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    wrappedExecutorService.execute(contextCaptorTask);
+    coordinator.set(prefixContext + "previous-context");
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutorService).execute(captor.capture());
+    captor.getValue().run();
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context")));
+    assertThat(coordinator.get(), is(equalTo(prefixContext + "new-context")));
+    coordinator.set(null);
+  }
+
   private void submitAndWait(List<TestStringContextCaptor> taskList) {
     taskList.forEach(k -> submitAndWait(k));
   }
@@ -3,12 +3,16 @@ package com.rokoder.concurrency.contextpreserved;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 class DynamicContextPreservedExecutorTest {
@@ -56,16 +60,18 @@ class DynamicContextPreservedExecutorTest {
     String prefixContext = "testCapturedContextAtCreation";
     Runnable mockRunnable = Mockito.mock(Runnable.class);
     ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
-    Mockito.when(mockCoordinator.get())
-        .thenReturn(prefixContext + "new-context", prefixContext + "previous-context");
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "new-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
 
     ExecutorService es = Executors.newSingleThreadExecutor();
     Executor wrappedExecutor = DynamicContextPreservedExecutor.wrap(es, mockCoordinator);
     wrappedExecutor.execute(mockRunnable);
     es.awaitTermination(1, TimeUnit.SECONDS);
 
-    Mockito.verify(mockCoordinator, Mockito.times(2)).get();
-    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).get();
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context");
     Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
     Mockito.verify(mockRunnable).run();
   }
@@ -77,20 +83,128 @@ class DynamicContextPreservedExecutorTest {
     Mockito.doThrow(new IllegalStateException("test")).when(mockRunnable).run();
 
     ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
-    Mockito.when(mockCoordinator.get())
-        .thenReturn(prefixContext + "new-context", prefixContext + "previous-context");
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "new-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
 
     ExecutorService es = Executors.newSingleThreadExecutor();
     Executor wrappedExecutor = DynamicContextPreservedExecutor.wrap(es, mockCoordinator);
     wrappedExecutor.execute(mockRunnable);
     es.awaitTermination(1, TimeUnit.SECONDS);
 
-    Mockito.verify(mockCoordinator, Mockito.times(2)).get();
-    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).get();
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context");
     Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
     Mockito.verify(mockRunnable).run();
   }
 
+  @Test
+  void testElideIdenticalSkipsTransition() {
+    String prefixContext = "testElideIdenticalSkipsTransition";
+    String context = prefixContext + "same-context";
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+
+    Executor wrappedExecutor = DynamicContextPreservedExecutor.wrap(Runnable::run,
+        mockCoordinator, ContextTransitionPolicy.ELIDE_IDENTICAL);
+    wrappedExecutor.execute(mockRunnable);
+
+    Mockito.verify(mockCoordinator, Mockito.times(2)).get();
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+    Mockito.verify(mockRunnable).run();
+  }
+
+  @Test
+  void testElideIdenticalAndNullSkipsWrap() {
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    Executor mockExecutor = Mockito.mock(Executor.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(null);
+
+    Executor wrappedExecutor = DynamicContextPreservedExecutor.wrap(mockExecutor, coordinator,
+        ContextTransitionPolicy.ELIDE_IDENTICAL_AND_NULL);
+    wrappedExecutor.execute(mockRunnable);
+
+    Mockito.verify(mockExecutor).execute(mockRunnable);
+  }
+
+  @Test
+  void testInstallOnlyRejected() {
+    Executor mockExecutor = Mockito.mock(Executor.class);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    assertThrows(IllegalArgumentException.class, () -> DynamicContextPreservedExecutor.wrap(
+        mockExecutor, coordinator, ContextTransitionPolicy.INSTALL_ONLY));
+    assertThrows(IllegalArgumentException.class, () -> DynamicContextPreservedExecutor.wrap(
+        mockExecutor, coordinator, ContextTransitionPolicy.INSTALL_ONLY,
+        ContextTaskMetrics.create()));
+  }
+
+  @Test
+  void testMetrics() {
+    String prefixContext = "testMetrics";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+
+    Executor wrappedExecutor = DynamicContextPreservedExecutor.wrap(Runnable::run, coordinator,
+        ContextTransitionPolicy.ALWAYS, metrics);
+    coordinator.set(prefixContext + "new-context-1");
+    wrappedExecutor.execute(new TestStringContextCaptor());
+    coordinator.set(null);
+    wrappedExecutor.execute(new TestStringContextCaptor());
+
+    ContextTaskMetrics.Snapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.getCaptureCount(), is(2L));
+    assertThat(snapshot.getNullContextCount(), is(1L));
+    assertThat(snapshot.getQueueWait().getCount(), is(2L));
+    assertThat(snapshot.getExecution().getCount(), is(2L));
+  }
+
+  @Test
+  void testWrapIsIdempotent() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    Executor wrappedExecutor = DynamicContextPreservedExecutor.wrap(Runnable::run, coordinator);
+
+    assertThat(DynamicContextPreservedExecutor.wrap(wrappedExecutor, coordinator),
+        is(sameInstance(wrappedExecutor)));
+    assertThat(DynamicContextPreservedExecutor.wrap(wrappedExecutor, coordinator,
+        ContextTransitionPolicy.ELIDE_IDENTICAL), is(not(sameInstance(wrappedExecutor))));
+    Executor measuredExecutor = DynamicContextPreservedExecutor.wrap(Runnable::run, coordinator,
+        ContextTransitionPolicy.ALWAYS, ContextTaskMetrics.create());
+    assertThat(DynamicContextPreservedExecutor.wrap(measuredExecutor, coordinator),
+        is(not(sameInstance(measuredExecutor))));
+  }
+
+  @Test
+  void testWrapFusesCoordinators() {
+    String prefixContext = "testWrapFusesCoordinators";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "other-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(Mockito.any())).thenCallRealMethod();
+    Executor mockExecutor = Mockito.mock(Executor.class);
+
+    Executor wrappedExecutor = DynamicContextPreservedExecutor.wrap(
+        DynamicContextPreservedExecutor.wrap(mockExecutor, coordinator), mockCoordinator);
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    wrappedExecutor.execute(contextCaptorTask);
+
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutor).execute(captor.capture());
+    assertThat(ContextPreservedRunnable.unwrap(captor.getValue()),
+        is(sameInstance(contextCaptorTask)));
+    coordinator.set(null);
+    captor.getValue().run();
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    Mockito.verify(mockCoordinator, Mockito.times(2)).set(prefixContext + "other-context");
+  }
+
   private void submitAndWait(Executor executor, TestStringContextCaptor task)
       throws InterruptedException {
     executor.execute(task);
@@ -0,0 +1,180 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+final class DynamicContextPreservedScheduledExecutorServiceTest {
+  private final ScheduledExecutorService scheduledExecutorService =
+      Executors.newScheduledThreadPool(2);
+
+  @Test
+  void testSchedule() throws InterruptedException {
+    String prefixContext = "testSchedule";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    ScheduledExecutorService wrappedExecutorService =
+        DynamicContextPreservedScheduledExecutorService.wrap(scheduledExecutorService,
+            coordinator);
+    wrappedExecutorService.schedule((Runnable) contextCaptorTask, 1, TimeUnit.MILLISECONDS);
+    contextCaptorTask.awaitCompletion(1, TimeUnit.SECONDS);
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+  }
+
+  @Test
+  void testScheduleCallable()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testScheduleCallable";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ScheduledExecutorService wrappedExecutorService =
+        DynamicContextPreservedScheduledExecutorService.wrap(scheduledExecutorService,
+            coordinator, ContextTransitionPolicy.ELIDE_IDENTICAL);
+    ScheduledFuture<String> future = wrappedExecutorService.schedule(
+        (Callable<String>) new TestStringContextCaptor(), 1, TimeUnit.MILLISECONDS);
+
+    assertThat(future.get(1, TimeUnit.SECONDS), is(equalTo(prefixContext + "new-context-1")));
+  }
+
+  @Test
+  void testScheduleAtFixedRateCapturesOnce() throws InterruptedException {
+    String prefixContext = "testScheduleAtFixedRateCapturesOnce";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    List<String> capturedContexts = new CopyOnWriteArrayList<>();
+    CountDownLatch latch = new CountDownLatch(3);
+    ScheduledExecutorService wrappedExecutorService =
+        DynamicContextPreservedScheduledExecutorService.wrap(scheduledExecutorService,
+            coordinator);
+    ScheduledFuture<?> future = wrappedExecutorService.scheduleAtFixedRate(() -> {
+      capturedContexts.add(TestStringContext.get());
+      latch.countDown();
+    }, 0, 1, TimeUnit.MILLISECONDS);
+    coordinator.set(prefixContext + "new-context-2");
+    latch.await(1, TimeUnit.SECONDS);
+    future.cancel(false);
+
+    assertThat(future.isCancelled(), is(true));
+    capturedContexts.forEach(k -> assertThat(k, is(equalTo(prefixContext + "new-context-1"))));
+  }
+
+  @Test
+  void testScheduleWithFixedDelayCapturesOnce() throws InterruptedException {
+    String prefixContext = "testScheduleWithFixedDelayCapturesOnce";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    List<String> capturedContexts = new CopyOnWriteArrayList<>();
+    CountDownLatch latch = new CountDownLatch(3);
+    ScheduledExecutorService wrappedExecutorService =
+        DynamicContextPreservedScheduledExecutorService.wrap(scheduledExecutorService,
+            coordinator);
+    ScheduledFuture<?> future = wrappedExecutorService.scheduleWithFixedDelay(() -> {
+      capturedContexts.add(TestStringContext.get());
+      latch.countDown();
+    }, 0, 1, TimeUnit.MILLISECONDS);
+    coordinator.set(prefixContext + "new-context-2");
+    latch.await(1, TimeUnit.SECONDS);
+    future.cancel(false);
+
+    assertThat(future.isCancelled(), is(true));
+    capturedContexts.forEach(k -> assertThat(k, is(equalTo(prefixContext + "new-context-1"))));
+  }
+
+  @Test
+  void testDelegateFuturesAreReturned() {
+    ScheduledExecutorService mockExecutorService = Mockito.mock(ScheduledExecutorService.class);
+    ScheduledFuture mockFuture = Mockito.mock(ScheduledFuture.class);
+    Mockito.when(mockExecutorService.scheduleAtFixedRate(Mockito.any(Runnable.class),
+        Mockito.eq(1L), Mockito.eq(2L), Mockito.eq(TimeUnit.SECONDS))).thenReturn(mockFuture);
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+
+    ScheduledExecutorService wrappedExecutorService =
+        DynamicContextPreservedScheduledExecutorService.wrap(mockExecutorService, coordinator);
+    Runnable mockRunnable = Mockito.mock(Runnable.class);
+    ScheduledFuture<?> future =
+        wrappedExecutorService.scheduleAtFixedRate(mockRunnable, 1L, 2L, TimeUnit.SECONDS);
+
+    assertThat(future, is(sameInstance(mockFuture)));
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutorService).scheduleAtFixedRate(captor.capture(), Mockito.eq(1L),
+        Mockito.eq(2L), Mockito.eq(TimeUnit.SECONDS));
+    captor.getValue().run();
+    captor.getValue().run();
+    Mockito.verify(mockRunnable, Mockito.times(2)).run();
+  }
+
+  @Test
+  void testInstallOnlyRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> DynamicContextPreservedScheduledExecutorService.wrap(scheduledExecutorService,
+            new TestStringContextCoordinator(), ContextTransitionPolicy.INSTALL_ONLY));
+  }
+
+  @Test
+  void testWrapIsIdempotent() {
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ScheduledExecutorService wrappedExecutorService =
+        DynamicContextPreservedScheduledExecutorService.wrap(scheduledExecutorService,
+            coordinator);
+
+    assertThat(DynamicContextPreservedScheduledExecutorService.wrap(wrappedExecutorService,
+        coordinator), is(sameInstance(wrappedExecutorService)));
+    assertThat(DynamicContextPreservedScheduledExecutorService.wrap(wrappedExecutorService,
+        coordinator, ContextTransitionPolicy.ELIDE_IDENTICAL),
+        is(not(sameInstance(wrappedExecutorService))));
+  }
+
+  @Test
+  void testWrapFusesCoordinators() {
+    String prefixContext = "testWrapFusesCoordinators";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "other-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(Mockito.any())).thenCallRealMethod();
+    ScheduledExecutorService mockExecutorService = Mockito.mock(ScheduledExecutorService.class);
+
+    ScheduledExecutorService wrappedExecutorService =
+        DynamicContextPreservedScheduledExecutorService.wrap(
+            DynamicContextPreservedScheduledExecutorService.wrap(mockExecutorService,
+                coordinator), mockCoordinator);
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    wrappedExecutorService.schedule((Runnable) contextCaptorTask, 1L, TimeUnit.SECONDS);
+
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(mockExecutorService).schedule(captor.capture(), Mockito.eq(1L),
+        Mockito.eq(TimeUnit.SECONDS));
+    assertThat(ContextPreservedRunnable.unwrap(captor.getValue()),
+        is(sameInstance(contextCaptorTask)));
+    coordinator.set(null);
+    captor.getValue().run();
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    Mockito.verify(mockCoordinator, Mockito.times(2)).set(prefixContext + "other-context");
+  }
+}
@@ -96,16 +96,18 @@ class FixedContextPreservedExecutorTest {
     String prefixContext = "testCapturedContextAtCreation";
     Runnable mockRunnable = Mockito.mock(Runnable.class);
     ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
-    Mockito.when(mockCoordinator.get())
-        .thenReturn(prefixContext + "new-context", prefixContext + "previous-context");
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "new-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
 
     ExecutorService es = Executors.newSingleThreadExecutor();
     Executor wrappedExecutor = FixedContextPreservedExecutor.wrap(es, mockCoordinator);
     wrappedExecutor.execute(mockRunnable);
     es.awaitTermination(1, TimeUnit.SECONDS);
 
-    Mockito.verify(mockCoordinator, Mockito.times(2)).get();
-    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).get();
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context");
     Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
     Mockito.verify(mockRunnable).run();
   }
@@ -117,20 +119,58 @@ class FixedContextPreservedExecutorTest {
     Mockito.doThrow(new IllegalStateException("test")).when(mockRunnable).run();
 
     ContextCoordinator mockCoordinator = Mockito.mock(ContextCoordinator.class);
-    Mockito.when(mockCoordinator.get())
-        .thenReturn(prefixContext + "new-context", prefixContext + "previous-context");
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "new-context");
+    Mockito.when(mockCoordinator.capture()).thenCallRealMethod();
+    Mockito.when(mockCoordinator.swap(prefixContext + "new-context"))
+        .thenReturn(prefixContext + "previous-context");
 
     ExecutorService es = Executors.newSingleThreadExecutor();
     Executor wrappedExecutor = FixedContextPreservedExecutor.wrap(es, mockCoordinator);
     wrappedExecutor.execute(mockRunnable);
     es.awaitTermination(1, TimeUnit.SECONDS);
 
-    Mockito.verify(mockCoordinator, Mockito.times(2)).get();
-    Mockito.verify(mockCoordinator).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator).get();
+    Mockito.verify(mockCoordinator).swap(prefixContext + "new-context");
     Mockito.verify(mockCoordinator).set(prefixContext + "previous-context");
     Mockito.verify(mockRunnable).run();
   }
 
+  @Test
+  void testMetrics() {
+    String prefixContext = "testMetrics";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextTaskMetrics metrics = ContextTaskMetrics.create();
+
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    Executor wrappedExecutor = FixedContextPreservedExecutor.wrap(Runnable::run, coordinator,
+        prefixContext + "new-passed-context", metrics);
+    wrappedExecutor.execute(contextCaptorTask);
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-passed-context")));
+    ContextTaskMetrics.Snapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.getCaptureCount(), is(1L));
+    assertThat(snapshot.getNullContextCount(), is(0L));
+    assertThat(snapshot.getExecution().getCount(), is(1L));
+  }
+
+  @Test
+  void testFixedOverDynamicExecutorKeepsFixedContext() throws InterruptedException {
+    String prefixContext = "testFixedOverDynamicExecutorKeepsFixedContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "caller-context");
+
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    Executor wrappedExecutor = FixedContextPreservedExecutor.wrap(
+        DynamicContextPreservedExecutor.wrap(executorService, coordinator), coordinator,
+        prefixContext + "fixed-context");
+    submitAndWait(wrappedExecutor, contextCaptorTask);
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "fixed-context")));
+    coordinator.set(null);
+  }
+
   private void submitAndWait(Executor executor, TestStringContextCaptor task)
       throws InterruptedException {
     executor.execute(task);
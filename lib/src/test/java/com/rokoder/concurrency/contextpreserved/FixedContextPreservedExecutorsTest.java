@@ -0,0 +1,68 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+final class FixedContextPreservedExecutorsTest {
+
+  @Test
+  void testFixedThreadPoolCapturedContextAtCreation()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testFixedThreadPoolCapturedContextAtCreation";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ExecutorService executorService =
+        FixedContextPreservedExecutors.newFixedThreadPool(2, coordinator);
+    coordinator.set(prefixContext + "new-context-2");
+
+    assertThat(submitAndWait(executorService), is(equalTo(prefixContext + "new-context-1")));
+    assertThat(submitAndWait(executorService), is(equalTo(prefixContext + "new-context-1")));
+    executorService.shutdown();
+  }
+
+  @Test
+  void testFixedThreadPoolPassedContext()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testFixedThreadPoolPassedContext";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ExecutorService executorService = FixedContextPreservedExecutors.newFixedThreadPool(2,
+        coordinator, prefixContext + "new-passed-context");
+
+    assertThat(submitAndWait(executorService),
+        is(equalTo(prefixContext + "new-passed-context")));
+    executorService.shutdown();
+  }
+
+  @Test
+  void testSingleThreadExecutorCapturedContextAtCreation()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testSingleThreadExecutorCapturedContextAtCreation";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ExecutorService executorService =
+        FixedContextPreservedExecutors.newSingleThreadExecutor(coordinator);
+    coordinator.set(prefixContext + "new-context-2");
+
+    assertThat(submitAndWait(executorService), is(equalTo(prefixContext + "new-context-1")));
+    assertThat(submitAndWait(executorService), is(equalTo(prefixContext + "new-context-1")));
+    executorService.shutdown();
+  }
+
+  private String submitAndWait(ExecutorService executorService)
+      throws ExecutionException, InterruptedException, TimeoutException {
+    return executorService.submit((Callable<String>) new TestStringContextCaptor())
+        .get(1, TimeUnit.SECONDS);
+  }
+}
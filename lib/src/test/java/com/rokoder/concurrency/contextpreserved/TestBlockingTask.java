@@ -0,0 +1,34 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class TestBlockingTask implements Runnable {
+  private final CountDownLatch startedLatch = new CountDownLatch(1);
+  private final CountDownLatch releaseLatch = new CountDownLatch(1);
+  private final AtomicBoolean interrupted = new AtomicBoolean();
+
+  @Override
+  public void run() {
+    startedLatch.countDown();
+    try {
+      releaseLatch.await(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      interrupted.set(true);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  boolean awaitStarted() throws InterruptedException {
+    return startedLatch.await(1, TimeUnit.SECONDS);
+  }
+
+  void release() {
+    releaseLatch.countDown();
+  }
+
+  boolean wasInterrupted() {
+    return interrupted.get();
+  }
+}
@@ -0,0 +1,94 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+final class ThreadLocalContextCoordinatorTest {
+
+  @Test
+  void testGetSetAndSwap() {
+    String prefixContext = "testGetSetAndSwap";
+    ThreadLocalContextCoordinator<String> coordinator = ThreadLocalContextCoordinator.create();
+
+    assertThat(coordinator.get(), is(nullValue()));
+    coordinator.set(prefixContext + "new-context-1");
+    assertThat(coordinator.get(), is(equalTo(prefixContext + "new-context-1")));
+    assertThat(coordinator.swap(prefixContext + "new-context-2"),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(coordinator.capture(), is(equalTo(prefixContext + "new-context-2")));
+    coordinator.set(null);
+    assertThat(coordinator.get(), is(nullValue()));
+  }
+
+  @Test
+  void testDefaultSwap() {
+    String prefixContext = "testDefaultSwap";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    assertThat(coordinator.swap(prefixContext + "new-context-2"),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(coordinator.swap(null), is(equalTo(prefixContext + "new-context-2")));
+    assertThat(coordinator.get(), is(nullValue()));
+  }
+
+  @Test
+  void testContextIsPerThread() throws Exception {
+    String prefixContext = "testContextIsPerThread";
+    ThreadLocalContextCoordinator<String> coordinator = ThreadLocalContextCoordinator.create();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    coordinator.set(prefixContext + "new-context");
+
+    assertThat(executorService.submit(coordinator::get).get(1, TimeUnit.SECONDS),
+        is(nullValue()));
+    coordinator.set(null);
+    executorService.shutdown();
+  }
+
+  @Test
+  void testBind() {
+    String prefixContext = "testBind";
+    ThreadLocalContextCoordinator<String> coordinator = ThreadLocalContextCoordinator.create();
+    TestStringContextCoordinator otherCoordinator = new TestStringContextCoordinator();
+
+    ContextCoordinator<String> boundCoordinator = ThreadLocalContextCoordinator.bind(coordinator);
+    assertThat(boundCoordinator, is(not(sameInstance(coordinator))));
+    boundCoordinator.set(prefixContext + "new-context-1");
+    assertThat(coordinator.get(), is(equalTo(prefixContext + "new-context-1")));
+    coordinator.set(prefixContext + "new-context-2");
+    assertThat(boundCoordinator.swap(null), is(equalTo(prefixContext + "new-context-2")));
+    assertThat(coordinator.get(), is(nullValue()));
+    assertThat(ThreadLocalContextCoordinator.bind(otherCoordinator),
+        is(sameInstance(otherCoordinator)));
+  }
+
+  @Test
+  void testWrappersUseCell() throws Exception {
+    String prefixContext = "testWrappersUseCell";
+    ThreadLocalContextCoordinator<String> coordinator = ThreadLocalContextCoordinator.create();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    coordinator.set(prefixContext + "new-context");
+
+    Runnable runnable = ContextPreservedRunnable.wrap(
+        () -> assertThat(coordinator.get(), is(equalTo(prefixContext + "new-context"))),
+        coordinator);
+    executorService.submit(runnable).get(1, TimeUnit.SECONDS);
+    String capturedContext = executorService.submit(
+        ContextPreservedCallable.wrap(coordinator::get, coordinator)).get(1, TimeUnit.SECONDS);
+
+    assertThat(capturedContext, is(equalTo(prefixContext + "new-context")));
+    assertThat(executorService.submit(coordinator::get).get(1, TimeUnit.SECONDS),
+        is(nullValue()));
+    coordinator.set(null);
+    executorService.shutdown();
+  }
+}
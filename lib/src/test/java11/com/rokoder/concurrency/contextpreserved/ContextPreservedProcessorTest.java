@@ -0,0 +1,66 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+final class ContextPreservedProcessorTest {
+
+  @Test
+  void testUpstreamSignals() {
+    String prefixContext = "testUpstreamSignals";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    AtomicReference<String> capturedContext = new AtomicReference<>();
+    Flow.Processor<String, Integer> mockProcessor = Mockito.mock(Flow.Processor.class);
+    Mockito.doAnswer(invocation -> {
+      capturedContext.set(TestStringContext.get());
+      return null;
+    }).when(mockProcessor).onNext("item-1");
+    Flow.Subscription mockSubscription = Mockito.mock(Flow.Subscription.class);
+    IllegalStateException exception = new IllegalStateException("test");
+
+    Flow.Processor<String, Integer> wrappedProcessor =
+        ContextPreservedProcessor.wrap(mockProcessor, coordinator);
+    coordinator.set(prefixContext + "previous-context");
+    wrappedProcessor.onSubscribe(mockSubscription);
+    wrappedProcessor.onNext("item-1");
+    wrappedProcessor.onError(exception);
+    wrappedProcessor.onComplete();
+
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1")));
+    assertThat(coordinator.get(), is(equalTo(prefixContext + "previous-context")));
+    Mockito.verify(mockProcessor).onSubscribe(mockSubscription);
+    Mockito.verify(mockProcessor).onError(exception);
+    Mockito.verify(mockProcessor).onComplete();
+  }
+
+  @Test
+  void testDownstreamSignals() {
+    String prefixContext = "testDownstreamSignals";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    AtomicReference<String> capturedContext = new AtomicReference<>();
+    Flow.Processor<String, Integer> mockProcessor = Mockito.mock(Flow.Processor.class);
+    Flow.Subscriber<Integer> mockSubscriber = Mockito.mock(Flow.Subscriber.class);
+    Mockito.doAnswer(invocation -> {
+      capturedContext.set(TestStringContext.get());
+      return null;
+    }).when(mockSubscriber).onNext(1);
+
+    Flow.Processor<String, Integer> wrappedProcessor = ContextPreservedProcessor.wrap(
+        mockProcessor, coordinator, prefixContext + "new-passed-context");
+    wrappedProcessor.subscribe(mockSubscriber);
+    ArgumentCaptor<Flow.Subscriber<Integer>> captor =
+        ArgumentCaptor.forClass(Flow.Subscriber.class);
+    Mockito.verify(mockProcessor).subscribe(captor.capture());
+    captor.getValue().onNext(1);
+
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-passed-context")));
+  }
+}
@@ -0,0 +1,184 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+final class ContextPreservedSubmissionPublisherTest {
+
+  @Test
+  void testItemContextPreserved() throws Exception {
+    String prefixContext = "testItemContextPreserved";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    ContextPreservedSubmissionPublisher<String, String> publisher =
+        ContextPreservedSubmissionPublisher.of(executorService, 16, coordinator);
+    ContextCaptorSubscriber subscriber = new ContextCaptorSubscriber();
+
+    coordinator.set(prefixContext + "subscribe-context");
+    publisher.subscribe(subscriber);
+    coordinator.set(prefixContext + "new-context-1");
+    publisher.submit("item-1");
+    publisher.offer("item-2");
+    coordinator.set(prefixContext + "new-context-2");
+    publisher.offer("item-3", 1, TimeUnit.SECONDS);
+    publisher.close();
+    subscriber.awaitCompletion();
+
+    assertThat(subscriber.capturedContexts, contains(
+        "onSubscribe:" + prefixContext + "subscribe-context",
+        "item-1:" + prefixContext + "new-context-1",
+        "item-2:" + prefixContext + "new-context-1",
+        "item-3:" + prefixContext + "new-context-2",
+        "onComplete:" + prefixContext + "subscribe-context"));
+    assertThat(executorService.submit(TestStringContext::get).get(1, TimeUnit.SECONDS),
+        is((String) null));
+    executorService.shutdown();
+  }
+
+  @Test
+  void testContextInstalledOncePerRun() {
+    String prefixContext = "testContextInstalledOncePerRun";
+    Queue<Runnable> deliveryTasks = new ArrayDeque<>();
+    CountingContextCoordinator coordinator = new CountingContextCoordinator();
+    ContextPreservedSubmissionPublisher<String, String> publisher =
+        ContextPreservedSubmissionPublisher.of(deliveryTasks::add, 16, coordinator);
+    ContextCaptorSubscriber subscriber = new ContextCaptorSubscriber();
+    publisher.subscribe(subscriber);
+    runAll(deliveryTasks);
+
+    TestStringContext.set(prefixContext + "new-context-1");
+    publisher.submit("item-1");
+    publisher.submit("item-2");
+    publisher.submit("item-3");
+    TestStringContext.set(prefixContext + "new-context-2");
+    publisher.submit("item-4");
+    publisher.submit("item-5");
+    TestStringContext.set(prefixContext + "runner-context");
+    coordinator.setCounts.clear();
+    runAll(deliveryTasks);
+
+    assertThat(subscriber.capturedContexts.get(5),
+        is(equalTo("item-5:" + prefixContext + "new-context-2")));
+    assertThat(coordinator.setCounts.get(prefixContext + "new-context-1"), is(1));
+    assertThat(coordinator.setCounts.get(prefixContext + "new-context-2"), is(1));
+    assertThat(TestStringContext.get(), is(equalTo(prefixContext + "runner-context")));
+    TestStringContext.set(null);
+  }
+
+  @Test
+  void testCloseExceptionally() throws InterruptedException {
+    String prefixContext = "testCloseExceptionally";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextPreservedSubmissionPublisher<String, String> publisher =
+        ContextPreservedSubmissionPublisher.of(coordinator);
+    ContextCaptorSubscriber subscriber = new ContextCaptorSubscriber();
+
+    coordinator.set(prefixContext + "subscribe-context");
+    publisher.subscribe(subscriber);
+    coordinator.set(null);
+    assertThat(publisher.hasSubscribers(), is(true));
+    assertThat(publisher.getNumberOfSubscribers(), is(1));
+    assertThat(publisher.getMaxBufferCapacity(), is(Flow.defaultBufferSize()));
+    assertThat(publisher.estimateMaximumLag(), is(0));
+    publisher.closeExceptionally(new IllegalStateException("test"));
+    subscriber.awaitCompletion();
+
+    assertThat(publisher.isClosed(), is(true));
+    assertThat(subscriber.capturedContexts.get(subscriber.capturedContexts.size() - 1),
+        is(equalTo("onError:" + prefixContext + "subscribe-context")));
+  }
+
+  @Test
+  void testConsume() throws Exception {
+    String prefixContext = "testConsume";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    ContextPreservedSubmissionPublisher<String, String> publisher =
+        ContextPreservedSubmissionPublisher.of(executorService, 16, coordinator);
+    List<String> capturedContexts = new CopyOnWriteArrayList<>();
+
+    CompletableFuture<Void> future =
+        publisher.consume(item -> capturedContexts.add(item + ":" + TestStringContext.get()));
+    coordinator.set(prefixContext + "new-context-1");
+    publisher.submit("item-1");
+    coordinator.set(prefixContext + "new-context-2");
+    publisher.submit("item-2");
+    coordinator.set(null);
+    publisher.close();
+    future.get(1, TimeUnit.SECONDS);
+
+    assertThat(capturedContexts, contains("item-1:" + prefixContext + "new-context-1",
+        "item-2:" + prefixContext + "new-context-2"));
+    executorService.shutdown();
+  }
+
+  private static void runAll(Queue<Runnable> tasks) {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  private static final class ContextCaptorSubscriber implements Flow.Subscriber<String> {
+    private final List<String> capturedContexts = new CopyOnWriteArrayList<>();
+    private final CountDownLatch completionLatch = new CountDownLatch(1);
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      capturedContexts.add("onSubscribe:" + TestStringContext.get());
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String item) {
+      capturedContexts.add(item + ":" + TestStringContext.get());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      capturedContexts.add("onError:" + TestStringContext.get());
+      completionLatch.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      capturedContexts.add("onComplete:" + TestStringContext.get());
+      completionLatch.countDown();
+    }
+
+    void awaitCompletion() throws InterruptedException {
+      completionLatch.await(1, TimeUnit.SECONDS);
+    }
+  }
+
+  private static final class CountingContextCoordinator implements ContextCoordinator<String> {
+    private final Map<String, Integer> setCounts = new HashMap<>();
+
+    @Override
+    public String get() {
+      return TestStringContext.get();
+    }
+
+    @Override
+    public void set(String context) {
+      setCounts.merge(String.valueOf(context), 1, Integer::sum);
+      TestStringContext.set(context);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+final class ContextPreservedSubscriberTest {
+
+  @Test
+  void testCapturedContextAtCreation() {
+    String prefixContext = "testCapturedContextAtCreation";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    AtomicReference<String> capturedContext = new AtomicReference<>();
+    Flow.Subscriber<String> mockSubscriber = Mockito.mock(Flow.Subscriber.class);
+    Mockito.doAnswer(invocation -> {
+      capturedContext.set(TestStringContext.get());
+      return null;
+    }).when(mockSubscriber).onNext("item-1");
+
+    Flow.Subscriber<String> wrappedSubscriber =
+        ContextPreservedSubscriber.wrap(mockSubscriber, coordinator);
+    coordinator.set(prefixContext + "previous-context");
+    wrappedSubscriber.onNext("item-1");
+
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1")));
+    assertThat(coordinator.get(), is(equalTo(prefixContext + "previous-context")));
+  }
+
+  @Test
+  void testAllSignals() {
+    String prefixContext = "testAllSignals";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(prefixContext + "previous-context");
+    Flow.Subscriber<String> mockSubscriber = Mockito.mock(Flow.Subscriber.class);
+    Flow.Subscription mockSubscription = Mockito.mock(Flow.Subscription.class);
+    IllegalStateException exception = new IllegalStateException("test");
+
+    Flow.Subscriber<String> wrappedSubscriber = ContextPreservedSubscriber.wrap(mockSubscriber,
+        mockCoordinator, prefixContext + "new-context");
+    wrappedSubscriber.onSubscribe(mockSubscription);
+    wrappedSubscriber.onNext("item-1");
+    wrappedSubscriber.onError(exception);
+    wrappedSubscriber.onComplete();
+
+    InOrder inOrder = Mockito.inOrder(mockCoordinator, mockSubscriber);
+    inOrder.verify(mockCoordinator).set(prefixContext + "new-context");
+    inOrder.verify(mockSubscriber).onSubscribe(mockSubscription);
+    inOrder.verify(mockCoordinator).set(prefixContext + "previous-context");
+    inOrder.verify(mockCoordinator).set(prefixContext + "new-context");
+    inOrder.verify(mockSubscriber).onNext("item-1");
+    inOrder.verify(mockCoordinator).set(prefixContext + "previous-context");
+    inOrder.verify(mockCoordinator).set(prefixContext + "new-context");
+    inOrder.verify(mockSubscriber).onError(exception);
+    inOrder.verify(mockCoordinator).set(prefixContext + "previous-context");
+    inOrder.verify(mockCoordinator).set(prefixContext + "new-context");
+    inOrder.verify(mockSubscriber).onComplete();
+    inOrder.verify(mockCoordinator).set(prefixContext + "previous-context");
+  }
+
+  @Test
+  void testIdenticalContextSkipsTransition() {
+    String prefixContext = "testIdenticalContextSkipsTransition";
+    String context = prefixContext + "same-context";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.get()).thenReturn(context);
+    Flow.Subscriber<String> mockSubscriber = Mockito.mock(Flow.Subscriber.class);
+
+    Flow.Subscriber<String> wrappedSubscriber =
+        ContextPreservedSubscriber.wrap(mockSubscriber, mockCoordinator, context);
+    wrappedSubscriber.onNext("item-1");
+    wrappedSubscriber.onNext("item-2");
+
+    Mockito.verify(mockCoordinator, Mockito.never()).set(Mockito.any());
+    Mockito.verify(mockSubscriber).onNext("item-2");
+  }
+}
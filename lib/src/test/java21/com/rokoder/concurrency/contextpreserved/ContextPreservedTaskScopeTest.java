@@ -0,0 +1,89 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+final class ContextPreservedTaskScopeTest {
+
+  @Test
+  void testFactoryCapturesOnce() throws InterruptedException {
+    String prefixContext = "testFactoryCapturesOnce";
+    ContextCoordinator<String> mockCoordinator = Mockito.mock(ContextCoordinator.class);
+    Mockito.when(mockCoordinator.capture()).thenReturn(prefixContext + "new-context");
+
+    ContextPreservedTaskScope<String> scope = ContextPreservedTaskScope.open(mockCoordinator);
+    ThreadFactory factory = scope.factory();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Thread thread = factory.newThread(() -> { });
+      assertThat(thread.isVirtual(), is(true));
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join(1000);
+    }
+
+    assertThat(scope.getContext(), is(equalTo(prefixContext + "new-context")));
+    Mockito.verify(mockCoordinator).capture();
+    Mockito.verify(mockCoordinator, Mockito.times(100)).set(prefixContext + "new-context");
+    Mockito.verify(mockCoordinator, Mockito.never()).get();
+  }
+
+  @Test
+  void testFactoryContextPreserved() throws InterruptedException {
+    String prefixContext = "testFactoryContextPreserved";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+    ContextPreservedTaskScope<String> scope = ContextPreservedTaskScope.open(coordinator);
+    coordinator.set(prefixContext + "new-context-2");
+    ConcurrentLinkedQueue<String> capturedContexts = new ConcurrentLinkedQueue<>();
+
+    ThreadFactory factory = scope.factory();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Thread thread = factory.newThread(() -> capturedContexts.add(TestStringContext.get()));
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join(1000);
+    }
+
+    assertThat(capturedContexts.size(), is(100));
+    assertThat(capturedContexts, everyItem(is(equalTo(prefixContext + "new-context-1"))));
+    coordinator.set(null);
+  }
+
+  @Test
+  void testWrap() throws InterruptedException, ExecutionException {
+    String prefixContext = "testWrap";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    ContextPreservedTaskScope<String> scope =
+        ContextPreservedTaskScope.open(coordinator, prefixContext + "new-context");
+
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    Thread.ofVirtual().start(scope.wrap((Runnable) contextCaptorTask1)).join(1000);
+    FutureTask<String> futureTask =
+        new FutureTask<>(scope.wrap((Callable<String>) new TestStringContextCaptor()));
+    Thread.ofVirtual().start(futureTask).join(1000);
+
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context")));
+    assertThat(futureTask.get(), is(equalTo(prefixContext + "new-context")));
+    assertThat(TestStringContext.get(), is(nullValue()));
+  }
+}
@@ -0,0 +1,72 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+final class ContextPreservedVirtualThreadsTest {
+
+  @Test
+  void testNewVirtualThreadPerTaskExecutor()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testNewVirtualThreadPerTaskExecutor";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    try (ExecutorService executorService =
+             ContextPreservedVirtualThreads.newVirtualThreadPerTaskExecutor(coordinator)) {
+      String capturedContext =
+          executorService.submit((Callable<String>) new TestStringContextCaptor())
+              .get(1, TimeUnit.SECONDS);
+      assertThat(capturedContext, is(equalTo(prefixContext + "new-context-1")));
+    }
+  }
+
+  @Test
+  void testFactory() throws InterruptedException {
+    String prefixContext = "testFactory";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    ThreadFactory factory = ContextPreservedVirtualThreads.factory(Thread.ofVirtual(), coordinator);
+    TestStringContextCaptor contextCaptorTask = new TestStringContextCaptor();
+    Thread thread = factory.newThread(contextCaptorTask);
+    coordinator.set(prefixContext + "new-context-2");
+    thread.start();
+    thread.join(1000);
+
+    assertThat(contextCaptorTask.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+  }
+
+  @Test
+  void testUnstartedAndStart() throws InterruptedException {
+    String prefixContext = "testUnstartedAndStart";
+    TestStringContextCoordinator coordinator = new TestStringContextCoordinator();
+    coordinator.set(prefixContext + "new-context-1");
+
+    TestStringContextCaptor contextCaptorTask1 = new TestStringContextCaptor();
+    Thread thread1 = ContextPreservedVirtualThreads.unstarted(Thread.ofVirtual(), coordinator,
+        contextCaptorTask1);
+    coordinator.set(prefixContext + "new-context-2");
+    TestStringContextCaptor contextCaptorTask2 = new TestStringContextCaptor();
+    Thread thread2 = ContextPreservedVirtualThreads.start(Thread.ofPlatform(), coordinator,
+        contextCaptorTask2);
+    thread1.start();
+    thread1.join(1000);
+    thread2.join(1000);
+
+    assertThat(contextCaptorTask1.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-1")));
+    assertThat(contextCaptorTask2.getCapturedContext(),
+        is(equalTo(prefixContext + "new-context-2")));
+  }
+}
@@ -0,0 +1,45 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+final class ScopedValueContextCoordinatorTest {
+  private static final ScopedValue<String> SCOPED_VALUE = ScopedValue.newInstance();
+
+  @Test
+  void testGet() {
+    String prefixContext = "testGet";
+    ScopedValueContextCoordinator<String> coordinator =
+        ScopedValueContextCoordinator.of(SCOPED_VALUE);
+
+    assertThat(coordinator.getScopedValue(), is(sameInstance(SCOPED_VALUE)));
+    assertThat(coordinator.get(), is(nullValue()));
+    ScopedValue.where(SCOPED_VALUE, prefixContext + "new-context-1")
+        .run(() -> assertThat(coordinator.get(), is(equalTo(prefixContext + "new-context-1"))));
+  }
+
+  @Test
+  void testRunAndCall() throws Exception {
+    String prefixContext = "testRunAndCall";
+    ScopedValueContextCoordinator<String> coordinator =
+        ScopedValueContextCoordinator.of(SCOPED_VALUE);
+    AtomicReference<String> capturedContext = new AtomicReference<>();
+
+    coordinator.run(prefixContext + "new-context-1",
+        () -> capturedContext.set(coordinator.get()));
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1")));
+    assertThat(coordinator.call(prefixContext + "new-context-2", coordinator::get),
+        is(equalTo(prefixContext + "new-context-2")));
+    assertThat(coordinator.get(), is(nullValue()));
+    assertThrows(IllegalStateException.class, () -> coordinator.call(null, () -> {
+      throw new IllegalStateException("test");
+    }));
+  }
+}
@@ -0,0 +1,52 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+final class ScopedValueContextPreservedCallableTest {
+  private static final ScopedValue<String> SCOPED_VALUE = ScopedValue.newInstance();
+  private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+  private final ScopedValueContextCoordinator<String> coordinator =
+      ScopedValueContextCoordinator.of(SCOPED_VALUE);
+
+  @Test
+  void testCapturedContextAtCreation() throws Exception {
+    String prefixContext = "testCapturedContextAtCreation";
+
+    Callable<String> wrapTask = ScopedValue.where(SCOPED_VALUE, prefixContext + "new-context-1")
+        .call(() -> ScopedValueContextPreservedCallable.wrap(coordinator::get, coordinator));
+
+    assertThat(executorService.submit(wrapTask).get(1, TimeUnit.SECONDS),
+        is(equalTo(prefixContext + "new-context-1")));
+  }
+
+  @Test
+  void testPassedContextAndUnbinding() throws Exception {
+    String prefixContext = "testPassedContextAndUnbinding";
+
+    Callable<String> wrapTask = ScopedValueContextPreservedCallable.wrap(coordinator::get,
+        coordinator, prefixContext + "new-passed-context");
+
+    assertThat(wrapTask.call(), is(equalTo(prefixContext + "new-passed-context")));
+    assertThat(coordinator.get(), is(nullValue()));
+  }
+
+  @Test
+  void testExceptionIsPropagated() {
+    Callable<String> wrapTask = ScopedValueContextPreservedCallable.wrap(() -> {
+      throw new IllegalStateException("test");
+    }, coordinator, "context");
+
+    assertThrows(IllegalStateException.class, wrapTask::call);
+    assertThat(coordinator.get(), is(nullValue()));
+  }
+}
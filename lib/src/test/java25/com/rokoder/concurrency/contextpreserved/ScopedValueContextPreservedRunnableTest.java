@@ -0,0 +1,54 @@
+package com.rokoder.concurrency.contextpreserved;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+final class ScopedValueContextPreservedRunnableTest {
+  private static final ScopedValue<String> SCOPED_VALUE = ScopedValue.newInstance();
+  private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+  private final ScopedValueContextCoordinator<String> coordinator =
+      ScopedValueContextCoordinator.of(SCOPED_VALUE);
+
+  @Test
+  void testCapturedContextAtCreation() throws Exception {
+    String prefixContext = "testCapturedContextAtCreation";
+    AtomicReference<String> capturedContext = new AtomicReference<>();
+
+    Runnable wrapTask = ScopedValue.where(SCOPED_VALUE, prefixContext + "new-context-1")
+        .call(() -> ScopedValueContextPreservedRunnable.wrap(
+            () -> capturedContext.set(coordinator.get()), coordinator));
+    submitAndWait(wrapTask);
+
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-context-1")));
+  }
+
+  @Test
+  void testPassedContextAndUnbinding()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String prefixContext = "testPassedContextAndUnbinding";
+    AtomicReference<String> capturedContext = new AtomicReference<>();
+
+    Runnable wrapTask = ScopedValueContextPreservedRunnable.wrap(
+        () -> capturedContext.set(coordinator.get()), coordinator,
+        prefixContext + "new-passed-context");
+    wrapTask.run();
+
+    assertThat(capturedContext.get(), is(equalTo(prefixContext + "new-passed-context")));
+    assertThat(coordinator.get(), is(nullValue()));
+  }
+
+  private void submitAndWait(Runnable runnable)
+      throws ExecutionException, InterruptedException, TimeoutException {
+    executorService.submit(runnable).get(1, TimeUnit.SECONDS);
+  }
+}
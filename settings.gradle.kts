@@ -7,5 +7,11 @@
  * in the user manual at https://docs.gradle.org/7.5.1/userguide/multi_project_builds.html
  */
 
+plugins {
+    // Provisions the JDK toolchains used by the multi-release source sets.
+    id("org.gradle.toolchains.foojay-resolver-convention") version "0.8.0"
+}
+
 rootProject.name = "context-preserved"
 include("lib")
+include("jmh")